@@ -0,0 +1,73 @@
+package db.migration;
+
+import dev.abstratium.core.util.UuidV7;
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.UUID;
+
+/**
+ * Converts {@code T_demo.id} from the {@code VARCHAR(36)} string form of a UUID to {@code BINARY(16)}, the
+ * column type of all UUID ids (see DATABASE.md). A Java migration, because MySQL and H2 have no common SQL
+ * to convert a UUID string to its bytes. Ids that are not UUIDs, which clients could assign before, become
+ * the name-based UUID of the old id. The unique constraint on {@code id} is rebuilt on the new column.
+ */
+public class V01_006__demoIdToBinary extends BaseJavaMigration {
+
+    private static final int BATCH_SIZE = 1000;
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        Connection connection = context.getConnection();
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("ALTER TABLE T_demo ADD COLUMN id_bin BINARY(16)");
+        }
+        try (Statement select = connection.createStatement();
+             ResultSet rows = select.executeQuery("SELECT org_id, id FROM T_demo");
+             PreparedStatement update = connection.prepareStatement(
+                     "UPDATE T_demo SET id_bin = ? WHERE org_id = ? AND id = ?")) {
+            int batched = 0;
+            while (rows.next()) {
+                update.setBytes(1, toBytes(rows.getString(2)));
+                update.setString(2, rows.getString(1));
+                update.setString(3, rows.getString(2));
+                update.addBatch();
+                if (++batched % BATCH_SIZE == 0) {
+                    update.executeBatch();
+                }
+            }
+            update.executeBatch();
+        }
+        boolean mysql = connection.getMetaData().getDatabaseProductName().toLowerCase().contains("mysql");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(mysql
+                    ? "ALTER TABLE T_demo DROP INDEX U_demo_id"
+                    : "ALTER TABLE T_demo DROP CONSTRAINT U_demo_id");
+            statement.execute("ALTER TABLE T_demo DROP PRIMARY KEY");
+            statement.execute("ALTER TABLE T_demo DROP COLUMN id");
+            statement.execute(mysql
+                    ? "ALTER TABLE T_demo CHANGE COLUMN id_bin id BINARY(16) NOT NULL"
+                    : "ALTER TABLE T_demo ALTER COLUMN id_bin RENAME TO id");
+            if (!mysql) {
+                statement.execute("ALTER TABLE T_demo ALTER COLUMN id SET NOT NULL");
+            }
+            statement.execute("ALTER TABLE T_demo ADD PRIMARY KEY (org_id, id)");
+            statement.execute("ALTER TABLE T_demo ADD CONSTRAINT U_demo_id UNIQUE (id)");
+        }
+    }
+
+    private static byte[] toBytes(String id) {
+        UUID uuid;
+        try {
+            uuid = UUID.fromString(id);
+        } catch (IllegalArgumentException e) {
+            uuid = UUID.nameUUIDFromBytes(id.getBytes(StandardCharsets.UTF_8));
+        }
+        return UuidV7.toBytes(uuid);
+    }
+}
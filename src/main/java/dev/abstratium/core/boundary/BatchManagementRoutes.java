@@ -0,0 +1,75 @@
+package dev.abstratium.core.boundary;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.abstratium.core.service.TenantBatchRunner;
+import io.quarkus.vertx.http.ManagementInterface;
+import io.vertx.ext.web.RoutingContext;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.util.Map;
+
+/**
+ * Batch jobs on the management interface:
+ * <ul>
+ *   <li>{@code GET /m/batch} - the available jobs, and the progress and throughput of their current or last run</li>
+ *   <li>{@code GET /m/batch/{job}} - the progress and throughput of the current or last run of a job</li>
+ *   <li>{@code POST /m/batch/{job}/start} - starts a job on this node, resuming an earlier run that did not
+ *   complete</li>
+ * </ul>
+ */
+@ApplicationScoped
+public class BatchManagementRoutes {
+
+    private static final Logger log = Logger.getLogger(BatchManagementRoutes.class);
+
+    @ConfigProperty(name = "quarkus.management.root-path", defaultValue = "/q")
+    String managementRootPath;
+
+    @Inject
+    TenantBatchRunner tenantBatchRunner;
+
+    @Inject
+    ObjectMapper objectMapper;
+
+    void registerRoutes(@Observes ManagementInterface managementInterface) {
+        String base = managementRootPath.endsWith("/") ? managementRootPath : managementRootPath + "/";
+        managementInterface.router().get(base + "batch")
+                .handler(rc -> respond(rc, 200, Map.of(
+                        "jobs", tenantBatchRunner.jobNames(),
+                        "runs", tenantBatchRunner.statuses())));
+        managementInterface.router().get(base + "batch/:job")
+                .handler(rc -> tenantBatchRunner.status(rc.pathParam("job")).ifPresentOrElse(
+                        status -> respond(rc, 200, status),
+                        () -> respond(rc, 404, Map.of("error", "No run of batch job " + rc.pathParam("job")))));
+        managementInterface.router().post(base + "batch/:job/start")
+                .handler(this::start);
+    }
+
+    private void start(RoutingContext rc) {
+        String job = rc.pathParam("job");
+        log.infov("Start of batch job {0} requested via the management interface", job);
+        try {
+            respond(rc, 202, tenantBatchRunner.start(job));
+        } catch (IllegalArgumentException e) {
+            respond(rc, 404, Map.of("error", e.getMessage()));
+        } catch (IllegalStateException e) {
+            respond(rc, 409, Map.of("error", e.getMessage()));
+        }
+    }
+
+    private void respond(RoutingContext rc, int status, Object body) {
+        try {
+            rc.response()
+                    .setStatusCode(status)
+                    .putHeader("Content-Type", "application/json")
+                    .end(objectMapper.writeValueAsString(body));
+        } catch (Exception e) {
+            log.error("Failed to write management response", e);
+            rc.fail(500, e);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package dev.abstratium.core.boundary;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.abstratium.core.service.TenantCaches;
+import io.quarkus.vertx.http.ManagementInterface;
+import io.vertx.ext.web.RoutingContext;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.util.Map;
+
+/**
+ * Second-level cache diagnostics on the management interface:
+ * <ul>
+ *   <li>{@code GET /m/cache} - hits, misses, puts and evictions per cache region</li>
+ *   <li>{@code POST /m/cache/tenants/{orgId}/evict} - drops the cached query results of an org, e.g. after
+ *   its data was repaired with SQL. Only affects this node.</li>
+ * </ul>
+ */
+@ApplicationScoped
+public class CacheManagementRoutes {
+
+    private static final Logger log = Logger.getLogger(CacheManagementRoutes.class);
+
+    @ConfigProperty(name = "quarkus.management.root-path", defaultValue = "/q")
+    String managementRootPath;
+
+    @Inject
+    TenantCaches tenantCaches;
+
+    @Inject
+    ObjectMapper objectMapper;
+
+    void registerRoutes(@Observes ManagementInterface managementInterface) {
+        String base = managementRootPath.endsWith("/") ? managementRootPath : managementRootPath + "/";
+        managementInterface.router().get(base + "cache")
+                .handler(rc -> respond(rc, 200, Map.of("regions", tenantCaches.statistics())));
+        managementInterface.router().post(base + "cache/tenants/:orgId/evict")
+                .handler(this::evictTenant);
+    }
+
+    private void evictTenant(RoutingContext rc) {
+        String orgId = rc.pathParam("orgId");
+        log.infov("Cache eviction of org {0} requested via the management interface", orgId);
+        tenantCaches.evictTenant(orgId);
+        respond(rc, 200, Map.of("evicted", orgId));
+    }
+
+    private void respond(RoutingContext rc, int status, Object body) {
+        try {
+            rc.response()
+                    .setStatusCode(status)
+                    .putHeader("Content-Type", "application/json")
+                    .end(objectMapper.writeValueAsString(body));
+        } catch (Exception e) {
+            log.error("Failed to write management response", e);
+            rc.fail(500, e);
+        }
+    }
+}
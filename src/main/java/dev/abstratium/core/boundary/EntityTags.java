@@ -0,0 +1,51 @@
+package dev.abstratium.core.boundary;
+
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.Response;
+
+/**
+ * Maps the {@code @Version} of entities to HTTP entity tags for optimistic locking: responses carry the version
+ * as a strong {@code ETag}, and updates must send it back in {@code If-Match}, so that an update based on a
+ * stale read fails with 412 instead of overwriting the changes of someone else.
+ */
+public final class EntityTags {
+
+    private static final String ANY = "*";
+
+    private EntityTags() {
+    }
+
+    public static EntityTag of(long version) {
+        return new EntityTag(Long.toString(version));
+    }
+
+    public static Response ok(Object entity, long version) {
+        return Response.ok(entity).tag(of(version)).build();
+    }
+
+    /**
+     * @param ifMatch the {@code If-Match} header, a single strong entity tag or {@code *}
+     * @return the version the entity must have, or {@code null} for {@code *}, which matches any version
+     * @throws FunctionalException with status 428 if the header is missing, or 412 if it is not the entity tag
+     *         of a version, as weak tags and lists never match a single version
+     */
+    public static Long requiredVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank()) {
+            throw new FunctionalException(Response.Status.PRECONDITION_REQUIRED, ErrorCode.PRECONDITION_REQUIRED,
+                    "Send the ETag of the resource as last read in the If-Match header");
+        }
+        String tag = ifMatch.trim();
+        if (tag.equals(ANY)) {
+            return null;
+        }
+        if (tag.length() > 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+            try {
+                return Long.parseLong(tag.substring(1, tag.length() - 1));
+            } catch (NumberFormatException e) {
+                // no version has this tag
+            }
+        }
+        throw new FunctionalException(Response.Status.PRECONDITION_FAILED, ErrorCode.VERSION_MISMATCH,
+                "If-Match " + tag + " does not match the ETag of any version");
+    }
+}
@@ -22,17 +22,21 @@ public enum ErrorCode {
     VALIDATION_FAILED("ERR-3000", "Validation failed"),
     REQUIRED_FIELD_MISSING("ERR-3001", "Required field is missing"),
     INVALID_FORMAT("ERR-3002", "Invalid data format"),
+    PRECONDITION_REQUIRED("ERR-3003", "The If-Match header is required"),
     
     // Business logic errors (4000-4999)
     BUSINESS_RULE_VIOLATION("ERR-4000", "Business rule violation"),
     DUPLICATE_ENTRY("ERR-4001", "Duplicate entry detected"),
     INVALID_STATE("ERR-4002", "Invalid state for operation"),
     FOREIGN_KEY_VIOLATION("ERR-4003", "Resource is still referenced by other data"),
+    QUOTA_EXCEEDED("ERR-4004", "Request quota of the organisation exceeded"),
+    VERSION_MISMATCH("ERR-4005", "Resource was changed or deleted since it was read"),
     
     // System errors (5000-5999)
     INTERNAL_ERROR("ERR-5000", "Internal system error"),
     DATABASE_ERROR("ERR-5001", "Database operation failed"),
-    EXTERNAL_SERVICE_ERROR("ERR-5002", "External service unavailable");
+    EXTERNAL_SERVICE_ERROR("ERR-5002", "External service unavailable"),
+    SERVER_BUSY("ERR-5003", "Server busy");
     
     private final String code;
     private final String description;
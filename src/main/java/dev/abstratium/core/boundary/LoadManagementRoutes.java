@@ -0,0 +1,51 @@
+package dev.abstratium.core.boundary;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.abstratium.core.service.HeavyHitterMonitor;
+import io.quarkus.vertx.http.ManagementInterface;
+import io.vertx.ext.web.RoutingContext;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+/**
+ * Load diagnostics on the management interface:
+ * <ul>
+ *   <li>{@code GET /m/load/top} - the orgs and client IPs that caused most of the request time and JDBC time of
+ *   this node, in the current and the previous window</li>
+ * </ul>
+ */
+@ApplicationScoped
+public class LoadManagementRoutes {
+
+    private static final Logger log = Logger.getLogger(LoadManagementRoutes.class);
+
+    @ConfigProperty(name = "quarkus.management.root-path", defaultValue = "/q")
+    String managementRootPath;
+
+    @Inject
+    HeavyHitterMonitor heavyHitterMonitor;
+
+    @Inject
+    ObjectMapper objectMapper;
+
+    void registerRoutes(@Observes ManagementInterface managementInterface) {
+        String base = managementRootPath.endsWith("/") ? managementRootPath : managementRootPath + "/";
+        managementInterface.router().get(base + "load/top")
+                .handler(rc -> respond(rc, 200, heavyHitterMonitor.report()));
+    }
+
+    private void respond(RoutingContext rc, int status, Object body) {
+        try {
+            rc.response()
+                    .setStatusCode(status)
+                    .putHeader("Content-Type", "application/json")
+                    .end(objectMapper.writeValueAsString(body));
+        } catch (Exception e) {
+            log.error("Failed to write management response", e);
+            rc.fail(500, e);
+        }
+    }
+}
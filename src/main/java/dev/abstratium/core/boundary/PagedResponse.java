@@ -0,0 +1,27 @@
+package dev.abstratium.core.boundary;
+
+import dev.abstratium.core.service.KeysetPager;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.UriInfo;
+
+/**
+ * Builds the responses of paged collection endpoints: the body is the JSON array of the page's items, and
+ * unless it is the last page, a {@code Link} header with {@code rel="next"} points to the request URI with the
+ * {@code cursor} query parameter of the next page. Clients follow the links until there is none.
+ */
+public final class PagedResponse {
+
+    public static final String CURSOR_PARAM = "cursor";
+    public static final String LIMIT_PARAM = "limit";
+
+    private PagedResponse() {
+    }
+
+    public static Response ok(KeysetPager.Page<?> page, UriInfo uriInfo) {
+        Response.ResponseBuilder response = Response.ok(page.items());
+        if (page.next() != null) {
+            response.link(uriInfo.getRequestUriBuilder().replaceQueryParam(CURSOR_PARAM, page.next()).build(), "next");
+        }
+        return response.build();
+    }
+}
@@ -0,0 +1,55 @@
+package dev.abstratium.core.boundary;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.abstratium.core.service.TenantRequestMetrics;
+import io.quarkus.vertx.http.ManagementInterface;
+import io.vertx.ext.web.RoutingContext;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.util.Map;
+
+/**
+ * Tenant diagnostics on the management interface:
+ * <ul>
+ *   <li>{@code GET /m/tenants/top} - the most active orgs with their estimated request counts since startup,
+ *   and the orgs that currently get their own series in {@code abstratium.tenant.requests}</li>
+ * </ul>
+ */
+@ApplicationScoped
+public class TenantManagementRoutes {
+
+    private static final Logger log = Logger.getLogger(TenantManagementRoutes.class);
+
+    @ConfigProperty(name = "quarkus.management.root-path", defaultValue = "/q")
+    String managementRootPath;
+
+    @Inject
+    TenantRequestMetrics tenantRequestMetrics;
+
+    @Inject
+    ObjectMapper objectMapper;
+
+    void registerRoutes(@Observes ManagementInterface managementInterface) {
+        String base = managementRootPath.endsWith("/") ? managementRootPath : managementRootPath + "/";
+        managementInterface.router().get(base + "tenants/top")
+                .handler(rc -> respond(rc, 200, Map.of(
+                        "top", tenantRequestMetrics.topTenants(),
+                        "tagged", tenantRequestMetrics.taggedOrgIds())));
+    }
+
+    private void respond(RoutingContext rc, int status, Object body) {
+        try {
+            rc.response()
+                    .setStatusCode(status)
+                    .putHeader("Content-Type", "application/json")
+                    .end(objectMapper.writeValueAsString(body));
+        } catch (Exception e) {
+            log.error("Failed to write management response", e);
+            rc.fail(500, e);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package dev.abstratium.core.boundary;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.abstratium.core.service.TogglesService;
+import io.quarkus.vertx.http.ManagementInterface;
+import io.vertx.ext.web.RoutingContext;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import java.util.HashMap;
+import java.util.Map;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+/**
+ * Toggle diagnostics on the management interface (see {@code quarkus.management.*}), so that they
+ * are only reachable from inside the deployment:
+ * <ul>
+ *   <li>{@code GET /m/toggles} - the cached snapshot per stage (version, age, size, rows) and the
+ *   outcome and latency of the last fetch from the toggle API</li>
+ *   <li>{@code POST /m/toggles/refresh} - fetches the toggles again in the background, e.g. after an
+ *   emergency change, instead of waiting for the cache to expire. Only affects this node.</li>
+ *   <li>{@code GET /m/toggles/{name}/evaluate?key=value...} - evaluates a toggle against the context
+ *   given as query parameters, for debugging</li>
+ *   <li>{@code GET /m/toggles/analytics} - hit counts per toggle rule since the current snapshot was loaded,
+ *   including the rules that were never hit</li>
+ * </ul>
+ */
+@ApplicationScoped
+public class TogglesManagementRoutes {
+
+    private static final Logger log = Logger.getLogger(TogglesManagementRoutes.class);
+
+    @ConfigProperty(name = "quarkus.management.root-path", defaultValue = "/q")
+    String managementRootPath;
+
+    @Inject
+    TogglesService togglesService;
+
+    @Inject
+    ObjectMapper objectMapper;
+
+    void registerRoutes(@Observes ManagementInterface managementInterface) {
+        String base = managementRootPath.endsWith("/") ? managementRootPath : managementRootPath + "/";
+        managementInterface.router().get(base + "toggles")
+                .handler(rc -> respond(rc, 200, togglesService.getStatus()));
+        managementInterface.router().post(base + "toggles/refresh")
+                .handler(this::refresh);
+        managementInterface.router().get(base + "toggles/analytics")
+                .handler(rc -> respond(rc, 200, togglesService.getAnalyticsReport()));
+        // may have to fetch the toggles first, which blocks
+        managementInterface.router().get(base + "toggles/:name/evaluate")
+                .blockingHandler(this::evaluate);
+    }
+
+    private void refresh(RoutingContext rc) {
+        log.info("Toggle refresh requested via the management interface");
+        togglesService.refresh().whenComplete((snapshot, failure) -> {
+            if (failure != null) {
+                log.error("Toggle refresh failed", failure);
+            }
+        });
+        respond(rc, 202, togglesService.getStatus());
+    }
+
+    private void evaluate(RoutingContext rc) {
+        Map<String, String> context = new HashMap<>();
+        rc.queryParams().forEach(entry -> context.putIfAbsent(entry.getKey(), entry.getValue()));
+        respond(rc, 200, togglesService.explain(rc.pathParam("name"), context));
+    }
+
+    private void respond(RoutingContext rc, int status, Object body) {
+        try {
+            rc.response()
+                    .setStatusCode(status)
+                    .putHeader("Content-Type", "application/json")
+                    .end(objectMapper.writeValueAsString(body));
+        } catch (Exception e) {
+            log.error("Failed to write management response", e);
+            rc.fail(500, e);
+        }
+    }
+}
@@ -12,6 +12,7 @@ import org.eclipse.microprofile.jwt.JsonWebToken;
 import org.jboss.logging.Logger;
 
 import dev.abstratium.core.service.CurrentOrgContext;
+import dev.abstratium.core.service.RequestTenant;
 
 import java.io.IOException;
 
@@ -23,6 +24,8 @@ import java.io.IOException;
  * Bearer) so that the injected tokens are fully populated, then makes the
  * organisation identifier available to {@link dev.abstratium.abstrauth.service.JwtOrgResolver}
  * without duplicating cookie-decryption logic.</p>
+ *
+ * <p>If {@link OrgIdRouteFilter} already resolved the orgId at the route layer, that value is reused.</p>
  */
 @Provider
 @Priority(Priorities.AUTHENTICATION + 100)
@@ -45,7 +48,11 @@ public class OrgIdResolutionFilter implements ContainerRequestFilter {
         currentOrgContext.setRequestPath(requestContext.getUriInfo().getPath());
         currentOrgContext.setRequestMethod(requestContext.getMethod());
 
-        String orgId = extractOrgIdFromIdToken();
+        RequestTenant tenant = RequestTenant.current();
+        String orgId = tenant != null ? tenant.getOrgId() : null;
+        if (orgId == null) {
+            orgId = extractOrgIdFromIdToken();
+        }
         if (orgId == null) {
             orgId = extractOrgIdFromAccessToken();
         }
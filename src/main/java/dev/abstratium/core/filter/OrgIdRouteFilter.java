@@ -0,0 +1,56 @@
+package dev.abstratium.core.filter;
+
+import dev.abstratium.core.service.RequestTenant;
+import io.quarkus.security.identity.SecurityIdentity;
+import io.quarkus.vertx.http.runtime.filters.Filters;
+import io.quarkus.vertx.http.runtime.security.QuarkusHttpUser;
+import io.quarkus.vertx.http.runtime.security.SecurityHandlerPriorities;
+import io.vertx.ext.web.RoutingContext;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import org.eclipse.microprofile.jwt.JsonWebToken;
+import org.jboss.logging.Logger;
+
+/**
+ * Resolves the tenant once per HTTP request at the Vert.x route layer and stores it as the
+ * {@link RequestTenant} of the request's duplicated context.
+ *
+ * <p>Runs after the authentication and authorization handlers, so that a proactively authenticated
+ * identity is available. Its principal is the ID token (OIDC cookie) or the access token (Bearer),
+ * whose {@code orgId} claim is used. Unlike {@link OrgIdResolutionFilter}, this covers routes that are
+ * not JAX-RS resources. When the identity is only established later, e.g. with {@code @TestSecurity},
+ * {@link OrgIdResolutionFilter} completes the {@link RequestTenant} for JAX-RS resources.</p>
+ */
+@ApplicationScoped
+public class OrgIdRouteFilter {
+
+    private static final Logger log = Logger.getLogger(OrgIdRouteFilter.class);
+
+    static final int PRIORITY = SecurityHandlerPriorities.AUTHORIZATION - 10;
+
+    void register(@Observes Filters filters) {
+        filters.register(this::resolve, PRIORITY);
+    }
+
+    void resolve(RoutingContext rc) {
+        RequestTenant tenant = RequestTenant.start(rc.request().method().name(), rc.normalizedPath());
+        if (tenant != null) {
+            tenant.setOrgId(orgIdOf(rc.user() instanceof QuarkusHttpUser user ? user.getSecurityIdentity() : null));
+            log.debugv("Resolved orgId={0} for request {1}", tenant.getOrgId(), tenant.getRequestPath());
+        }
+        rc.next();
+    }
+
+    static String orgIdOf(SecurityIdentity identity) {
+        if (identity == null || identity.isAnonymous() || !(identity.getPrincipal() instanceof JsonWebToken jwt)) {
+            return null;
+        }
+        try {
+            Object claim = jwt.getClaim("orgId");
+            return claim != null && !claim.toString().isBlank() ? claim.toString() : null;
+        } catch (Exception e) {
+            log.debug("Failed to extract orgId from the principal", e);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package dev.abstratium.core.filter;
+
+import dev.abstratium.core.service.CurrentOrgContext;
+import dev.abstratium.core.service.HeavyHitterMonitor;
+import dev.abstratium.core.service.RequestLoad;
+import dev.abstratium.core.service.TenantRequestMetrics;
+import dev.abstratium.core.util.ClientIpUtil;
+import io.opentelemetry.api.trace.Span;
+import jakarta.annotation.Priority;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Priorities;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerRequestFilter;
+import jakarta.ws.rs.container.ContainerResponseContext;
+import jakarta.ws.rs.container.ContainerResponseFilter;
+import jakarta.ws.rs.container.ResourceInfo;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.ext.Provider;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Records the latency of every JAX-RS request per endpoint and org in {@link TenantRequestMetrics}, and
+ * adds the orgId to the current OpenTelemetry span as {@value #ORG_ID_ATTRIBUTE}. Also feeds the duration
+ * and the JDBC time of the request ({@link RequestLoad}) per org and client IP to the
+ * {@link HeavyHitterMonitor}.
+ *
+ * <p>The request filter runs before {@link OrgIdResolutionFilter} to take the start time, so that time
+ * spent in the other filters, including requests rejected by {@link TenantQuotaFilter}, is measured. The
+ * org is read when the response is filtered, once it has been resolved.</p>
+ */
+@Provider
+@Priority(Priorities.AUTHENTICATION)
+public class TenantMetricsFilter implements ContainerRequestFilter, ContainerResponseFilter {
+
+    static final String ORG_ID_ATTRIBUTE = "abstratium.org_id";
+    private static final String START_PROPERTY = TenantMetricsFilter.class.getName() + ".start";
+
+    private static final Map<Method, String> PATH_TEMPLATES = new ConcurrentHashMap<>();
+
+    @Context
+    ResourceInfo resourceInfo;
+
+    @Inject
+    CurrentOrgContext currentOrgContext;
+
+    @Inject
+    TenantRequestMetrics tenantRequestMetrics;
+
+    @Inject
+    HeavyHitterMonitor heavyHitterMonitor;
+
+    @Override
+    public void filter(ContainerRequestContext requestContext) {
+        requestContext.setProperty(START_PROPERTY, System.nanoTime());
+        RequestLoad.start();
+    }
+
+    @Override
+    public void filter(ContainerRequestContext requestContext, ContainerResponseContext responseContext) {
+        if (!(requestContext.getProperty(START_PROPERTY) instanceof Long start)) {
+            return;
+        }
+        String orgId = currentOrgContext.getOrgId();
+        if (orgId != null) {
+            Span.current().setAttribute(ORG_ID_ATTRIBUTE, orgId);
+        }
+        long durationNanos = System.nanoTime() - start;
+        tenantRequestMetrics.record(orgId, requestContext.getMethod() + " " + pathTemplate(),
+                responseContext.getStatus(), durationNanos);
+        RequestLoad load = RequestLoad.current();
+        heavyHitterMonitor.record(orgId, ClientIpUtil.getClientIp(requestContext), durationNanos,
+                load != null ? load.getJdbcNanos() : 0);
+    }
+
+    private String pathTemplate() {
+        Method method = resourceInfo.getResourceMethod();
+        if (method == null) {
+            return "(unmatched)";
+        }
+        return PATH_TEMPLATES.computeIfAbsent(method, m -> join(
+                resourceInfo.getResourceClass().getAnnotation(Path.class), m.getAnnotation(Path.class)));
+    }
+
+    static String join(Path classPath, Path methodPath) {
+        StringBuilder template = new StringBuilder();
+        for (Path path : new Path[]{classPath, methodPath}) {
+            if (path == null || path.value().isEmpty() || path.value().equals("/")) {
+                continue;
+            }
+            if (!path.value().startsWith("/")) {
+                template.append('/');
+            }
+            template.append(path.value().endsWith("/") ? path.value().substring(0, path.value().length() - 1) : path.value());
+        }
+        return template.isEmpty() ? "/" : template.toString();
+    }
+}
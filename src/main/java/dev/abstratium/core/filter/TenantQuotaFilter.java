@@ -0,0 +1,72 @@
+package dev.abstratium.core.filter;
+
+import dev.abstratium.core.boundary.ErrorCode;
+import dev.abstratium.core.service.CurrentOrgContext;
+import dev.abstratium.core.service.TenantQuotas;
+import jakarta.annotation.Priority;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.Priorities;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerRequestFilter;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.ext.Provider;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Enforces the request quota of the caller's org, see {@link TenantQuotas}.
+ *
+ * <p>Runs right after {@link OrgIdResolutionFilter}, so that the orgId is known. Requests without an org,
+ * e.g. on public endpoints, are not limited. Over-limit requests are rejected with
+ * {@code 429 Too Many Requests} and a {@code Retry-After} header. The problem body is the same for every
+ * rejection and is built once, so that rejecting is cheaper than admitting.</p>
+ */
+@Provider
+@Priority(Priorities.AUTHENTICATION + 200)
+public class TenantQuotaFilter implements ContainerRequestFilter {
+
+    private static final Logger log = Logger.getLogger(TenantQuotaFilter.class);
+
+    static final String PROBLEM_MEDIA_TYPE = "application/problem+json";
+    static final String PROBLEM_BODY = "{\"type\":\"" + ErrorCode.QUOTA_EXCEEDED.getTypeUri()
+            + "\",\"title\":\"" + ErrorCode.QUOTA_EXCEEDED.getDescription()
+            + "\",\"status\":429,\"detail\":\"Too many requests for this organisation, retry later\"}";
+
+    @ConfigProperty(name = "rate-limit.enabled", defaultValue = "true")
+    boolean enabled;
+
+    @Inject
+    CurrentOrgContext currentOrgContext;
+
+    @Inject
+    TenantQuotas tenantQuotas;
+
+    @Override
+    public void filter(ContainerRequestContext requestContext) {
+        if (!enabled) {
+            return;
+        }
+        String orgId = currentOrgContext.getOrgId();
+        if (orgId == null) {
+            return;
+        }
+        long waitNanos = tenantQuotas.tryAcquire(orgId);
+        if (waitNanos > 0) {
+            log.debugv("Quota of org {0} exceeded, rejecting {1} {2}", orgId, requestContext.getMethod(),
+                    requestContext.getUriInfo().getPath());
+            requestContext.abortWith(tooManyRequests(waitNanos));
+        }
+    }
+
+    static Response tooManyRequests(long waitNanos) {
+        long retryAfterSeconds = Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+        return Response.status(Response.Status.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, retryAfterSeconds)
+                .type(PROBLEM_MEDIA_TYPE)
+                .entity(PROBLEM_BODY)
+                .build();
+    }
+}
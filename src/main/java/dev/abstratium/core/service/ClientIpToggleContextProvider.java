@@ -0,0 +1,39 @@
+package dev.abstratium.core.service;
+
+import dev.abstratium.core.util.ClientIpUtil;
+import io.quarkus.arc.Arc;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import org.jboss.logging.Logger;
+
+/**
+ * Supplies {@code clientIp} for the current JAX-RS request, see {@link ClientIpUtil}.
+ */
+@ApplicationScoped
+public class ClientIpToggleContextProvider implements ToggleContextProvider {
+
+    private static final Logger log = Logger.getLogger(ClientIpToggleContextProvider.class);
+
+    @Inject
+    ContainerRequestContext requestContext;
+
+    @Override
+    public String key() {
+        return "clientIp";
+    }
+
+    @Override
+    public String resolve() {
+        if (!Arc.container().requestContext().isActive()) {
+            return null;
+        }
+        try {
+            return ClientIpUtil.getClientIp(requestContext);
+        } catch (RuntimeException e) {
+            // not within a JAX-RS request
+            log.debug("Unable to determine client IP", e);
+            return null;
+        }
+    }
+}
@@ -8,6 +8,13 @@ import jakarta.enterprise.context.RequestScoped;
  * after the security layer has extracted JWT tokens (from OIDC cookies or
  * Bearer headers), and consumed by {@link JwtOrgResolver} to determine the
  * Hibernate discriminator tenant.
+ *
+ * <p>Changes to the orgId, description and ignore flag are mirrored into the
+ * {@link RequestTenant} of the current HTTP request, which is what
+ * {@link JwtOrgResolver} reads during HTTP requests.</p>
+ *
+ * <p>While the current thread runs as an org with {@link TenantContext}, {@link #getOrgId()} returns that
+ * org.</p>
  */
 @RequestScoped
 public class CurrentOrgContext {
@@ -19,11 +26,23 @@ public class CurrentOrgContext {
     private boolean ignore;
 
     public String getOrgId() {
+        String runAs = TenantContext.currentOrgId();
+        if (runAs != null) {
+            return runAs;
+        }
+        if (orgId == null) {
+            RequestTenant tenant = RequestTenant.current();
+            return tenant != null ? tenant.getOrgId() : null;
+        }
         return orgId;
     }
 
     public void setOrgId(String orgId) {
         this.orgId = orgId;
+        RequestTenant tenant = RequestTenant.current();
+        if (tenant != null) {
+            tenant.setOrgId(orgId);
+        }
     }
 
     public String getRequestPath() {
@@ -48,6 +67,10 @@ public class CurrentOrgContext {
 
     public void setContextDescription(String contextDescription) {
         this.contextDescription = contextDescription;
+        RequestTenant tenant = RequestTenant.current();
+        if (tenant != null) {
+            tenant.setContextDescription(contextDescription);
+        }
     }
 
     public boolean isIgnore() {
@@ -56,6 +79,10 @@ public class CurrentOrgContext {
 
     public void setIgnore(boolean ignore) {
         this.ignore = ignore;
+        RequestTenant tenant = RequestTenant.current();
+        if (tenant != null) {
+            tenant.setIgnore(ignore);
+        }
     }
 
 }
@@ -0,0 +1,239 @@
+package dev.abstratium.core.service;
+
+import dev.abstratium.core.util.HeavyHitters;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.runtime.annotations.RegisterForReflection;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Finds the orgs and client IPs that cause most of the load of this node, in fixed memory however many
+ * there are.
+ *
+ * <p>Every request is weighted by its duration and, separately, by the time its Hibernate sessions spent
+ * executing JDBC statements ({@link RequestLoad}). Each combination of {@link Dimension} and {@link Resource}
+ * is tracked with {@link HeavyHitters} in tumbling windows of {@code abstratium.heavy-hitters.window}; the
+ * current and the previous window are reported by {@link #report()}.</p>
+ *
+ * <p>When an org or client IP passes {@code abstratium.heavy-hitters.alert-share} of a resource within a
+ * window, a warning is logged and {@value #ALERTS_METRIC_NAME} is incremented, once per window. No alerts are
+ * raised until the window's total of the resource has reached {@code abstratium.heavy-hitters.alert-min-load},
+ * so that a single request on an idle node is not reported.</p>
+ */
+@ApplicationScoped
+public class HeavyHitterMonitor {
+
+    private static final Logger log = Logger.getLogger(HeavyHitterMonitor.class);
+
+    static final String ALERTS_METRIC_NAME = "abstratium.heavy_hitters.alerts";
+    private static final int MAX_ALERTS_PER_WINDOW = 100;
+
+    public enum Dimension {
+        ORG("org"), CLIENT_IP("clientIp");
+
+        final String key;
+
+        Dimension(String key) {
+            this.key = key;
+        }
+    }
+
+    public enum Resource {
+        TIME("time"), JDBC("jdbc");
+
+        final String key;
+
+        Resource(String key) {
+            this.key = key;
+        }
+    }
+
+    @ConfigProperty(name = "abstratium.heavy-hitters.enabled", defaultValue = "true")
+    boolean enabled;
+
+    @ConfigProperty(name = "abstratium.heavy-hitters.window", defaultValue = "60s")
+    Duration windowLength;
+
+    @ConfigProperty(name = "abstratium.heavy-hitters.alert-share", defaultValue = "0.25")
+    double alertShare;
+
+    @ConfigProperty(name = "abstratium.heavy-hitters.alert-min-load", defaultValue = "10s")
+    Duration alertMinLoad;
+
+    @ConfigProperty(name = "abstratium.heavy-hitters.capacity", defaultValue = "100")
+    int capacity;
+
+    @ConfigProperty(name = "abstratium.heavy-hitters.sketch-width", defaultValue = "1024")
+    int sketchWidth;
+
+    @ConfigProperty(name = "abstratium.heavy-hitters.sketch-depth", defaultValue = "4")
+    int sketchDepth;
+
+    @ConfigProperty(name = "abstratium.heavy-hitters.top-n", defaultValue = "10")
+    int topN;
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    private final Map<Dimension, Map<Resource, Counter>> alertCounters = new EnumMap<>(Dimension.class);
+    private volatile Window current;
+    private volatile Window previous;
+
+    @PostConstruct
+    void init() {
+        for (Dimension dimension : Dimension.values()) {
+            Map<Resource, Counter> counters = new EnumMap<>(Resource.class);
+            for (Resource resource : Resource.values()) {
+                counters.put(resource, Counter.builder(ALERTS_METRIC_NAME)
+                        .description("Times an org or client IP passed the alert share of a resource in a window")
+                        .tags("dimension", dimension.key, "resource", resource.key)
+                        .register(meterRegistry));
+            }
+            alertCounters.put(dimension, counters);
+        }
+        current = new Window(System.nanoTime());
+    }
+
+    /**
+     * Records the load of one request.
+     *
+     * @param orgId the org of the caller, or {@code null} if it is not known
+     * @param clientIp the IP address of the caller, or {@code null} if it is not known
+     */
+    public void record(String orgId, String clientIp, long durationNanos, long jdbcNanos) {
+        if (!enabled) {
+            return;
+        }
+        Window window = currentWindow();
+        offer(window, Dimension.ORG, orgId, durationNanos, jdbcNanos);
+        offer(window, Dimension.CLIENT_IP, clientIp, durationNanos, jdbcNanos);
+    }
+
+    /**
+     * @return the top consumers of the current and the previous window
+     */
+    public Report report() {
+        Window window = currentWindow();
+        Window last = previous;
+        return new Report(windowLength, window.report(topN), last != null ? last.report(topN) : null);
+    }
+
+    /**
+     * Starts a new window, e.g. in tests.
+     */
+    synchronized void rotate() {
+        previous = current;
+        current = new Window(System.nanoTime());
+    }
+
+    private Window currentWindow() {
+        Window window = current;
+        if (System.nanoTime() - window.startNanos >= windowLength.toNanos()) {
+            synchronized (this) {
+                if (current == window) {
+                    rotate();
+                }
+                window = current;
+            }
+        }
+        return window;
+    }
+
+    private void offer(Window window, Dimension dimension, String item, long durationNanos, long jdbcNanos) {
+        if (item == null) {
+            return;
+        }
+        offer(window, dimension, Resource.TIME, item, durationNanos);
+        if (jdbcNanos > 0) {
+            offer(window, dimension, Resource.JDBC, item, jdbcNanos);
+        }
+    }
+
+    private void offer(Window window, Dimension dimension, Resource resource, String item, long nanos) {
+        HeavyHitters heavyHitters = window.heavyHitters.get(dimension).get(resource);
+        long estimate = heavyHitters.offer(item, nanos);
+        long total = heavyHitters.total();
+        if (total < alertMinLoad.toNanos() || estimate <= alertShare * total) {
+            return;
+        }
+        if (window.alerted.size() < MAX_ALERTS_PER_WINDOW && window.alerted.add(dimension.key + ' ' + resource.key + ' ' + item)) {
+            alertCounters.get(dimension).get(resource).increment();
+            log.warnv("Heavy hitter: {0} {1} caused {2,number,percent} of the {3} of this node in the current window"
+                    + " ({4,number,#.###} s of {5,number,#.###} s)", dimension.key, item, (double) estimate / total,
+                    resource.key, estimate / 1e9, total / 1e9);
+        }
+    }
+
+    private final class Window {
+
+        final long startNanos;
+        final Instant startedAt = Instant.now();
+        final Map<Dimension, Map<Resource, HeavyHitters>> heavyHitters = new EnumMap<>(Dimension.class);
+        final Set<String> alerted = ConcurrentHashMap.newKeySet();
+
+        Window(long startNanos) {
+            this.startNanos = startNanos;
+            for (Dimension dimension : Dimension.values()) {
+                Map<Resource, HeavyHitters> byResource = new EnumMap<>(Resource.class);
+                for (Resource resource : Resource.values()) {
+                    byResource.put(resource, new HeavyHitters(capacity, sketchWidth, sketchDepth));
+                }
+                heavyHitters.put(dimension, byResource);
+            }
+        }
+
+        WindowReport report(int n) {
+            Map<String, Map<String, ResourceReport>> dimensions = new LinkedHashMap<>();
+            heavyHitters.forEach((dimension, byResource) -> {
+                Map<String, ResourceReport> resources = new LinkedHashMap<>();
+                byResource.forEach((resource, hitters) -> resources.put(resource.key, new ResourceReport(
+                        hitters.total() / 1e9,
+                        hitters.top(n).stream()
+                                .map(entry -> new Consumer(entry.item(), entry.weight() / 1e9, entry.share()))
+                                .toList())));
+                dimensions.put(dimension.key, resources);
+            });
+            return new WindowReport(startedAt, dimensions);
+        }
+    }
+
+    /**
+     * @param window the length of the windows
+     * @param previous the last completed window, or {@code null} during the first window after startup
+     */
+    @RegisterForReflection
+    public record Report(Duration window, WindowReport current, WindowReport previous) {
+    }
+
+    /**
+     * @param dimensions the reports per dimension ({@code org}, {@code clientIp}) and resource ({@code time},
+     *                   {@code jdbc})
+     */
+    @RegisterForReflection
+    public record WindowReport(Instant startedAt, Map<String, Map<String, ResourceReport>> dimensions) {
+    }
+
+    @RegisterForReflection
+    public record ResourceReport(double totalSeconds, List<Consumer> top) {
+    }
+
+    /**
+     * @param share the fraction of the window's total of the resource
+     */
+    @RegisterForReflection
+    public record Consumer(String key, double seconds, double share) {
+    }
+}
@@ -0,0 +1,44 @@
+package dev.abstratium.core.service;
+
+import io.quarkus.runtime.annotations.RegisterForReflection;
+import org.hibernate.SessionEventListener;
+
+/**
+ * Adds the time Hibernate sessions spend executing JDBC statements and batches to the {@link RequestLoad} of
+ * the current HTTP request. Hibernate creates one instance per session, see
+ * {@code hibernate.session.events.auto} in application.properties.
+ */
+@RegisterForReflection
+public class JdbcTimeSessionListener implements SessionEventListener {
+
+    private static final long serialVersionUID = 1L;
+
+    private transient long startNanos;
+
+    @Override
+    public void jdbcExecuteStatementStart() {
+        startNanos = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcExecuteStatementEnd() {
+        record();
+    }
+
+    @Override
+    public void jdbcExecuteBatchStart() {
+        startNanos = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcExecuteBatchEnd() {
+        record();
+    }
+
+    private void record() {
+        RequestLoad load = RequestLoad.current();
+        if (load != null) {
+            load.addJdbcNanos(System.nanoTime() - startNanos);
+        }
+    }
+}
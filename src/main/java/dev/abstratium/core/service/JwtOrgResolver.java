@@ -3,23 +3,30 @@ package dev.abstratium.core.service;
 import io.quarkus.arc.Arc;
 import io.quarkus.hibernate.orm.PersistenceUnitExtension;
 import io.quarkus.hibernate.orm.runtime.tenant.TenantResolver;
-import jakarta.enterprise.context.RequestScoped;
+import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.enterprise.inject.Instance;
 import jakarta.inject.Inject;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.jboss.logging.Logger;
 
 /**
- * Tenant resolver for discriminator-based multitenancy.
- * Reads the {@code orgId} from the request-scoped {@link CurrentOrgContext}
- * populated by {@link dev.abstratium.abstrauth.filter.OrgIdResolutionFilter}.
+ * Tenant resolver for multitenancy. The resolved orgId is both the discriminator value of entities
+ * with a {@code @TenantId} column and, via {@link TenantDirectory}, the key that
+ * {@link ShardConnectionResolver} uses to select the shard of the session.
+ * During HTTP requests, reads the {@code orgId} from the {@link RequestTenant} that
+ * {@link dev.abstratium.core.filter.OrgIdRouteFilter} stores in the Vert.x duplicated context,
+ * which requires no CDI lookup per session and also covers routes that are not JAX-RS resources.
+ * An org set with {@link TenantContext}, e.g. for scheduled jobs or tasks fanned out across threads,
+ * takes precedence over the org of the request. Outside of HTTP requests, reads it from the
+ * request-scoped {@link CurrentOrgContext}, if a request context is active.
  * Falls back to the default org when no valid context is present (e.g. public endpoints,
- * OAuth2 token exchange, sign-in flow, startup, scheduled tasks). The fallback logs at INFO
- * unless the caller has set {@link CurrentOrgContext#setIgnore(boolean)} to suppress expected
- * fallbacks (e.g. non-multitenancy entity access).
+ * OAuth2 token exchange, sign-in flow, startup, scheduled tasks). Fallbacks are counted and
+ * logged in aggregate by {@link TenantFallbackTelemetry}, unless the caller has set
+ * {@link CurrentOrgContext#setIgnore(boolean)} to suppress expected fallbacks
+ * (e.g. non-multitenancy entity access).
  */
 @PersistenceUnitExtension
-@RequestScoped
+@ApplicationScoped
 public class JwtOrgResolver implements TenantResolver {
 
     private static final Logger log = Logger.getLogger(JwtOrgResolver.class);
@@ -27,11 +34,14 @@ public class JwtOrgResolver implements TenantResolver {
     @ConfigProperty(name = "default.org.uuid")
     String defaultOrgId;
 
-    // JAX-RS filter path: OrgIdResolutionFilter resolves the orgId from the
-    // authenticated JWT (OIDC cookie or Bearer token) and stores it here.
+    // Outside of HTTP requests, e.g. code that activates a request context
+    // itself and fills the CurrentOrgContext.
     @Inject
     Instance<CurrentOrgContext> currentOrgContextInstance;
 
+    @Inject
+    TenantFallbackTelemetry fallbackTelemetry;
+
     @Override
     public String getDefaultTenantId() {
         return defaultOrgId;
@@ -39,6 +49,26 @@ public class JwtOrgResolver implements TenantResolver {
 
     @Override
     public String resolveTenantId() {
+        // explicitly running as an org, possibly propagated from another thread by TenantThreadContextProvider
+        String runAs = TenantContext.currentOrgId();
+        if (runAs != null) {
+            return runAs;
+        }
+
+        // HTTP request path: resolved once per request by OrgIdRouteFilter,
+        // or by OrgIdResolutionFilter for identities established later
+        RequestTenant tenant = RequestTenant.current();
+        if (tenant != null) {
+            if (tenant.getOrgId() != null) {
+                return tenant.getOrgId();
+            }
+            return fallbackToDefault("request tenant not resolved", tenant.getRequestPath(), tenant.getRequestMethod(),
+                    tenant.getContextDescription(), tenant.isIgnore());
+        }
+        return resolveFromRequestContext();
+    }
+
+    private String resolveFromRequestContext() {
         String requestPath = null;
         String requestMethod = null;
         String description = null;
@@ -48,9 +78,7 @@ public class JwtOrgResolver implements TenantResolver {
                 return fallbackToDefault("request context not active", requestPath, requestMethod, description, ignore);
             }
 
-            // JAX-RS filter path: orgId was resolved from OIDC cookie or
-            // Bearer token by OrgIdResolutionFilter and stored in the
-            // request-scoped CurrentOrgContext.
+            // the orgId was stored in the request-scoped CurrentOrgContext
             if (currentOrgContextInstance != null && currentOrgContextInstance.isResolvable()) {
                 CurrentOrgContext ctx = currentOrgContextInstance.get();
                 if (ctx != null) {
@@ -64,15 +92,15 @@ public class JwtOrgResolver implements TenantResolver {
                 }
             }
         } catch (Exception e) {
-            return fallbackToDefault("exception: " + e.getMessage(), requestPath, requestMethod, description, ignore);
+            log.debug("Failed to resolve the tenant from the request context", e);
+            return fallbackToDefault("exception: " + e.getClass().getSimpleName(), requestPath, requestMethod, description, ignore);
         }
         return fallbackToDefault("request tenant not resolved", requestPath, requestMethod, description, ignore);
     }
 
     private String fallbackToDefault(String reason, String requestPath, String requestMethod, String contextDescription, boolean ignore) {
         if(!ignore) {
-            log.infov("Falling back to defaultOrgId (reason={0}, method={1}, path={2}, context={3})",
-                    reason, requestMethod, requestPath, contextDescription);
+            fallbackTelemetry.record(reason, requestMethod, requestPath, contextDescription);
         }
         return defaultOrgId;
     }
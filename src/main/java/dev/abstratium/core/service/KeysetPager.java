@@ -0,0 +1,152 @@
+package dev.abstratium.core.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.abstratium.core.boundary.ErrorCode;
+import dev.abstratium.core.boundary.FunctionalException;
+import io.quarkus.runtime.annotations.RegisterForReflection;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.metamodel.EntityType;
+import jakarta.ws.rs.core.Response;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/**
+ * Keyset pagination of JPQL queries: each page continues after the sort key of the last row of the previous
+ * page, so the database seeks into the index instead of counting and skipping rows as with {@code OFFSET}.
+ *
+ * <p>Pages are sorted ascending by the given attributes, the last of which must be unique, so that the order
+ * is stable. The attributes should be the trailing columns of an index that starts with {@code org_id}, e.g.
+ * the primary key of a tenant table, since Hibernate adds the {@code org_id} of the current tenant to every
+ * query. The position is handed to clients as an opaque cursor, the Base64URL encoded JSON array of the sort
+ * key of the last row. The size of pages is {@code abstratium.paging.default-limit} unless clients ask for
+ * another, up to {@code abstratium.paging.max-limit}.</p>
+ */
+@ApplicationScoped
+public class KeysetPager {
+
+    private static final String ALIAS = "e";
+
+    @ConfigProperty(name = "abstratium.paging.default-limit", defaultValue = "50")
+    int defaultLimit;
+
+    @ConfigProperty(name = "abstratium.paging.max-limit", defaultValue = "500")
+    int maxLimit;
+
+    @Inject
+    EntityManager em;
+
+    @Inject
+    ObjectMapper objectMapper;
+
+    /**
+     * Reads one page of all entities of the type that are visible to the current tenant.
+     *
+     * @param sortAttributes the attributes to sort by, ending with a unique one
+     * @param cursor the cursor of the previous page, or {@code null} for the first page
+     * @param limit the requested page size, or {@code null} for the default
+     * @param customizer applied to the query before it is run, e.g. to make it cacheable
+     * @throws FunctionalException with status 400 if the cursor or limit is invalid
+     */
+    public <T> Page<T> page(Class<T> type, List<String> sortAttributes, String cursor, Integer limit,
+                            UnaryOperator<TypedQuery<Object[]>> customizer) {
+        int size = limit(limit);
+        EntityType<T> entity = em.getMetamodel().entity(type);
+        List<Object> after = cursor != null ? decode(cursor, entity, sortAttributes) : null;
+
+        StringBuilder jpql = new StringBuilder("SELECT ").append(ALIAS);
+        sortAttributes.forEach(attribute -> jpql.append(", ").append(ALIAS).append('.').append(attribute));
+        jpql.append(" FROM ").append(entity.getName()).append(' ').append(ALIAS);
+        if (after != null) {
+            jpql.append(" WHERE ").append(after(sortAttributes));
+        }
+        jpql.append(" ORDER BY ").append(String.join(", ", sortAttributes.stream().map(a -> ALIAS + '.' + a).toList()));
+
+        TypedQuery<Object[]> query = em.createQuery(jpql.toString(), Object[].class);
+        if (after != null) {
+            for (int i = 0; i < after.size(); i++) {
+                query.setParameter("k" + i, after.get(i));
+            }
+        }
+        // one more than the page, to know whether there is a next page
+        List<Object[]> rows = customizer.apply(query.setMaxResults(size + 1)).getResultList();
+
+        List<T> items = new ArrayList<>(Math.min(rows.size(), size));
+        for (int i = 0; i < Math.min(rows.size(), size); i++) {
+            items.add(type.cast(rows.get(i)[0]));
+        }
+        String next = rows.size() > size ? encode(Arrays.asList(rows.get(size - 1)).subList(1, sortAttributes.size() + 1)) : null;
+        return new Page<>(items, next);
+    }
+
+    private int limit(Integer limit) {
+        if (limit == null) {
+            return Math.min(defaultLimit, maxLimit);
+        }
+        if (limit < 1) {
+            throw new FunctionalException(Response.Status.BAD_REQUEST, ErrorCode.INVALID_FORMAT,
+                    "limit must be at least 1");
+        }
+        return Math.min(limit, maxLimit);
+    }
+
+    /**
+     * @return {@code a > :k0 OR (a = :k0 AND b > :k1) OR ...}
+     */
+    private static String after(List<String> sortAttributes) {
+        List<String> alternatives = new ArrayList<>();
+        for (int i = 0; i < sortAttributes.size(); i++) {
+            StringBuilder alternative = new StringBuilder("(");
+            for (int j = 0; j < i; j++) {
+                alternative.append(ALIAS).append('.').append(sortAttributes.get(j)).append(" = :k").append(j).append(" AND ");
+            }
+            alternative.append(ALIAS).append('.').append(sortAttributes.get(i)).append(" > :k").append(i).append(')');
+            alternatives.add(alternative.toString());
+        }
+        return String.join(" OR ", alternatives);
+    }
+
+    private String encode(List<Object> key) {
+        try {
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(objectMapper.writeValueAsBytes(key));
+        } catch (Exception e) {
+            throw new IllegalStateException("Sort key " + key + " cannot be written as JSON", e);
+        }
+    }
+
+    private List<Object> decode(String cursor, EntityType<?> entity, List<String> sortAttributes) {
+        try {
+            List<JsonNode> values = objectMapper.readValue(
+                    new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8), new TypeReference<>() {
+                    });
+            if (values.size() != sortAttributes.size()) {
+                throw new IllegalArgumentException("expected " + sortAttributes.size() + " values");
+            }
+            List<Object> key = new ArrayList<>(values.size());
+            for (int i = 0; i < values.size(); i++) {
+                Class<?> javaType = entity.getAttribute(sortAttributes.get(i)).getJavaType();
+                key.add(objectMapper.treeToValue(values.get(i), javaType));
+            }
+            return key;
+        } catch (Exception e) {
+            throw new FunctionalException(Response.Status.BAD_REQUEST, ErrorCode.INVALID_FORMAT, "Invalid cursor");
+        }
+    }
+
+    /**
+     * @param next the cursor of the next page, or {@code null} if this is the last page
+     */
+    @RegisterForReflection
+    public record Page<T>(List<T> items, String next) {
+    }
+}
@@ -0,0 +1,28 @@
+package dev.abstratium.core.service;
+
+import io.quarkus.arc.Arc;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+/**
+ * Supplies {@code orgId} from the request-scoped {@link CurrentOrgContext}.
+ */
+@ApplicationScoped
+public class OrgIdToggleContextProvider implements ToggleContextProvider {
+
+    @Inject
+    CurrentOrgContext currentOrgContext;
+
+    @Override
+    public String key() {
+        return "orgId";
+    }
+
+    @Override
+    public String resolve() {
+        if (!Arc.container().requestContext().isActive()) {
+            return null;
+        }
+        return currentOrgContext.getOrgId();
+    }
+}
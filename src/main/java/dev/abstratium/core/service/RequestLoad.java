@@ -0,0 +1,59 @@
+package dev.abstratium.core.service;
+
+import io.smallrye.common.vertx.VertxContext;
+import io.vertx.core.Context;
+import io.vertx.core.Vertx;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Database time spent by the current HTTP request, stored in the Vert.x duplicated context of the request
+ * like {@link RequestTenant}, so that it is shared by all threads working on the request. Started by
+ * {@link dev.abstratium.core.filter.TenantMetricsFilter} and fed by {@link JdbcTimeSessionListener}.
+ */
+public final class RequestLoad {
+
+    private static final String KEY = RequestLoad.class.getName();
+
+    private final LongAdder jdbcNanos = new LongAdder();
+
+    private RequestLoad() {
+    }
+
+    /**
+     * @return the load of the HTTP request being handled, or {@code null} outside of an HTTP request
+     */
+    public static RequestLoad current() {
+        Context context = Vertx.currentContext();
+        if (context == null || !VertxContext.isDuplicatedContext(context)) {
+            return null;
+        }
+        return context.getLocal(KEY);
+    }
+
+    /**
+     * Creates the load of the HTTP request being handled on the current duplicated context.
+     *
+     * @return the new load, or {@code null} if the current thread is not handling an HTTP request
+     */
+    public static RequestLoad start() {
+        Context context = Vertx.currentContext();
+        if (context == null || !VertxContext.isDuplicatedContext(context)) {
+            return null;
+        }
+        RequestLoad load = new RequestLoad();
+        context.putLocal(KEY, load);
+        return load;
+    }
+
+    public void addJdbcNanos(long nanos) {
+        jdbcNanos.add(nanos);
+    }
+
+    /**
+     * @return the time spent executing JDBC statements so far
+     */
+    public long getJdbcNanos() {
+        return jdbcNanos.sum();
+    }
+}
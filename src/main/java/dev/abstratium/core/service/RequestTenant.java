@@ -0,0 +1,93 @@
+package dev.abstratium.core.service;
+
+import io.smallrye.common.vertx.VertxContext;
+import io.vertx.core.Context;
+import io.vertx.core.Vertx;
+
+/**
+ * Tenant of the current HTTP request, stored in the Vert.x duplicated context of the request by
+ * {@link dev.abstratium.core.filter.OrgIdRouteFilter}. The duplicated context follows the request
+ * onto worker and virtual threads, so {@link JwtOrgResolver} can read the tenant of every Hibernate
+ * session opened while handling the request, including on routes that are not JAX-RS resources,
+ * without any CDI lookups.
+ *
+ * <p>{@link CurrentOrgContext} mirrors its changes into this object, so the two stay in sync for
+ * code written against the request-scoped bean.</p>
+ */
+public final class RequestTenant {
+
+    private static final String KEY = RequestTenant.class.getName();
+
+    private final String requestMethod;
+    private final String requestPath;
+    private volatile String orgId;
+    private volatile String contextDescription;
+    private volatile boolean ignore;
+
+    private RequestTenant(String requestMethod, String requestPath) {
+        this.requestMethod = requestMethod;
+        this.requestPath = requestPath;
+    }
+
+    /**
+     * @return the tenant of the HTTP request being handled, or {@code null} outside of an HTTP request,
+     * e.g. during startup or in scheduled tasks
+     */
+    public static RequestTenant current() {
+        Context context = Vertx.currentContext();
+        if (context == null || !VertxContext.isDuplicatedContext(context)) {
+            return null;
+        }
+        return context.getLocal(KEY);
+    }
+
+    /**
+     * Creates the tenant of the HTTP request being handled on the current duplicated context.
+     *
+     * @return the new tenant, or {@code null} if the current thread is not handling an HTTP request
+     */
+    public static RequestTenant start(String requestMethod, String requestPath) {
+        Context context = Vertx.currentContext();
+        if (context == null || !VertxContext.isDuplicatedContext(context)) {
+            return null;
+        }
+        RequestTenant tenant = new RequestTenant(requestMethod, requestPath);
+        context.putLocal(KEY, tenant);
+        return tenant;
+    }
+
+    /**
+     * @return the orgId of the authenticated caller, or {@code null} if it is not known
+     */
+    public String getOrgId() {
+        return orgId;
+    }
+
+    public void setOrgId(String orgId) {
+        this.orgId = orgId == null || orgId.isBlank() ? null : orgId;
+    }
+
+    public String getRequestMethod() {
+        return requestMethod;
+    }
+
+    public String getRequestPath() {
+        return requestPath;
+    }
+
+    public String getContextDescription() {
+        return contextDescription;
+    }
+
+    public void setContextDescription(String contextDescription) {
+        this.contextDescription = contextDescription;
+    }
+
+    public boolean isIgnore() {
+        return ignore;
+    }
+
+    public void setIgnore(boolean ignore) {
+        this.ignore = ignore;
+    }
+}
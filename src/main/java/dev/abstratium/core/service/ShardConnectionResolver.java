@@ -0,0 +1,40 @@
+package dev.abstratium.core.service;
+
+import io.quarkus.hibernate.orm.PersistenceUnitExtension;
+import io.quarkus.hibernate.orm.runtime.customized.QuarkusConnectionProvider;
+import io.quarkus.hibernate.orm.runtime.tenant.TenantConnectionResolver;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.hibernate.engine.jdbc.connections.spi.ConnectionProvider;
+import org.jboss.logging.Logger;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Routes each Hibernate session to the shard of its tenant.
+ *
+ * <p>The tenant identifier that {@link JwtOrgResolver} resolves is the orgId. It is used as the
+ * discriminator value of entities with a {@code @TenantId} column, and this resolver maps it to the
+ * datasource of the org's shard using the {@link TenantDirectory}. Orgs that share a shard share one
+ * connection provider, i.e. one connection pool.</p>
+ */
+@PersistenceUnitExtension
+@ApplicationScoped
+public class ShardConnectionResolver implements TenantConnectionResolver {
+
+    private static final Logger log = Logger.getLogger(ShardConnectionResolver.class);
+
+    @Inject
+    TenantDirectory tenantDirectory;
+
+    private final Map<String, ConnectionProvider> providersByShard = new ConcurrentHashMap<>();
+
+    @Override
+    public ConnectionProvider resolve(String tenantId) {
+        String shard = tenantDirectory.shardOf(tenantId);
+        log.debugv("Routing tenant {0} to shard {1}", tenantId, shard);
+        return providersByShard.computeIfAbsent(shard,
+                name -> new QuarkusConnectionProvider(tenantDirectory.dataSource(name)));
+    }
+}
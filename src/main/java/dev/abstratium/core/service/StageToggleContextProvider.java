@@ -0,0 +1,24 @@
+package dev.abstratium.core.service;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+/**
+ * Supplies {@code stage}, see {@link StageService}.
+ */
+@ApplicationScoped
+public class StageToggleContextProvider implements ToggleContextProvider {
+
+    @Inject
+    StageService stageService;
+
+    @Override
+    public String key() {
+        return "stage";
+    }
+
+    @Override
+    public String resolve() {
+        return stageService.getStage();
+    }
+}
@@ -0,0 +1,45 @@
+package dev.abstratium.core.service;
+
+/**
+ * A job that has to process the data of every org, run by {@link TenantBatchRunner}. Implementations are
+ * CDI beans, so that they can be started by name on the management interface.
+ *
+ * <p>The runner calls {@link #processChunk(String, int)} repeatedly for each org, as that org and in a new
+ * transaction, which also stores the returned checkpoint. A chunk must therefore only write to the database
+ * of the org, and continue exactly after the given checkpoint, so that an interrupted run resumes where the
+ * last committed chunk ended.</p>
+ */
+public interface TenantBatchJob {
+
+    /**
+     * @return the unique name of the job, at most 100 characters, which also identifies its checkpoints
+     */
+    String name();
+
+    /**
+     * @return the table whose {@code org_id} column lists the orgs to process, on every shard
+     */
+    String tenantTable();
+
+    /**
+     * Processes the next chunk of the current org.
+     *
+     * @param checkpoint the checkpoint returned by the previous chunk of the org, or {@code null} for the first chunk
+     * @param chunkSize the maximum number of items to process
+     * @return the number of items processed and the checkpoint to continue from
+     */
+    Chunk processChunk(String checkpoint, int chunkSize);
+
+    /**
+     * The result of one chunk.
+     *
+     * @param checkpoint the checkpoint to pass to the next chunk, at most 255 characters, or {@code null} if
+     *                   all items of the org have been processed
+     */
+    record Chunk(int items, String checkpoint) {
+
+        public static Chunk last(int items) {
+            return new Chunk(items, null);
+        }
+    }
+}
@@ -0,0 +1,321 @@
+package dev.abstratium.core.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.runtime.annotations.RegisterForReflection;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.inject.Any;
+import jakarta.enterprise.inject.Instance;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.context.ManagedExecutor;
+import org.eclipse.microprofile.context.ThreadContext;
+import org.jboss.logging.Logger;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Runs {@link TenantBatchJob}s for every org, in parallel.
+ *
+ * <p>The orgs are listed from the job's tenant table on every shard of the {@link TenantDirectory}. Their work
+ * is fanned out across a pool of {@code abstratium.batch.parallelism} threads; each task runs as its org with
+ * {@link TenantContext}, and processes the org in chunks of {@code abstratium.batch.chunk-size} items, each
+ * in its own transaction. The checkpoint of the org is stored in {@code T_batch_checkpoint} in the same
+ * transaction as the chunk, on the org's shard, so a chunk and its checkpoint are committed together.</p>
+ *
+ * <p>A failing org is logged and does not stop the other orgs. If the run completes without failures,
+ * the checkpoints are deleted and the next run starts from scratch; otherwise they are kept, and the next run
+ * of the job skips the completed orgs and resumes the others after their last committed chunk. Processed items
+ * are counted in {@value #ITEMS_METRIC_NAME}, and the progress of the runs is reported by {@link #statuses()}.</p>
+ */
+@ApplicationScoped
+public class TenantBatchRunner {
+
+    private static final Logger log = Logger.getLogger(TenantBatchRunner.class);
+
+    static final String ITEMS_METRIC_NAME = "abstratium.batch.items";
+    private static final Pattern TABLE_NAME = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*");
+
+    @ConfigProperty(name = "abstratium.batch.parallelism", defaultValue = "4")
+    int parallelism;
+
+    @ConfigProperty(name = "abstratium.batch.chunk-size", defaultValue = "500")
+    int chunkSize;
+
+    @Inject
+    TenantDirectory tenantDirectory;
+
+    @Inject
+    EntityManager em;
+
+    @Inject
+    @Any
+    Instance<TenantBatchJob> jobs;
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    private final Map<String, Run> runs = new ConcurrentHashMap<>();
+
+    /**
+     * Starts the job bean with the given name.
+     *
+     * @throws IllegalArgumentException if there is no such job
+     * @throws IllegalStateException if the job is already running
+     */
+    public RunStatus start(String jobName) {
+        TenantBatchJob job = job(jobName)
+                .orElseThrow(() -> new IllegalArgumentException("Unknown batch job " + jobName));
+        return start(job).status();
+    }
+
+    /**
+     * Starts the job in the background.
+     *
+     * @return the run, which completes when all orgs have been processed
+     * @throws IllegalStateException if the job is already running
+     */
+    public synchronized Run start(TenantBatchJob job) {
+        if (!TABLE_NAME.matcher(job.tenantTable()).matches()) {
+            throw new IllegalArgumentException("Invalid tenant table " + job.tenantTable());
+        }
+        Run previous = runs.get(job.name());
+        if (previous != null && !previous.completion.isDone()) {
+            throw new IllegalStateException("Batch job " + job.name() + " is already running");
+        }
+        Run run = new Run(job.name());
+        runs.put(job.name(), run);
+        Thread.ofVirtual().name("batch-" + job.name()).start(() -> execute(job, run));
+        return run;
+    }
+
+    /**
+     * @return the names of the job beans
+     */
+    public Set<String> jobNames() {
+        Set<String> names = new TreeSet<>();
+        jobs.forEach(job -> names.add(job.name()));
+        return names;
+    }
+
+    /**
+     * @return the progress of the current or last run of each job since startup
+     */
+    public List<RunStatus> statuses() {
+        List<RunStatus> statuses = new ArrayList<>();
+        runs.values().forEach(run -> statuses.add(run.status()));
+        statuses.sort(Comparator.comparing(RunStatus::job));
+        return statuses;
+    }
+
+    /**
+     * @return the progress of the current or last run of the job since startup
+     */
+    public Optional<RunStatus> status(String jobName) {
+        return Optional.ofNullable(runs.get(jobName)).map(Run::status);
+    }
+
+    private Optional<TenantBatchJob> job(String jobName) {
+        for (TenantBatchJob job : jobs) {
+            if (job.name().equals(jobName)) {
+                return Optional.of(job);
+            }
+        }
+        return Optional.empty();
+    }
+
+    private void execute(TenantBatchJob job, Run run) {
+        ManagedExecutor executor = ManagedExecutor.builder()
+                .maxAsync(parallelism)
+                .propagated(ThreadContext.NONE)
+                .cleared(ThreadContext.ALL_REMAINING)
+                .build();
+        try {
+            List<String> orgIds = listTenants(job.tenantTable());
+            run.tenants.set(orgIds.size());
+            log.infov("Batch job {0}: processing {1} orgs with {2} threads", job.name(), orgIds.size(), parallelism);
+            Counter items = Counter.builder(ITEMS_METRIC_NAME)
+                    .description("Items processed by batch jobs")
+                    .tag("job", job.name())
+                    .register(meterRegistry);
+            CompletableFuture.allOf(orgIds.stream()
+                    .map(orgId -> executor.runAsync(() -> runTenant(job, orgId, run, items)))
+                    .toArray(CompletableFuture[]::new)).join();
+            if (run.failedOrgIds.isEmpty()) {
+                orgIds.forEach(orgId -> TenantContext.runAs(orgId,
+                        () -> QuarkusTransaction.requiringNew().run(() -> deleteCheckpoint(job.name(), orgId))));
+                run.finish(State.COMPLETED);
+            } else {
+                log.warnv("Batch job {0}: {1} orgs failed, their checkpoints are kept for the next run",
+                        job.name(), run.failedOrgIds.size());
+                run.finish(State.FAILED);
+            }
+        } catch (Exception e) {
+            log.errorv(e, "Batch job {0} failed", job.name());
+            run.finish(State.FAILED);
+        } finally {
+            executor.shutdown();
+        }
+        log.infov("Batch job {0} finished: {1}", job.name(), run.status());
+    }
+
+    private void runTenant(TenantBatchJob job, String orgId, Run run, Counter items) {
+        try {
+            TenantContext.runAs(orgId, () -> {
+                Checkpoint checkpoint = QuarkusTransaction.requiringNew().call(() -> loadCheckpoint(job.name(), orgId));
+                while (!checkpoint.completed()) {
+                    Checkpoint from = checkpoint;
+                    checkpoint = QuarkusTransaction.requiringNew().call(() ->
+                            saveCheckpoint(job.name(), orgId, from, job.processChunk(from.lastKey(), chunkSize)));
+                    long processed = checkpoint.items() - from.items();
+                    run.items.addAndGet(processed);
+                    items.increment(processed);
+                }
+            });
+            run.tenantsCompleted.incrementAndGet();
+        } catch (Exception e) {
+            log.errorv(e, "Batch job {0} failed for org {1}", job.name(), orgId);
+            run.failedOrgIds.add(orgId);
+        }
+    }
+
+    List<String> listTenants(String table) throws SQLException {
+        Set<String> orgIds = new TreeSet<>();
+        for (String shard : tenantDirectory.shards()) {
+            try (Connection connection = tenantDirectory.dataSource(shard).getConnection();
+                 Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery("SELECT DISTINCT org_id FROM " + table)) {
+                while (resultSet.next()) {
+                    String orgId = resultSet.getString(1);
+                    // rows left behind on a shard the org has been moved away from are not processed
+                    if (shard.equals(tenantDirectory.shardOf(orgId))) {
+                        orgIds.add(orgId);
+                    }
+                }
+            }
+        }
+        return new ArrayList<>(orgIds);
+    }
+
+    private Checkpoint loadCheckpoint(String jobName, String orgId) {
+        List<?> rows = em.createNativeQuery(
+                        "SELECT last_key, items, completed FROM T_batch_checkpoint WHERE job_name = ?1 AND org_id = ?2")
+                .setParameter(1, jobName)
+                .setParameter(2, orgId)
+                .getResultList();
+        if (rows.isEmpty()) {
+            return new Checkpoint(null, 0, false, false);
+        }
+        Object[] row = (Object[]) rows.get(0);
+        return new Checkpoint((String) row[0], ((Number) row[1]).longValue(), (Boolean) row[2], true);
+    }
+
+    private Checkpoint saveCheckpoint(String jobName, String orgId, Checkpoint from, TenantBatchJob.Chunk chunk) {
+        Checkpoint to = new Checkpoint(chunk.checkpoint(), from.items() + chunk.items(), chunk.checkpoint() == null, true);
+        String sql = from.stored()
+                ? "UPDATE T_batch_checkpoint SET last_key = ?1, items = ?2, completed = ?3, updated_at = ?4"
+                        + " WHERE job_name = ?5 AND org_id = ?6"
+                : "INSERT INTO T_batch_checkpoint (last_key, items, completed, updated_at, job_name, org_id)"
+                        + " VALUES (?1, ?2, ?3, ?4, ?5, ?6)";
+        em.createNativeQuery(sql)
+                .setParameter(1, to.lastKey())
+                .setParameter(2, to.items())
+                .setParameter(3, to.completed())
+                .setParameter(4, Timestamp.from(Instant.now()))
+                .setParameter(5, jobName)
+                .setParameter(6, orgId)
+                .executeUpdate();
+        return to;
+    }
+
+    private void deleteCheckpoint(String jobName, String orgId) {
+        em.createNativeQuery("DELETE FROM T_batch_checkpoint WHERE job_name = ?1 AND org_id = ?2")
+                .setParameter(1, jobName)
+                .setParameter(2, orgId)
+                .executeUpdate();
+    }
+
+    private record Checkpoint(String lastKey, long items, boolean completed, boolean stored) {
+    }
+
+    public enum State {
+        RUNNING, COMPLETED, FAILED
+    }
+
+    /**
+     * A run of a job.
+     */
+    public static final class Run {
+
+        private final String job;
+        private final Instant startedAt = Instant.now();
+        private final long startNanos = System.nanoTime();
+        private final AtomicInteger tenants = new AtomicInteger();
+        private final AtomicInteger tenantsCompleted = new AtomicInteger();
+        private final Set<String> failedOrgIds = ConcurrentHashMap.newKeySet();
+        private final AtomicLong items = new AtomicLong();
+        private final CompletableFuture<RunStatus> completion = new CompletableFuture<>();
+        private volatile State state = State.RUNNING;
+        private volatile Instant finishedAt;
+        private volatile long durationNanos;
+
+        private Run(String job) {
+            this.job = job;
+        }
+
+        /**
+         * @return a future that completes with the final status once the run has finished
+         */
+        public CompletableFuture<RunStatus> completion() {
+            return completion;
+        }
+
+        public RunStatus status() {
+            long nanos = finishedAt != null ? durationNanos : System.nanoTime() - startNanos;
+            long processed = items.get();
+            double itemsPerSecond = nanos > 0 ? processed * 1e9 / nanos : 0;
+            return new RunStatus(job, state, startedAt, finishedAt, Duration.ofNanos(nanos).toMillis(), tenants.get(),
+                    tenantsCompleted.get(), new TreeSet<>(failedOrgIds), processed, Math.round(itemsPerSecond * 10) / 10.0);
+        }
+
+        private void finish(State finalState) {
+            durationNanos = System.nanoTime() - startNanos;
+            finishedAt = Instant.now();
+            state = finalState;
+            completion.complete(status());
+        }
+    }
+
+    /**
+     * Progress of a run.
+     *
+     * @param finishedAt when the run finished, or {@code null} while it is running
+     * @param tenants the number of orgs to process, {@code 0} until they have been listed
+     * @param itemsPerSecond the average throughput of the run
+     */
+    @RegisterForReflection
+    public record RunStatus(String job, State state, Instant startedAt, Instant finishedAt, long durationMillis,
+                            int tenants, int tenantsCompleted, Set<String> failedOrgIds, long items,
+                            double itemsPerSecond) {
+    }
+}
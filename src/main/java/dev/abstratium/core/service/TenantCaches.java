@@ -0,0 +1,152 @@
+package dev.abstratium.core.service;
+
+import io.quarkus.runtime.annotations.RegisterForReflection;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.jpa.HibernateHints;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.jboss.logging.Logger;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Tenant-aware use of Hibernate's second-level and query caches.
+ *
+ * <p>Entity cache keys of entities with a {@code @TenantId} column already contain the tenant identifier,
+ * so an org never reads another org's cached entities; the keys of cached query results contain it too.
+ * Query results are cached in a fixed number of regions per query ({@code region/bucket}), chosen by the
+ * hash of the org, so that writes of an org only evict the cached results of the orgs sharing its bucket
+ * and {@link #evictTenant(String)} can drop all cached results of an org. The number of regions stays
+ * bounded however many orgs there are, as Hibernate never removes a region once it was created. Hibernate
+ * additionally invalidates cached query results whenever one of the queried tables is written.</p>
+ *
+ * <p>Sizes and expiry of entity regions are configured per entity with
+ * {@code quarkus.hibernate-orm.cache."fully.qualified.Entity".*}. {@link #statistics()} reports hits,
+ * misses, puts and evictions per region; the Hibernate metrics of the regions are also exported to
+ * Micrometer.</p>
+ */
+@ApplicationScoped
+public class TenantCaches {
+
+    private static final Logger log = Logger.getLogger(TenantCaches.class);
+
+    static final char TENANT_SEPARATOR = '/';
+
+    @Inject
+    EntityManager em;
+
+    @Inject
+    SessionFactory sessionFactory;
+
+    @Inject
+    TransactionSynchronizationRegistry transactionSynchronizationRegistry;
+
+    @ConfigProperty(name = "abstratium.cache.query-region-buckets", defaultValue = "16")
+    int queryRegionBuckets;
+
+    /** Query regions with cached results, without the bucket. */
+    private final Set<String> queryRegions = ConcurrentHashMap.newKeySet();
+    private final Map<String, LongAdder> evictionsByRegion = new ConcurrentHashMap<>();
+
+    /**
+     * Caches the results of the query in the current tenant's part of the given region.
+     */
+    public <T> TypedQuery<T> cacheable(TypedQuery<T> query, String region) {
+        queryRegions.add(region);
+        return query.setHint(HibernateHints.HINT_CACHEABLE, true)
+                .setHint(HibernateHints.HINT_CACHE_REGION, tenantRegion(region, currentTenant()));
+    }
+
+    /**
+     * Evicts the current tenant's cached results of the given query region once the current transaction
+     * has committed, or right away if there is no transaction. Call it after writes that change the results.
+     */
+    public void evictQueriesAfterCommit(String region) {
+        String tenantRegion = tenantRegion(region, currentTenant());
+        if (transactionSynchronizationRegistry.getTransactionStatus() != Status.STATUS_ACTIVE) {
+            evictQueryRegion(tenantRegion);
+            return;
+        }
+        transactionSynchronizationRegistry.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                evictQueryRegion(tenantRegion);
+            }
+        });
+    }
+
+    /**
+     * Evicts all cached query results of the given org, and of the orgs sharing its buckets, e.g. after its
+     * data was changed with native SQL.
+     */
+    public void evictTenant(String orgId) {
+        log.infov("Evicting the cached query results of org {0}", orgId);
+        queryRegions.forEach(region -> evictQueryRegion(tenantRegion(region, orgId)));
+    }
+
+    /**
+     * @return hits, misses, puts and evictions per second-level and query cache region
+     */
+    public List<RegionStatistics> statistics() {
+        Statistics statistics = sessionFactory.getStatistics();
+        List<RegionStatistics> result = new ArrayList<>();
+        for (String region : statistics.getSecondLevelCacheRegionNames()) {
+            CacheRegionStatistics stats = statistics.getCacheRegionStatistics(region);
+            if (stats == null) {
+                continue;
+            }
+            LongAdder evictions = evictionsByRegion.get(region);
+            result.add(new RegionStatistics(region, stats.getHitCount(), stats.getMissCount(), stats.getPutCount(),
+                    evictions != null ? evictions.sum() : 0, stats.getElementCountInMemory()));
+        }
+        result.sort(Comparator.comparing(RegionStatistics::region));
+        return result;
+    }
+
+    /**
+     * @return the region in which the results of the query are cached for the org
+     */
+    String tenantRegion(String region, String orgId) {
+        return region + TENANT_SEPARATOR + Math.floorMod(orgId.hashCode(), queryRegionBuckets);
+    }
+
+    private void evictQueryRegion(String tenantRegion) {
+        sessionFactory.getCache().evictQueryRegion(tenantRegion);
+        evictionsByRegion.computeIfAbsent(tenantRegion, r -> new LongAdder()).increment();
+        log.debugv("Evicted query region {0}", tenantRegion);
+    }
+
+    private String currentTenant() {
+        return String.valueOf(em.unwrap(Session.class).getTenantIdentifierValue());
+    }
+
+    /**
+     * Statistics of one cache region since startup.
+     *
+     * @param evictions the number of times the region was evicted by {@link TenantCaches}
+     * @param elementsInMemory the number of entries currently in the region, or a negative number if unknown
+     */
+    @RegisterForReflection
+    public record RegionStatistics(String region, long hits, long misses, long puts, long evictions,
+                                   long elementsInMemory) {
+    }
+}
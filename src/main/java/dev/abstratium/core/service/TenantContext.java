@@ -0,0 +1,92 @@
+package dev.abstratium.core.service;
+
+import io.quarkus.arc.Arc;
+import io.quarkus.arc.ManagedContext;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Runs work as a given org, independent of the HTTP request that may or may not be in progress, e.g. in
+ * scheduled jobs, or in tasks that fan out the work of several orgs across threads.
+ *
+ * <p>The org is bound to the current thread for the duration of {@link #runAs(String, Runnable)} and
+ * {@link #callAs(String, Callable)}, and takes precedence over the org of the HTTP request in
+ * {@link JwtOrgResolver} and {@link CurrentOrgContext}. If no request context is active, one is activated
+ * for the duration of the task, so that request-scoped beans such as the {@code EntityManager} can be used.</p>
+ *
+ * <p>{@link TenantThreadContextProvider} captures the org, whether set here or resolved for the HTTP request,
+ * when a task is handed to a {@code ManagedExecutor} or wrapped with a {@code ThreadContext}, and restores it
+ * on the thread that runs the task. Work started on plain threads or with the default executor of
+ * {@code CompletableFuture} is not covered and must call {@link #runAs(String, Runnable)} itself.</p>
+ */
+public final class TenantContext {
+
+    private static final ThreadLocal<String> ORG_ID = new ThreadLocal<>();
+
+    private TenantContext() {
+    }
+
+    /**
+     * @return the org the current thread runs as, or {@code null} if it is not running as an org
+     */
+    public static String currentOrgId() {
+        return ORG_ID.get();
+    }
+
+    /**
+     * Runs the task as the given org on the current thread.
+     */
+    public static void runAs(String orgId, Runnable task) {
+        try {
+            callAs(orgId, () -> {
+                task.run();
+                return null;
+            });
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            // unreachable, a Runnable throws no checked exceptions
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Calls the task as the given org on the current thread.
+     *
+     * @return the result of the task
+     */
+    public static <T> T callAs(String orgId, Callable<T> task) throws Exception {
+        if (orgId == null || orgId.isBlank()) {
+            throw new IllegalArgumentException("orgId must not be blank");
+        }
+        ManagedContext requestContext = Arc.container().requestContext();
+        boolean activated = !requestContext.isActive();
+        if (activated) {
+            requestContext.activate();
+        }
+        String previous = bind(orgId);
+        try {
+            return task.call();
+        } finally {
+            bind(previous);
+            if (activated) {
+                requestContext.terminate();
+            }
+        }
+    }
+
+    /**
+     * Binds the org to the current thread, or unbinds it if {@code null}.
+     *
+     * @return the org that was bound before
+     */
+    static String bind(String orgId) {
+        String previous = ORG_ID.get();
+        if (orgId == null) {
+            ORG_ID.remove();
+        } else {
+            ORG_ID.set(orgId);
+        }
+        return previous;
+    }
+}
@@ -0,0 +1,107 @@
+package dev.abstratium.core.service;
+
+import io.agroal.api.AgroalDataSource;
+import io.quarkus.agroal.DataSource;
+import io.quarkus.datasource.common.runtime.DataSourceUtil;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.inject.Any;
+import jakarta.enterprise.inject.Default;
+import jakarta.enterprise.inject.Instance;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Directory of the shards that hold the data of each org. A shard is a named datasource; orgs
+ * that are not listed in {@code abstratium.tenant.shards} live on {@code abstratium.tenant.default-shard},
+ * which is the default datasource unless configured otherwise.
+ *
+ * <p>Each entry of {@code abstratium.tenant.shards} has the form {@code orgId=datasourceName}.
+ * Every shard must be configured as a datasource ({@code quarkus.datasource."name".*}) with Flyway
+ * migrations at start ({@code quarkus.flyway."name".migrate-at-start=true}), so that all shards have
+ * the same schema. The assignments are read when the bean is created, so that the first session, even one
+ * opened before startup completes, is routed with them, and the datasources are checked at startup, so
+ * that a typo fails fast instead of on the first request of the org.</p>
+ */
+@ApplicationScoped
+public class TenantDirectory {
+
+    private static final Logger log = Logger.getLogger(TenantDirectory.class);
+
+    @ConfigProperty(name = "abstratium.tenant.default-shard", defaultValue = DataSourceUtil.DEFAULT_DATASOURCE_NAME)
+    String defaultShard;
+
+    @ConfigProperty(name = "abstratium.tenant.shards")
+    Optional<List<String>> shardAssignments;
+
+    @Inject
+    @Any
+    Instance<AgroalDataSource> dataSources;
+
+    private Map<String, String> shardByOrgId;
+
+    @PostConstruct
+    void init() {
+        Map<String, String> assignments = new HashMap<>();
+        for (String assignment : shardAssignments.orElse(List.of())) {
+            int separator = assignment.indexOf('=');
+            if (separator <= 0 || separator == assignment.length() - 1) {
+                throw new IllegalStateException("Invalid entry '" + assignment
+                        + "' in abstratium.tenant.shards, expected orgId=datasourceName");
+            }
+            assignments.put(assignment.substring(0, separator).trim(), assignment.substring(separator + 1).trim());
+        }
+        this.shardByOrgId = Map.copyOf(assignments);
+    }
+
+    void onStart(@Observes StartupEvent event) {
+        for (String shard : shards()) {
+            dataSource(shard);
+        }
+        log.infov("Tenant directory: {0} orgs assigned to shards {1}, all others on {2}",
+                shardByOrgId.size(), shards(), defaultShard);
+    }
+
+    /**
+     * @return the name of the datasource holding the data of the given org
+     */
+    public String shardOf(String orgId) {
+        if (orgId == null) {
+            return defaultShard;
+        }
+        return shardByOrgId.getOrDefault(orgId, defaultShard);
+    }
+
+    /**
+     * @return the names of all shards, including the default shard
+     */
+    public Set<String> shards() {
+        Set<String> shards = new TreeSet<>(shardByOrgId.values());
+        shards.add(defaultShard);
+        return shards;
+    }
+
+    /**
+     * @return the datasource of the given shard
+     * @throws IllegalStateException if no such datasource is configured
+     */
+    public AgroalDataSource dataSource(String shard) {
+        Instance<AgroalDataSource> dataSource = DataSourceUtil.isDefault(shard)
+                ? dataSources.select(Default.Literal.INSTANCE)
+                : dataSources.select(new DataSource.DataSourceLiteral(shard));
+        if (!dataSource.isResolvable()) {
+            throw new IllegalStateException("Shard '" + shard + "' is not a configured datasource");
+        }
+        return dataSource.get();
+    }
+}
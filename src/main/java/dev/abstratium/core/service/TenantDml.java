@@ -0,0 +1,94 @@
+package dev.abstratium.core.service;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+import jakarta.transaction.Transactional;
+import org.hibernate.Session;
+import org.hibernate.annotations.TenantId;
+
+import java.lang.reflect.Field;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bulk JPQL {@code UPDATE} and {@code DELETE} of tenant-scoped entities that never touch the rows of another
+ * org, without loading the entities first.
+ *
+ * <p>Hibernate adds the {@code org_id} predicate of the current tenant to JPQL updates and deletes by itself,
+ * see HIBERNATE_DISCRIMINATOR_MULTITENANCY.md. This class does not rely on that: it adds the predicate on the
+ * {@code @TenantId} attribute explicitly, with the caller's condition in parentheses, so that neither a change
+ * of Hibernate's behaviour nor an {@code OR} in the condition can reach other orgs. Entities without a
+ * {@code @TenantId} attribute are rejected.</p>
+ *
+ * <p>Statements refer to the entity with the alias {@value #ALIAS}. Hibernate evicts the entity's whole
+ * second-level cache region after bulk statements, with the cached entities of all orgs, so single rows are
+ * better written with {@code em.find} and a versioned flush, like {@code DemoService.update}. Cached query
+ * results are the caller's to evict, see {@link TenantCaches#evictQueriesAfterCommit(String)}.</p>
+ */
+@ApplicationScoped
+public class TenantDml {
+
+    public static final String ALIAS = "e";
+
+    static final String ORG_ID_PARAM = "tenantDmlOrgId";
+
+    @Inject
+    EntityManager em;
+
+    private final Map<Class<?>, String> tenantAttributes = new ConcurrentHashMap<>();
+
+    /**
+     * @param where the condition, e.g. {@code e.id = :id}
+     * @return the number of deleted rows
+     */
+    @Transactional
+    public int delete(Class<?> entity, String where, Map<String, ?> parameters) {
+        return execute(entity, "DELETE FROM " + entityName(entity) + " " + ALIAS, where, parameters);
+    }
+
+    /**
+     * @param set the assignments, e.g. {@code e.version = e.version + 1}
+     * @param where the condition, e.g. {@code e.id = :id AND e.version = :version}
+     * @return the number of updated rows
+     */
+    @Transactional
+    public int update(Class<?> entity, String set, String where, Map<String, ?> parameters) {
+        return execute(entity, "UPDATE " + entityName(entity) + " " + ALIAS + " SET " + set, where, parameters);
+    }
+
+    private int execute(Class<?> entity, String statement, String where, Map<String, ?> parameters) {
+        if (parameters.containsKey(ORG_ID_PARAM)) {
+            throw new IllegalArgumentException("The parameter name " + ORG_ID_PARAM + " is reserved");
+        }
+        Object orgId = em.unwrap(Session.class).getTenantIdentifierValue();
+        if (orgId == null) {
+            throw new IllegalStateException("No tenant is resolved for the bulk statement on " + entity.getSimpleName());
+        }
+        Query query = em.createQuery(statement + " WHERE " + ALIAS + "." + tenantAttribute(entity) + " = :" + ORG_ID_PARAM
+                + (where != null && !where.isBlank() ? " AND (" + where + ")" : ""));
+        query.setParameter(ORG_ID_PARAM, orgId);
+        parameters.forEach(query::setParameter);
+        return query.executeUpdate();
+    }
+
+    private String entityName(Class<?> entity) {
+        return em.getMetamodel().entity(entity).getName();
+    }
+
+    private String tenantAttribute(Class<?> entity) {
+        return tenantAttributes.computeIfAbsent(entity, TenantDml::findTenantAttribute);
+    }
+
+    private static String findTenantAttribute(Class<?> entity) {
+        for (Class<?> type = entity; type != null && type != Object.class; type = type.getSuperclass()) {
+            for (Field field : type.getDeclaredFields()) {
+                if (field.isAnnotationPresent(TenantId.class)) {
+                    return field.getName();
+                }
+            }
+        }
+        throw new IllegalArgumentException(entity.getName() + " has no @TenantId attribute");
+    }
+}
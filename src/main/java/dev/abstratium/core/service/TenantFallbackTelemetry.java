@@ -0,0 +1,205 @@
+package dev.abstratium.core.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Aggregates the fallbacks of {@link JwtOrgResolver} to the default org, which happen on every
+ * session of public endpoints and background work, instead of logging each one.
+ *
+ * <p>Fallbacks are counted per (reason, method, path template) in {@link LongAdder}s and published
+ * as the metric {@value #METRIC_NAME}. Only the first occurrence of a combination is logged in full;
+ * after that, at most one summary line per {@code abstratium.tenant.fallback.log-interval} reports
+ * how often each combination occurred since the previous summary. Path segments that look like
+ * identifiers are replaced with {@code {id}}, and beyond {@code abstratium.tenant.fallback.max-combinations}
+ * new paths are counted as {@value #OTHER_PATH}, so that the number of counters stays bounded. The
+ * templates are cached per raw path, up to {@value #MAX_CACHED_PATHS} paths, after which the cache
+ * starts over, so that a fallback costs a map lookup rather than a split and a regex per segment.</p>
+ */
+@ApplicationScoped
+public class TenantFallbackTelemetry {
+
+    private static final Logger log = Logger.getLogger(TenantFallbackTelemetry.class);
+
+    static final String METRIC_NAME = "abstratium.tenant.fallbacks";
+    static final String OTHER_PATH = "(other)";
+
+    private static final Pattern ID_SEGMENT = Pattern.compile(
+            "[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}|\\d+|[A-Za-z0-9_-]{20,}");
+    private static final int SUMMARY_TOP = 10;
+    static final int MAX_CACHED_PATHS = 1000;
+
+    @ConfigProperty(name = "abstratium.tenant.fallback.log-interval", defaultValue = "60s")
+    Duration logInterval;
+
+    @ConfigProperty(name = "abstratium.tenant.fallback.max-combinations", defaultValue = "500")
+    int maxCombinations;
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    private final Map<FallbackKey, Counter> counters = new ConcurrentHashMap<>();
+    private final Map<String, String> templatesByPath = new ConcurrentHashMap<>();
+    private final AtomicLong nextSummaryNanos = new AtomicLong();
+
+    @PostConstruct
+    void init() {
+        nextSummaryNanos.set(System.nanoTime() + logInterval.toNanos());
+    }
+
+    /**
+     * Counts one fallback. Logs it in full if it is the first of its combination, and logs a summary
+     * if the log interval has passed since the last one.
+     */
+    void record(String reason, String method, String path, String contextDescription) {
+        FallbackKey key = new FallbackKey(reason, method != null ? method : "-", cachedTemplate(path));
+        Counter counter = counters.get(key);
+        if (counter == null) {
+            counter = register(key, reason, method, path, contextDescription);
+        }
+        counter.count.increment();
+        maybeLogSummary();
+    }
+
+    private Counter register(FallbackKey key, String reason, String method, String path, String contextDescription) {
+        if (counters.size() >= maxCombinations) {
+            key = new FallbackKey(key.reason(), key.method(), OTHER_PATH);
+            Counter existing = counters.get(key);
+            if (existing != null) {
+                return existing;
+            }
+        }
+        Counter counter = new Counter();
+        Counter previous = counters.putIfAbsent(key, counter);
+        if (previous != null) {
+            return previous;
+        }
+        FunctionCounter.builder(METRIC_NAME, counter.count, LongAdder::sum)
+                .description("Number of Hibernate sessions that fell back to the default org")
+                .tags("reason", key.reason(), "method", key.method(), "path", key.path())
+                .register(meterRegistry);
+        log.infov("Falling back to defaultOrgId (reason={0}, method={1}, path={2}, context={3}); "
+                + "further fallbacks of this kind are only counted in {4}",
+                reason, method, path, contextDescription, METRIC_NAME);
+        return counter;
+    }
+
+    private void maybeLogSummary() {
+        long now = System.nanoTime();
+        long next = nextSummaryNanos.get();
+        if (now - next < 0 || !nextSummaryNanos.compareAndSet(next, now + logInterval.toNanos())) {
+            return;
+        }
+        String summary = summarize();
+        if (summary != null) {
+            log.info(summary);
+        }
+    }
+
+    /**
+     * @return a line describing the fallbacks since the previous summary, or {@code null} if there were none
+     */
+    String summarize() {
+        List<Map.Entry<FallbackKey, Long>> deltas = new ArrayList<>();
+        long total = 0;
+        for (Map.Entry<FallbackKey, Counter> entry : counters.entrySet()) {
+            long delta = entry.getValue().takeDelta();
+            if (delta > 0) {
+                deltas.add(Map.entry(entry.getKey(), delta));
+                total += delta;
+            }
+        }
+        if (total == 0) {
+            return null;
+        }
+        deltas.sort(Map.Entry.<FallbackKey, Long>comparingByValue(Comparator.reverseOrder()));
+        String top = deltas.stream()
+                .limit(SUMMARY_TOP)
+                .map(e -> e.getKey().reason() + " " + e.getKey().method() + " " + e.getKey().path() + "=" + e.getValue())
+                .collect(Collectors.joining(", "));
+        return "Fell back to defaultOrgId " + total + " times in " + deltas.size()
+                + " combinations of reason, method and path since the last summary: " + top
+                + (deltas.size() > SUMMARY_TOP ? ", ..." : "");
+    }
+
+    /**
+     * @return the total number of fallbacks per combination since startup
+     */
+    Map<FallbackKey, Long> totals() {
+        return counters.entrySet().stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, e -> e.getValue().count.sum()));
+    }
+
+    /**
+     * @return the {@link #template(String) template} of the path, from the cache if the path was seen before
+     */
+    String cachedTemplate(String path) {
+        if (path == null) {
+            return template(null);
+        }
+        String template = templatesByPath.get(path);
+        if (template == null) {
+            template = template(path);
+            if (templatesByPath.size() >= MAX_CACHED_PATHS) {
+                templatesByPath.clear();
+            }
+            templatesByPath.put(path, template);
+        }
+        return template;
+    }
+
+    int cachedPaths() {
+        return templatesByPath.size();
+    }
+
+    /**
+     * Replaces path segments that look like identifiers (UUIDs, numbers, long tokens) with {@code {id}}.
+     */
+    static String template(String path) {
+        if (path == null || path.isEmpty()) {
+            return "-";
+        }
+        int query = path.indexOf('?');
+        if (query >= 0) {
+            path = path.substring(0, query);
+        }
+        String[] segments = path.split("/", -1);
+        for (int i = 0; i < segments.length; i++) {
+            if (ID_SEGMENT.matcher(segments[i]).matches()) {
+                segments[i] = "{id}";
+            }
+        }
+        return String.join("/", segments);
+    }
+
+    record FallbackKey(String reason, String method, String path) {
+    }
+
+    private static final class Counter {
+        final LongAdder count = new LongAdder();
+        private long reported;
+
+        synchronized long takeDelta() {
+            long current = count.sum();
+            long delta = current - reported;
+            reported = current;
+            return delta;
+        }
+    }
+}
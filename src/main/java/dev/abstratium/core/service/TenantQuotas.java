@@ -0,0 +1,254 @@
+package dev.abstratium.core.service;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalNotification;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Request quotas per org, so that one org cannot saturate the worker pool and the database for everyone else.
+ *
+ * <p>Each org has a token bucket implemented with the generic cell rate algorithm (GCRA): the bucket is a
+ * single {@link AtomicLong} holding the theoretical arrival time of the next request, updated with a CAS, so
+ * admitting a request takes no lock and contention is limited to requests of the same org. The buckets
+ * are held in a Guava cache that is bounded by {@code rate-limit.tenant.max-tenants} and drops buckets that
+ * were idle for {@code rate-limit.tenant.idle-expiry}, after which they start out full again.</p>
+ *
+ * <p>The rate and burst of an org depend on its tier. Tiers are defined in {@code rate-limit.tenant.tiers}
+ * as {@code name=requestsPerSecond:burst}, orgs are assigned to tiers in {@code rate-limit.tenant.org-tiers}
+ * as {@code orgId=tierName}, and all other orgs get {@code rate-limit.tenant.default-tier}.</p>
+ *
+ * <p>Admitted and rejected requests are counted in the metric {@value #METRIC_NAME}, tagged with the org.
+ * Beyond {@code rate-limit.tenant.max-metric-tenants} orgs, further orgs are counted as {@value #OTHER_ORG},
+ * so that the number of series stays bounded. The series of an org are removed together with its bucket,
+ * which frees its place for another org.</p>
+ */
+@ApplicationScoped
+public class TenantQuotas {
+
+    private static final Logger log = Logger.getLogger(TenantQuotas.class);
+
+    static final String METRIC_NAME = "abstratium.tenant.quota.requests";
+    static final String OTHER_ORG = "(other)";
+
+    @ConfigProperty(name = "rate-limit.tenant.tiers", defaultValue = "standard=50:100")
+    List<String> tierDefinitions;
+
+    @ConfigProperty(name = "rate-limit.tenant.default-tier", defaultValue = "standard")
+    String defaultTierName;
+
+    @ConfigProperty(name = "rate-limit.tenant.org-tiers")
+    Optional<List<String>> orgTierAssignments;
+
+    @ConfigProperty(name = "rate-limit.tenant.max-tenants", defaultValue = "10000")
+    long maxTenants;
+
+    @ConfigProperty(name = "rate-limit.tenant.idle-expiry", defaultValue = "10m")
+    Duration idleExpiry;
+
+    @ConfigProperty(name = "rate-limit.tenant.max-metric-tenants", defaultValue = "100")
+    int maxMetricTenants;
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    private Map<String, Tier> tiers;
+    private Map<String, Tier> tierByOrgId;
+    private Tier defaultTier;
+    private Cache<String, Bucket> buckets;
+    private final Map<String, Usage> usageByOrgId = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void init() {
+        Map<String, Tier> definedTiers = new HashMap<>();
+        for (String definition : tierDefinitions) {
+            Tier tier = Tier.parse(definition);
+            definedTiers.put(tier.name(), tier);
+        }
+        this.tiers = Map.copyOf(definedTiers);
+        this.defaultTier = tier(defaultTierName, "rate-limit.tenant.default-tier");
+        Map<String, Tier> assignments = new HashMap<>();
+        for (String assignment : orgTierAssignments.orElse(List.of())) {
+            String[] parts = split(assignment, '=', "rate-limit.tenant.org-tiers", "orgId=tierName");
+            assignments.put(parts[0], tier(parts[1], "rate-limit.tenant.org-tiers"));
+        }
+        this.tierByOrgId = Map.copyOf(assignments);
+        this.buckets = CacheBuilder.newBuilder()
+                .maximumSize(maxTenants)
+                .expireAfterAccess(idleExpiry)
+                .removalListener((RemovalNotification<String, Bucket> removed) -> {
+                    if (removed.getCause() != RemovalCause.REPLACED) {
+                        removeUsage(removed.getKey());
+                    }
+                })
+                .build();
+        Gauge.builder("abstratium.tenant.quota.buckets", buckets, Cache::size)
+                .description("Number of orgs with a token bucket")
+                .register(meterRegistry);
+        log.infov("Tenant quotas: tiers {0}, default tier {1}, {2} orgs with an explicit tier",
+                tiers.values(), defaultTier.name(), tierByOrgId.size());
+    }
+
+    /**
+     * Takes one token from the bucket of the given org.
+     *
+     * @return {@code 0} if the request is admitted, otherwise the number of nanoseconds after which
+     * the next request of the org would be admitted
+     */
+    public long tryAcquire(String orgId) {
+        return tryAcquire(orgId, System.nanoTime());
+    }
+
+    long tryAcquire(String orgId, long nowNanos) {
+        long waitNanos = bucket(orgId, nowNanos).tryAcquire(nowNanos);
+        Usage usage = usage(orgId);
+        (waitNanos == 0 ? usage.admitted : usage.rejected).increment();
+        return waitNanos;
+    }
+
+    /**
+     * @return the tier of the given org
+     */
+    public Tier tierOf(String orgId) {
+        return tierByOrgId.getOrDefault(orgId, defaultTier);
+    }
+
+    /**
+     * Forgets all buckets and their series, so that every org starts with a full bucket.
+     */
+    public void reset() {
+        buckets.invalidateAll();
+    }
+
+    private Bucket bucket(String orgId, long nowNanos) {
+        try {
+            return buckets.get(orgId, () -> new Bucket(tierOf(orgId), nowNanos));
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed to create the token bucket of org " + orgId, e.getCause());
+        }
+    }
+
+    private Usage usage(String orgId) {
+        Usage usage = usageByOrgId.get(orgId);
+        if (usage != null) {
+            return usage;
+        }
+        String key = usageByOrgId.size() >= maxMetricTenants ? OTHER_ORG : orgId;
+        return usageByOrgId.computeIfAbsent(key, this::registerUsage);
+    }
+
+    private Usage registerUsage(String org) {
+        Usage usage = new Usage();
+        usage.meters.add(FunctionCounter.builder(METRIC_NAME, usage.admitted, LongAdder::sum)
+                .description("Number of requests checked against the quota of their org")
+                .tags("org", org, "outcome", "admitted")
+                .register(meterRegistry));
+        usage.meters.add(FunctionCounter.builder(METRIC_NAME, usage.rejected, LongAdder::sum)
+                .description("Number of requests checked against the quota of their org")
+                .tags("org", org, "outcome", "rejected")
+                .register(meterRegistry));
+        return usage;
+    }
+
+    private void removeUsage(String orgId) {
+        Usage usage = usageByOrgId.remove(orgId);
+        if (usage != null) {
+            usage.meters.forEach(meterRegistry::remove);
+        }
+    }
+
+    private Tier tier(String name, String property) {
+        Tier tier = tiers.get(name);
+        if (tier == null) {
+            throw new IllegalStateException("Unknown tier '" + name + "' in " + property
+                    + ", known tiers are " + tiers.keySet());
+        }
+        return tier;
+    }
+
+    private static String[] split(String value, char separator, String property, String expected) {
+        int index = value.indexOf(separator);
+        if (index <= 0 || index == value.length() - 1) {
+            throw new IllegalStateException("Invalid entry '" + value + "' in " + property + ", expected " + expected);
+        }
+        return new String[]{value.substring(0, index).trim(), value.substring(index + 1).trim()};
+    }
+
+    /**
+     * A quota tier.
+     *
+     * @param requestsPerSecond the sustained rate
+     * @param burst the number of requests that may arrive at once after an idle period
+     */
+    public record Tier(String name, double requestsPerSecond, int burst) {
+
+        static Tier parse(String definition) {
+            String[] nameAndLimits = split(definition, '=', "rate-limit.tenant.tiers", "name=requestsPerSecond:burst");
+            String[] limits = split(nameAndLimits[1], ':', "rate-limit.tenant.tiers", "name=requestsPerSecond:burst");
+            Tier tier = new Tier(nameAndLimits[0], Double.parseDouble(limits[0]), Integer.parseInt(limits[1]));
+            if (tier.requestsPerSecond <= 0 || tier.burst < 1) {
+                throw new IllegalStateException("Invalid limits in tier '" + definition
+                        + "', the rate must be positive and the burst at least 1");
+            }
+            return tier;
+        }
+
+        long emissionIntervalNanos() {
+            return Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / requestsPerSecond));
+        }
+    }
+
+    private static final class Bucket {
+        private final long emissionIntervalNanos;
+        private final long capacityNanos;
+        /** Theoretical arrival time: when the bucket will be full again. */
+        private final AtomicLong tat;
+
+        Bucket(Tier tier, long nowNanos) {
+            this.emissionIntervalNanos = tier.emissionIntervalNanos();
+            this.capacityNanos = emissionIntervalNanos * tier.burst();
+            this.tat = new AtomicLong(nowNanos);
+        }
+
+        long tryAcquire(long nowNanos) {
+            while (true) {
+                long current = tat.get();
+                long next = Math.max(current, nowNanos) + emissionIntervalNanos;
+                long allowedAt = next - capacityNanos;
+                if (nowNanos - allowedAt < 0) {
+                    return allowedAt - nowNanos;
+                }
+                if (tat.compareAndSet(current, next)) {
+                    return 0;
+                }
+            }
+        }
+    }
+
+    private static final class Usage {
+        final LongAdder admitted = new LongAdder();
+        final LongAdder rejected = new LongAdder();
+        final List<Meter> meters = new ArrayList<>(2);
+    }
+}
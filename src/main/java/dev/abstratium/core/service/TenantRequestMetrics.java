@@ -0,0 +1,160 @@
+package dev.abstratium.core.service;
+
+import dev.abstratium.core.util.SpaceSavingSketch;
+import dev.abstratium.core.util.StripedSpaceSavingSketch;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Request latency and throughput per endpoint and org, with a bounded number of org series.
+ *
+ * <p>Requests are recorded in the timer {@value #METRIC_NAME}, tagged with the endpoint, the status class
+ * and the org. Only the {@code abstratium.tenant.metrics.top-n} most active orgs get their own
+ * {@code org} tag; all other orgs are recorded as {@value #OTHER_ORG}, and requests without an org as
+ * {@value #NO_ORG}. The most active orgs are tracked with a {@link StripedSpaceSavingSketch} of
+ * {@code abstratium.tenant.metrics.sketch-capacity} counters and re-evaluated at most once per
+ * {@code abstratium.tenant.metrics.top-refresh-interval}, so the per-request cost is a set lookup. An org
+ * that drops out of the top loses its series, which are removed from the registry, and from then on is
+ * recorded as {@value #OTHER_ORG}, so the number of series stays bounded however many orgs come and go.</p>
+ *
+ * <p>Percentile histograms are only published by {@value #AGGREGATE_METRIC_NAME}, which records all requests
+ * per endpoint and status class without the org, as buckets per org would multiply the series.</p>
+ */
+@ApplicationScoped
+public class TenantRequestMetrics {
+
+    static final String METRIC_NAME = "abstratium.tenant.requests";
+    static final String AGGREGATE_METRIC_NAME = "abstratium.requests";
+    static final String OTHER_ORG = "other";
+    static final String NO_ORG = "none";
+
+    @ConfigProperty(name = "abstratium.tenant.metrics.top-n", defaultValue = "20")
+    int topN;
+
+    @ConfigProperty(name = "abstratium.tenant.metrics.sketch-capacity", defaultValue = "200")
+    int sketchCapacity;
+
+    @ConfigProperty(name = "abstratium.tenant.metrics.top-refresh-interval", defaultValue = "10s")
+    Duration topRefreshInterval;
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    private StripedSpaceSavingSketch<String> sketch;
+    private volatile Set<String> topOrgIds = Set.of();
+    private final AtomicLong nextRefreshNanos = new AtomicLong(System.nanoTime());
+    private final Map<TimerKey, Timer> timers = new ConcurrentHashMap<>();
+    private final Map<TimerKey, Timer> aggregateTimers = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void init() {
+        this.sketch = new StripedSpaceSavingSketch<>(Math.max(sketchCapacity, topN));
+    }
+
+    /**
+     * Records one request.
+     *
+     * @param orgId the org of the caller, or {@code null} if it is not known
+     * @param endpoint the HTTP method and path template of the endpoint
+     * @param status the HTTP status of the response
+     */
+    public void record(String orgId, String endpoint, int status, long durationNanos) {
+        String org = NO_ORG;
+        if (orgId != null) {
+            sketch.offer(orgId, 1);
+            refreshTopIfDue();
+            org = topOrgIds.contains(orgId) ? orgId : OTHER_ORG;
+        }
+        String statusClass = status / 100 + "xx";
+        timers.computeIfAbsent(new TimerKey(endpoint, org, statusClass), this::register)
+                .record(durationNanos, TimeUnit.NANOSECONDS);
+        aggregateTimers.computeIfAbsent(new TimerKey(endpoint, null, statusClass), this::registerAggregate)
+                .record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @return the most active orgs with their estimated request counts, most active first
+     */
+    public List<SpaceSavingSketch.Entry<String>> topTenants() {
+        return sketch.top(topN);
+    }
+
+    /**
+     * @return the orgs that currently get their own series
+     */
+    public Set<String> taggedOrgIds() {
+        return topOrgIds;
+    }
+
+    /**
+     * @return whether the org currently gets its own series
+     */
+    public boolean isTagged(String orgId) {
+        return topOrgIds.contains(orgId);
+    }
+
+    void refreshTop() {
+        Set<String> top = sketch.top(topN).stream()
+                .map(SpaceSavingSketch.Entry::item)
+                .collect(Collectors.toUnmodifiableSet());
+        topOrgIds = top;
+        // also catches series registered by requests that still saw the previous top
+        timers.entrySet().removeIf(entry -> {
+            String org = entry.getKey().org();
+            if (org.equals(OTHER_ORG) || org.equals(NO_ORG) || top.contains(org)) {
+                return false;
+            }
+            meterRegistry.remove(entry.getValue());
+            return true;
+        });
+    }
+
+    /**
+     * Forgets all orgs and removes their series, e.g. in tests.
+     */
+    void clear() {
+        sketch.clear();
+        refreshTop();
+    }
+
+    private void refreshTopIfDue() {
+        long now = System.nanoTime();
+        long next = nextRefreshNanos.get();
+        if (now - next >= 0 && nextRefreshNanos.compareAndSet(next, now + topRefreshInterval.toNanos())) {
+            refreshTop();
+        }
+    }
+
+    private Timer register(TimerKey key) {
+        return Timer.builder(METRIC_NAME)
+                .description("Latency of HTTP requests per endpoint and org")
+                .tags("endpoint", key.endpoint(), "org", key.org(), "status", key.status())
+                .register(meterRegistry);
+    }
+
+    private Timer registerAggregate(TimerKey key) {
+        return Timer.builder(AGGREGATE_METRIC_NAME)
+                .description("Latency of HTTP requests per endpoint")
+                .tags("endpoint", key.endpoint(), "status", key.status())
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofSeconds(30))
+                .register(meterRegistry);
+    }
+
+    private record TimerKey(String endpoint, String org, String status) {
+    }
+}
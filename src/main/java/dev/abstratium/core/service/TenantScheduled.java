@@ -0,0 +1,19 @@
+package dev.abstratium.core.service;
+
+import jakarta.interceptor.InterceptorBinding;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Runs the annotated methods, or all methods of the annotated class, within the per-org concurrency
+ * limits of the {@link TenantScheduler}. Meant for blocking resource methods that run on virtual threads
+ * ({@code @RunOnVirtualThread}), where waiting for a slot does not tie up a platform thread.
+ */
+@InterceptorBinding
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface TenantScheduled {
+}
@@ -0,0 +1,33 @@
+package dev.abstratium.core.service;
+
+import jakarta.annotation.Priority;
+import jakarta.inject.Inject;
+import jakarta.interceptor.AroundInvoke;
+import jakarta.interceptor.Interceptor;
+import jakarta.interceptor.InvocationContext;
+
+/**
+ * Applies the {@link TenantScheduler} to methods annotated with {@link TenantScheduled}. The org is read from
+ * the {@link CurrentOrgContext}, which the request filters have populated by the time a resource method runs.
+ */
+@TenantScheduled
+@Interceptor
+@Priority(Interceptor.Priority.PLATFORM_BEFORE + 100)
+public class TenantScheduledInterceptor {
+
+    @Inject
+    TenantScheduler tenantScheduler;
+
+    @Inject
+    CurrentOrgContext currentOrgContext;
+
+    @AroundInvoke
+    Object schedule(InvocationContext context) throws Exception {
+        String key = tenantScheduler.acquire(currentOrgContext.getOrgId());
+        try {
+            return context.proceed();
+        } finally {
+            tenantScheduler.release(key);
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package dev.abstratium.core.service;
+
+import dev.abstratium.core.boundary.ErrorCode;
+import dev.abstratium.core.boundary.FunctionalException;
+import dev.abstratium.core.util.WeightedFairSemaphore;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.core.Response;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fair scheduling of blocking work per org, see {@link TenantScheduled}.
+ *
+ * <p>At most {@code quarkus.datasource.jdbc.max-size} scheduled invocations run at once, matching the
+ * connection pool so that admitted work does not wait for connections, and at most
+ * {@code abstratium.scheduler.max-per-tenant} of them for the same org. When the limits are reached,
+ * invocations wait and freed slots are handed out to the waiting orgs in weighted round-robin order.
+ * The weight of an org is the weight of its quota tier ({@code abstratium.scheduler.tier-weights}, see
+ * {@link TenantQuotas}). Invocations that wait longer than {@code abstratium.scheduler.max-wait} are
+ * rejected with {@code 503}.</p>
+ *
+ * <p>The wait time is recorded in {@value #WAIT_METRIC_NAME} per org; like in {@link TenantRequestMetrics},
+ * only the most active orgs get their own series, and the series of orgs that are no longer among them are
+ * removed. Recording, removing and re-registering the series of an org happen atomically per org, so that
+ * no wait is recorded on a series that was just removed.</p>
+ */
+@ApplicationScoped
+public class TenantScheduler {
+
+    private static final Logger log = Logger.getLogger(TenantScheduler.class);
+
+    static final String WAIT_METRIC_NAME = "abstratium.scheduler.wait";
+    static final String NO_ORG = "none";
+
+    @ConfigProperty(name = "abstratium.scheduler.enabled", defaultValue = "true")
+    boolean enabled;
+
+    @ConfigProperty(name = "quarkus.datasource.jdbc.max-size", defaultValue = "20")
+    int maxConcurrency;
+
+    @ConfigProperty(name = "abstratium.scheduler.max-per-tenant", defaultValue = "10")
+    int maxPerTenant;
+
+    @ConfigProperty(name = "abstratium.scheduler.max-wait", defaultValue = "30s")
+    Duration maxWait;
+
+    @ConfigProperty(name = "abstratium.scheduler.tier-weights", defaultValue = "standard=1")
+    List<String> tierWeightDefinitions;
+
+    @Inject
+    TenantQuotas tenantQuotas;
+
+    @Inject
+    TenantRequestMetrics tenantRequestMetrics;
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    private WeightedFairSemaphore semaphore;
+    private Map<String, Integer> weightByTier;
+    private final Map<String, Timer> waitTimers = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void init() {
+        Map<String, Integer> weights = new HashMap<>();
+        for (String definition : tierWeightDefinitions) {
+            int separator = definition.indexOf('=');
+            if (separator <= 0) {
+                throw new IllegalStateException("Invalid entry '" + definition
+                        + "' in abstratium.scheduler.tier-weights, expected tierName=weight");
+            }
+            weights.put(definition.substring(0, separator).trim(), Integer.parseInt(definition.substring(separator + 1).trim()));
+        }
+        this.weightByTier = Map.copyOf(weights);
+        this.semaphore = new WeightedFairSemaphore(maxConcurrency, Math.min(maxPerTenant, maxConcurrency), this::weightOf);
+        Gauge.builder("abstratium.scheduler.running", semaphore, WeightedFairSemaphore::inUse)
+                .description("Number of scheduled invocations running")
+                .register(meterRegistry);
+        Gauge.builder("abstratium.scheduler.waiting", semaphore, WeightedFairSemaphore::waiting)
+                .description("Number of scheduled invocations waiting for a slot")
+                .register(meterRegistry);
+        log.infov("Tenant scheduler: enabled={0}, at most {1} invocations, {2} per org, weights {3}",
+                enabled, maxConcurrency, maxPerTenant, weightByTier);
+    }
+
+    /**
+     * Waits for a slot of the org, which must be given back with {@link #release(String)}.
+     *
+     * @param orgId the org, or {@code null} if it is not known
+     * @return the key to release, or {@code null} if scheduling is disabled
+     * @throws FunctionalException with 503 if no slot became free within the maximum wait time
+     */
+    public String acquire(String orgId) throws InterruptedException {
+        if (!enabled) {
+            return null;
+        }
+        String key = orgId != null ? orgId : NO_ORG;
+        long start = System.nanoTime();
+        boolean acquired = semaphore.tryAcquire(key, maxWait.toNanos(), TimeUnit.NANOSECONDS);
+        recordWait(key, System.nanoTime() - start);
+        if (!acquired) {
+            log.debugv("No slot became free for org {0} within {1}", key, maxWait);
+            throw new FunctionalException(Response.Status.SERVICE_UNAVAILABLE, ErrorCode.SERVER_BUSY,
+                    "The server is busy, retry later");
+        }
+        return key;
+    }
+
+    /**
+     * Gives back the slot taken by {@link #acquire(String)}.
+     */
+    public void release(String key) {
+        if (key != null) {
+            semaphore.release(key);
+        }
+    }
+
+    int weightOf(String orgId) {
+        return NO_ORG.equals(orgId) ? 1 : weightByTier.getOrDefault(tenantQuotas.tierOf(orgId).name(), 1);
+    }
+
+    Timer waitTimer(String key) {
+        String org = seriesOf(key);
+        removeUntaggedWaitTimersIfNew(org);
+        return waitTimers.computeIfAbsent(org, this::registerWaitTimer);
+    }
+
+    private void recordWait(String key, long nanos) {
+        String org = seriesOf(key);
+        removeUntaggedWaitTimersIfNew(org);
+        waitTimers.compute(org, (o, existing) -> {
+            Timer timer = existing != null ? existing : registerWaitTimer(o);
+            timer.record(nanos, TimeUnit.NANOSECONDS);
+            return timer;
+        });
+    }
+
+    private String seriesOf(String key) {
+        return NO_ORG.equals(key) || tenantRequestMetrics.isTagged(key) ? key : TenantRequestMetrics.OTHER_ORG;
+    }
+
+    /**
+     * Before the series of an org is registered, removes those of orgs that are no longer tagged, so that there
+     * are never many more series than tagged orgs.
+     */
+    private void removeUntaggedWaitTimersIfNew(String org) {
+        if (waitTimers.containsKey(org)) {
+            return;
+        }
+        for (String tagged : waitTimers.keySet()) {
+            waitTimers.computeIfPresent(tagged, (o, timer) -> {
+                if (o.equals(NO_ORG) || o.equals(TenantRequestMetrics.OTHER_ORG) || tenantRequestMetrics.isTagged(o)) {
+                    return timer;
+                }
+                meterRegistry.remove(timer);
+                return null;
+            });
+        }
+    }
+
+    private Timer registerWaitTimer(String org) {
+        return Timer.builder(WAIT_METRIC_NAME)
+                .description("Time scheduled invocations waited for a slot")
+                .tag("org", org)
+                .publishPercentileHistogram()
+                .maximumExpectedValue(maxWait)
+                .register(meterRegistry);
+    }
+}
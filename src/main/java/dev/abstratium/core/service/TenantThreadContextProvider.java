@@ -0,0 +1,60 @@
+package dev.abstratium.core.service;
+
+import io.quarkus.arc.Arc;
+import io.quarkus.arc.InstanceHandle;
+import org.eclipse.microprofile.context.spi.ThreadContextController;
+import org.eclipse.microprofile.context.spi.ThreadContextProvider;
+import org.eclipse.microprofile.context.spi.ThreadContextSnapshot;
+
+import java.util.Map;
+
+/**
+ * Propagates the org to tasks run by a {@code ManagedExecutor} or wrapped with a {@code ThreadContext}, as
+ * the thread context type {@value #TYPE}. The org captured is the one of {@link TenantContext} if the
+ * submitting thread runs as an org, otherwise the org resolved for the current request. The task then runs
+ * as that org, as if it had been wrapped in {@link TenantContext#runAs(String, Runnable)}.
+ *
+ * <p>Registered in {@code META-INF/services}.</p>
+ */
+public class TenantThreadContextProvider implements ThreadContextProvider {
+
+    public static final String TYPE = "Tenant";
+
+    @Override
+    public ThreadContextSnapshot currentContext(Map<String, String> props) {
+        return snapshot(capture());
+    }
+
+    @Override
+    public ThreadContextSnapshot clearedContext(Map<String, String> props) {
+        return snapshot(null);
+    }
+
+    @Override
+    public String getThreadContextType() {
+        return TYPE;
+    }
+
+    private static ThreadContextSnapshot snapshot(String orgId) {
+        return () -> {
+            String previous = TenantContext.bind(orgId);
+            return (ThreadContextController) () -> TenantContext.bind(previous);
+        };
+    }
+
+    private static String capture() {
+        String orgId = TenantContext.currentOrgId();
+        if (orgId != null) {
+            return orgId;
+        }
+        RequestTenant tenant = RequestTenant.current();
+        if (tenant != null) {
+            return tenant.getOrgId();
+        }
+        if (Arc.container() == null || !Arc.container().requestContext().isActive()) {
+            return null;
+        }
+        InstanceHandle<CurrentOrgContext> ctx = Arc.container().instance(CurrentOrgContext.class);
+        return ctx.isAvailable() ? ctx.get().getOrgId() : null;
+    }
+}
@@ -0,0 +1,546 @@
+package dev.abstratium.core.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.quarkus.runtime.annotations.RegisterForReflection;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Copies the data of one org from its shard to another datasource, e.g. to move a busy org to a shard of
+ * its own.
+ *
+ * <p>{@link #export(String, Path)} reads every table with an {@code org_id} column on the org's shard, in
+ * primary key order with a streaming result set, and writes the rows of the org as gzipped NDJSON files of
+ * {@code abstratium.transfer.chunk-size} rows to a directory. Values are written as JSON numbers, booleans and
+ * strings, with temporal values in ISO-8601 and binary values in Base64. {@value #MANIFEST} in the directory
+ * describes the tables and lists the chunks written so far, so an interrupted export resumes after the last
+ * complete chunk.</p>
+ *
+ * <p>{@link #importInto(String, Path)} inserts the chunks of a complete export into the given shard with
+ * batched inserts, one transaction per chunk. The number of chunks imported per table is stored in
+ * {@code T_batch_checkpoint} of the target in the same transaction, so an interrupted import resumes after the
+ * last committed chunk.</p>
+ *
+ * <p>Both are throttled to {@code abstratium.transfer.max-rows-per-second}, so that they can run while the
+ * org is online, and log their throughput. Rows the org writes during the export may or may not be
+ * exported; block the org's writes for the final export before changing {@code abstratium.tenant.shards}.</p>
+ */
+@ApplicationScoped
+public class TenantTransfer {
+
+    private static final Logger log = Logger.getLogger(TenantTransfer.class);
+
+    static final String MANIFEST = "manifest.json";
+    private static final String ORG_ID_COLUMN = "org_id";
+    private static final String CHECKPOINT_TABLE = "T_batch_checkpoint";
+    private static final String IMPORT_JOB_PREFIX = "import:";
+
+    @ConfigProperty(name = "abstratium.transfer.chunk-size", defaultValue = "1000")
+    int chunkSize;
+
+    /** 0 for no limit */
+    @ConfigProperty(name = "abstratium.transfer.max-rows-per-second", defaultValue = "0")
+    long maxRowsPerSecond;
+
+    @Inject
+    TenantDirectory tenantDirectory;
+
+    @Inject
+    ObjectMapper objectMapper;
+
+    /**
+     * Exports the data of the org from its shard to the directory, or resumes an earlier export to it.
+     *
+     * @throws IllegalStateException if the directory contains the export of another org, or a table has no primary key
+     */
+    public Result export(String orgId, Path directory) throws IOException, SQLException, InterruptedException {
+        return export(orgId, directory, maxRowsPerSecond);
+    }
+
+    Result export(String orgId, Path directory, long rowsPerSecond) throws IOException, SQLException, InterruptedException {
+        Files.createDirectories(directory);
+        String shard = tenantDirectory.shardOf(orgId);
+        Progress progress = new Progress("Export", orgId, shard, rowsPerSecond);
+        try (Connection connection = tenantDirectory.dataSource(shard).getConnection()) {
+            Manifest manifest = readManifest(directory).orElse(null);
+            if (manifest == null) {
+                manifest = new Manifest(orgId, shard, tables(connection), false);
+                writeManifest(directory, manifest);
+            } else if (!manifest.orgId().equals(orgId)) {
+                throw new IllegalStateException(directory + " contains the export of org " + manifest.orgId());
+            }
+            log.infov("Exporting org {0} from shard {1} to {2}", orgId, shard, directory);
+            for (int i = 0; i < manifest.tables().size(); i++) {
+                if (!manifest.tables().get(i).complete()) {
+                    exportTable(connection, directory, manifest, i, progress);
+                }
+            }
+            writeManifest(directory, new Manifest(orgId, shard, manifest.tables(), true));
+        }
+        return progress.finish();
+    }
+
+    /**
+     * Imports a complete export into the given shard, or resumes an earlier import of it.
+     *
+     * @throws IllegalStateException if the directory contains no complete export
+     */
+    public Result importInto(String shard, Path directory) throws IOException, SQLException, InterruptedException {
+        return importInto(shard, directory, maxRowsPerSecond);
+    }
+
+    Result importInto(String shard, Path directory, long rowsPerSecond) throws IOException, SQLException, InterruptedException {
+        Manifest manifest = readManifest(directory)
+                .orElseThrow(() -> new IllegalStateException("No export in " + directory));
+        if (!manifest.complete()) {
+            throw new IllegalStateException("The export of org " + manifest.orgId() + " in " + directory + " is not complete");
+        }
+        Progress progress = new Progress("Import", manifest.orgId(), shard, rowsPerSecond);
+        try (Connection connection = tenantDirectory.dataSource(shard).getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try {
+                log.infov("Importing org {0} from {1} into shard {2}", manifest.orgId(), directory, shard);
+                Map<String, String> targetTables = tableNames(connection);
+                for (TableManifest table : manifest.tables()) {
+                    String target = targetTables.get(table.name().toLowerCase());
+                    if (target == null) {
+                        throw new IllegalStateException("Table " + table.name() + " does not exist on shard " + shard);
+                    }
+                    importTable(connection, directory, manifest.orgId(), table, target, progress);
+                }
+                for (TableManifest table : manifest.tables()) {
+                    deleteImportCheckpoint(connection, manifest.orgId(), table.name());
+                }
+                connection.commit();
+            } catch (Exception e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        }
+        return progress.finish();
+    }
+
+    private void exportTable(Connection connection, Path directory, Manifest manifest, int index, Progress progress)
+            throws IOException, SQLException, InterruptedException {
+        TableManifest table = manifest.tables().get(index);
+        String primaryKey = String.join(", ", table.primaryKey());
+        StringBuilder sql = new StringBuilder("SELECT ")
+                .append(table.columns().stream().map(Column::name).collect(Collectors.joining(", ")))
+                .append(" FROM ").append(table.name())
+                .append(" WHERE ").append(ORG_ID_COLUMN).append(" = ?");
+        if (table.lastKey() != null) {
+            sql.append(" AND (").append(primaryKey).append(") > (")
+                    .append(String.join(", ", Collections.nCopies(table.primaryKey().size(), "?"))).append(")");
+        }
+        sql.append(" ORDER BY ").append(primaryKey);
+
+        boolean autoCommit = connection.getAutoCommit();
+        // MySQL only streams the result set of a forward-only statement inside a transaction with this fetch size
+        boolean mysql = connection.getMetaData().getDatabaseProductName().toLowerCase().contains("mysql");
+        connection.setAutoCommit(false);
+        try (PreparedStatement statement = connection.prepareStatement(sql.toString(),
+                ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            statement.setFetchSize(mysql ? Integer.MIN_VALUE : chunkSize);
+            statement.setString(1, manifest.orgId());
+            if (table.lastKey() != null) {
+                for (int i = 0; i < table.primaryKey().size(); i++) {
+                    setParameter(statement, i + 2, objectMapper.valueToTree(table.lastKey().get(i)),
+                            table.column(table.primaryKey().get(i)).type());
+                }
+            }
+            try (ResultSet resultSet = statement.executeQuery()) {
+                ChunkWriter chunk = null;
+                List<Object> row = new ArrayList<>(table.columns().size());
+                while (resultSet.next()) {
+                    if (chunk == null) {
+                        chunk = new ChunkWriter(directory, table.name(), table.chunks().size());
+                    }
+                    row.clear();
+                    for (int i = 0; i < table.columns().size(); i++) {
+                        row.add(encode(resultSet, i + 1, table.columns().get(i).type()));
+                    }
+                    chunk.write(table.columns(), row);
+                    if (chunk.rows == chunkSize) {
+                        table = completeChunk(directory, manifest, index, chunk, lastKey(table, row), false);
+                        progress.add(table.name(), chunk.rows);
+                        chunk = null;
+                    }
+                }
+                if (chunk != null) {
+                    completeChunk(directory, manifest, index, chunk, lastKey(table, row), true);
+                    progress.add(table.name(), chunk.rows);
+                } else {
+                    completeChunk(directory, manifest, index, null, table.lastKey(), true);
+                }
+            }
+        } finally {
+            connection.commit();
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    private TableManifest completeChunk(Path directory, Manifest manifest, int index, ChunkWriter chunk,
+                                        List<Object> lastKey, boolean complete) throws IOException {
+        TableManifest table = manifest.tables().get(index);
+        List<ChunkFile> chunks = new ArrayList<>(table.chunks());
+        if (chunk != null) {
+            chunks.add(chunk.close());
+        }
+        TableManifest updated = new TableManifest(table.name(), table.columns(), table.primaryKey(), chunks,
+                lastKey, complete);
+        manifest.tables().set(index, updated);
+        writeManifest(directory, manifest);
+        return updated;
+    }
+
+    private void importTable(Connection connection, Path directory, String orgId, TableManifest table, String target,
+                             Progress progress) throws IOException, SQLException, InterruptedException {
+        int imported = importedChunks(connection, orgId, table.name());
+        if (imported > 0) {
+            log.infov("Resuming import of {0} after {1} of {2} chunks", table.name(), imported, table.chunks().size());
+        }
+        String sql = "INSERT INTO " + target + " ("
+                + table.columns().stream().map(Column::name).collect(Collectors.joining(", ")) + ") VALUES ("
+                + String.join(", ", Collections.nCopies(table.columns().size(), "?")) + ")";
+        long rows = 0;
+        for (int i = 0; i < imported; i++) {
+            rows += table.chunks().get(i).rows();
+        }
+        for (int i = imported; i < table.chunks().size(); i++) {
+            ChunkFile chunk = table.chunks().get(i);
+            try (PreparedStatement insert = connection.prepareStatement(sql);
+                 InputStream in = new GZIPInputStream(Files.newInputStream(directory.resolve(chunk.file())));
+                 MappingIterator<JsonNode> lines = objectMapper.readerFor(JsonNode.class).readValues(in)) {
+                while (lines.hasNext()) {
+                    JsonNode line = lines.next();
+                    for (int c = 0; c < table.columns().size(); c++) {
+                        Column column = table.columns().get(c);
+                        setParameter(insert, c + 1, line.get(column.name()), column.type());
+                    }
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+            rows += chunk.rows();
+            saveImportCheckpoint(connection, orgId, table.name(), i + 1, rows, i == 0 && imported == 0);
+            connection.commit();
+            progress.add(table.name(), chunk.rows());
+        }
+    }
+
+    private int importedChunks(Connection connection, String orgId, String table) throws SQLException {
+        try (PreparedStatement select = connection.prepareStatement(
+                "SELECT last_key FROM " + CHECKPOINT_TABLE + " WHERE job_name = ? AND org_id = ?")) {
+            select.setString(1, IMPORT_JOB_PREFIX + table);
+            select.setString(2, orgId);
+            try (ResultSet resultSet = select.executeQuery()) {
+                return resultSet.next() ? Integer.parseInt(resultSet.getString(1)) : 0;
+            }
+        }
+    }
+
+    private void saveImportCheckpoint(Connection connection, String orgId, String table, int chunks, long rows,
+                                      boolean first) throws SQLException {
+        String sql = first
+                ? "INSERT INTO " + CHECKPOINT_TABLE + " (last_key, items, completed, updated_at, job_name, org_id)"
+                        + " VALUES (?, ?, ?, ?, ?, ?)"
+                : "UPDATE " + CHECKPOINT_TABLE + " SET last_key = ?, items = ?, completed = ?, updated_at = ?"
+                        + " WHERE job_name = ? AND org_id = ?";
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setString(1, String.valueOf(chunks));
+            statement.setLong(2, rows);
+            statement.setBoolean(3, false);
+            statement.setTimestamp(4, Timestamp.from(Instant.now()));
+            statement.setString(5, IMPORT_JOB_PREFIX + table);
+            statement.setString(6, orgId);
+            statement.executeUpdate();
+        }
+    }
+
+    private void deleteImportCheckpoint(Connection connection, String orgId, String table) throws SQLException {
+        try (PreparedStatement delete = connection.prepareStatement(
+                "DELETE FROM " + CHECKPOINT_TABLE + " WHERE job_name = ? AND org_id = ?")) {
+            delete.setString(1, IMPORT_JOB_PREFIX + table);
+            delete.setString(2, orgId);
+            delete.executeUpdate();
+        }
+    }
+
+    /**
+     * @return the tables with an {@code org_id} column, except the checkpoints, which are state of the shard
+     */
+    private List<TableManifest> tables(Connection connection) throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+        Map<String, List<Column>> columnsByTable = new TreeMap<>();
+        try (ResultSet resultSet = metaData.getColumns(connection.getCatalog(), connection.getSchema(), "%", "%")) {
+            while (resultSet.next()) {
+                columnsByTable.computeIfAbsent(resultSet.getString("TABLE_NAME"), t -> new ArrayList<>())
+                        .add(new Column(resultSet.getString("COLUMN_NAME"), resultSet.getInt("DATA_TYPE")));
+            }
+        }
+        List<TableManifest> tables = new ArrayList<>();
+        for (Map.Entry<String, List<Column>> entry : columnsByTable.entrySet()) {
+            String table = entry.getKey();
+            if (table.equalsIgnoreCase(CHECKPOINT_TABLE)
+                    || entry.getValue().stream().noneMatch(column -> column.name().equalsIgnoreCase(ORG_ID_COLUMN))) {
+                continue;
+            }
+            Map<Short, String> primaryKey = new TreeMap<>();
+            try (ResultSet resultSet = metaData.getPrimaryKeys(connection.getCatalog(), connection.getSchema(), table)) {
+                while (resultSet.next()) {
+                    primaryKey.put(resultSet.getShort("KEY_SEQ"), resultSet.getString("COLUMN_NAME"));
+                }
+            }
+            if (primaryKey.isEmpty()) {
+                throw new IllegalStateException("Table " + table + " has no primary key, so it cannot be exported in chunks");
+            }
+            tables.add(new TableManifest(table, entry.getValue(), List.copyOf(primaryKey.values()), List.of(), null, false));
+        }
+        return tables;
+    }
+
+    /**
+     * @return the names of the tables, by their lower case name
+     */
+    private static Map<String, String> tableNames(Connection connection) throws SQLException {
+        Map<String, String> names = new LinkedHashMap<>();
+        try (ResultSet resultSet = connection.getMetaData().getTables(connection.getCatalog(), connection.getSchema(),
+                "%", new String[]{"TABLE"})) {
+            while (resultSet.next()) {
+                names.put(resultSet.getString("TABLE_NAME").toLowerCase(), resultSet.getString("TABLE_NAME"));
+            }
+        }
+        return names;
+    }
+
+    private static List<Object> lastKey(TableManifest table, List<Object> row) {
+        List<Object> key = new ArrayList<>(table.primaryKey().size());
+        for (String column : table.primaryKey()) {
+            key.add(row.get(table.columns().indexOf(table.column(column))));
+        }
+        return key;
+    }
+
+    private static Object encode(ResultSet resultSet, int index, int type) throws SQLException {
+        Object value = switch (type) {
+            case Types.TINYINT, Types.SMALLINT, Types.INTEGER, Types.BIGINT -> resultSet.getLong(index);
+            case Types.REAL, Types.FLOAT, Types.DOUBLE -> resultSet.getDouble(index);
+            case Types.BOOLEAN, Types.BIT -> resultSet.getBoolean(index);
+            case Types.DATE -> toString(resultSet.getObject(index, LocalDate.class));
+            case Types.TIME -> toString(resultSet.getObject(index, LocalTime.class));
+            case Types.TIMESTAMP -> toString(resultSet.getObject(index, LocalDateTime.class));
+            case Types.TIMESTAMP_WITH_TIMEZONE -> toString(resultSet.getObject(index, OffsetDateTime.class));
+            case Types.BINARY, Types.VARBINARY, Types.LONGVARBINARY, Types.BLOB -> {
+                byte[] bytes = resultSet.getBytes(index);
+                yield bytes != null ? Base64.getEncoder().encodeToString(bytes) : null;
+            }
+            // also DECIMAL and NUMERIC, as strings to keep their precision
+            default -> resultSet.getString(index);
+        };
+        return resultSet.wasNull() ? null : value;
+    }
+
+    private static void setParameter(PreparedStatement statement, int index, JsonNode value, int type) throws SQLException {
+        if (value == null || value.isNull()) {
+            statement.setNull(index, type);
+            return;
+        }
+        statement.setObject(index, switch (type) {
+            case Types.TINYINT, Types.SMALLINT, Types.INTEGER, Types.BIGINT -> value.asLong();
+            case Types.REAL, Types.FLOAT, Types.DOUBLE -> value.asDouble();
+            case Types.BOOLEAN, Types.BIT -> value.asBoolean();
+            case Types.DECIMAL, Types.NUMERIC -> new BigDecimal(value.asText());
+            case Types.DATE -> LocalDate.parse(value.asText());
+            case Types.TIME -> LocalTime.parse(value.asText());
+            case Types.TIMESTAMP -> LocalDateTime.parse(value.asText());
+            case Types.TIMESTAMP_WITH_TIMEZONE -> OffsetDateTime.parse(value.asText());
+            case Types.BINARY, Types.VARBINARY, Types.LONGVARBINARY, Types.BLOB -> Base64.getDecoder().decode(value.asText());
+            default -> value.asText();
+        });
+    }
+
+    private static String toString(Object value) {
+        return value != null ? value.toString() : null;
+    }
+
+    private Optional<Manifest> readManifest(Path directory) throws IOException {
+        Path file = directory.resolve(MANIFEST);
+        if (!Files.exists(file)) {
+            return Optional.empty();
+        }
+        Manifest manifest = objectMapper.readValue(file.toFile(), Manifest.class);
+        return Optional.of(new Manifest(manifest.orgId(), manifest.shard(), new ArrayList<>(manifest.tables()),
+                manifest.complete()));
+    }
+
+    private void writeManifest(Path directory, Manifest manifest) throws IOException {
+        Path temp = directory.resolve(MANIFEST + ".tmp");
+        objectMapper.writerWithDefaultPrettyPrinter().writeValue(temp.toFile(), manifest);
+        Files.move(temp, directory.resolve(MANIFEST), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Writes one chunk to a temporary file, which is renamed once the chunk is complete.
+     */
+    private final class ChunkWriter {
+
+        final Path temp;
+        final Path file;
+        final JsonGenerator generator;
+        int rows;
+
+        ChunkWriter(Path directory, String table, int sequence) throws IOException {
+            this.file = directory.resolve(String.format("%s-%05d.ndjson.gz", table, sequence));
+            this.temp = directory.resolve(file.getFileName() + ".tmp");
+            OutputStream out = new GZIPOutputStream(Files.newOutputStream(temp));
+            this.generator = objectMapper.getFactory().createGenerator(out);
+            this.generator.setRootValueSeparator(null);
+        }
+
+        void write(List<Column> columns, List<Object> row) throws IOException {
+            generator.writeStartObject();
+            for (int i = 0; i < columns.size(); i++) {
+                generator.writeObjectField(columns.get(i).name(), row.get(i));
+            }
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+            rows++;
+        }
+
+        ChunkFile close() throws IOException {
+            generator.close();
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return new ChunkFile(file.getFileName().toString(), rows);
+        }
+    }
+
+    /**
+     * Counts the rows transferred, and sleeps as needed to stay below the maximum rate.
+     */
+    private static final class Progress {
+
+        final String operation;
+        final String orgId;
+        final String shard;
+        final long maxRowsPerSecond;
+        final long startNanos = System.nanoTime();
+        final Map<String, Long> rowsByTable = new LinkedHashMap<>();
+        long rows;
+
+        Progress(String operation, String orgId, String shard, long maxRowsPerSecond) {
+            this.operation = operation;
+            this.orgId = orgId;
+            this.shard = shard;
+            this.maxRowsPerSecond = maxRowsPerSecond;
+        }
+
+        void add(String table, int chunkRows) throws InterruptedException {
+            rows += chunkRows;
+            rowsByTable.merge(table, (long) chunkRows, Long::sum);
+            long elapsedNanos = System.nanoTime() - startNanos;
+            log.debugv("{0} of org {1}: {2} rows of {3}, {4,number,#.#} rows/s", operation, orgId, chunkRows, table,
+                    rows * 1e9 / Math.max(1, elapsedNanos));
+            if (maxRowsPerSecond > 0) {
+                long waitNanos = rows * TimeUnit.SECONDS.toNanos(1) / maxRowsPerSecond - elapsedNanos;
+                if (waitNanos > 0) {
+                    TimeUnit.NANOSECONDS.sleep(waitNanos);
+                }
+            }
+        }
+
+        Result finish() {
+            long nanos = System.nanoTime() - startNanos;
+            Result result = new Result(orgId, shard, rows, Map.copyOf(rowsByTable), Duration.ofNanos(nanos).toMillis(),
+                    Math.round(rows * 1e10 / Math.max(1, nanos)) / 10.0);
+            log.infov("{0} of org {1} finished: {2} rows in {3} ms, {4,number,#.#} rows/s", operation, orgId,
+                    result.rows(), result.durationMillis(), result.rowsPerSecond());
+            return result;
+        }
+    }
+
+    /**
+     * The outcome of an export or import.
+     *
+     * @param shard the shard exported from or imported into
+     * @param rows the rows transferred by this call, excluding those of an earlier, interrupted call
+     */
+    @RegisterForReflection
+    public record Result(String orgId, String shard, long rows, Map<String, Long> rowsByTable, long durationMillis,
+                         double rowsPerSecond) {
+    }
+
+    /**
+     * Contents of {@value #MANIFEST}.
+     *
+     * @param shard the shard the org was exported from
+     * @param complete whether all tables have been exported
+     */
+    @RegisterForReflection
+    public record Manifest(String orgId, String shard, List<TableManifest> tables, boolean complete) {
+    }
+
+    /**
+     * @param lastKey the primary key of the last row exported, or {@code null} before the first chunk
+     */
+    @RegisterForReflection
+    public record TableManifest(String name, List<Column> columns, List<String> primaryKey, List<ChunkFile> chunks,
+                                List<Object> lastKey, boolean complete) {
+
+        Column column(String name) {
+            return columns.stream().filter(column -> column.name().equals(name)).findFirst()
+                    .orElseThrow(() -> new IllegalStateException("No column " + name + " in " + this.name));
+        }
+    }
+
+    /**
+     * @param type the {@link Types JDBC type}
+     */
+    @RegisterForReflection
+    public record Column(String name, int type) {
+    }
+
+    @RegisterForReflection
+    public record ChunkFile(String file, int rows) {
+    }
+}
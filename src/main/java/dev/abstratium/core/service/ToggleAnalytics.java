@@ -0,0 +1,147 @@
+package dev.abstratium.core.service;
+
+import dev.abstratium.core.service.ToggleSnapshot.CompiledRule;
+import dev.abstratium.core.service.ToggleSnapshot.CompiledToggle;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.runtime.annotations.RegisterForReflection;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts how often each toggle rule matches, so that rules and flags which are never hit can be retired.
+ *
+ * <p>Counters are striped {@link LongAdder}s keyed by (toggle, rule). They are looked up
+ * when a {@link ToggleSnapshot} is built and stored on its compiled rules, so recording a hit on
+ * the evaluation path is a plain {@code increment()}: no map lookup, no lock and no allocation.
+ * The counters outlive snapshots, so they are published as monotonic Micrometer counters
+ * ({@value #METRIC_NAME}), scraped from the management interface. Values are not tagged: they come
+ * from the toggle API and change, which would add a series with every change. Each compiled rule
+ * remembers the count at the time its snapshot was loaded, which allows the {@link #report}
+ * to list rules that were never hit since then.</p>
+ *
+ * <p>When the snapshot of a stage is replaced, {@link #retain(String, ToggleSnapshot)} removes the
+ * counters that no current snapshot of any stage references, so that renamed and deleted rules do not
+ * leave series behind.</p>
+ */
+@ApplicationScoped
+public class ToggleAnalytics {
+
+    static final String METRIC_NAME = "abstratium.toggles.rule.hits";
+
+    /** Rule name used for evaluations where the toggle was enabled but no rule matched. */
+    static final String NO_MATCH = "(no match)";
+
+    /** Rule name used for evaluations of a disabled toggle. */
+    static final String DISABLED = "(disabled)";
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    private final Map<HitKey, Hits> counters = new ConcurrentHashMap<>();
+
+    /** The counters referenced by the current snapshot of each stage. */
+    private final Map<String, Set<HitKey>> keysByStage = new HashMap<>();
+
+    /**
+     * Returns the counter for the given (toggle, rule), creating and registering it as a metric on
+     * first use. Called while building a snapshot, never on the evaluation path.
+     */
+    synchronized LongAdder counterFor(String toggleName, String ruleName) {
+        return counters.computeIfAbsent(new HitKey(toggleName, String.valueOf(ruleName)), this::register).adder();
+    }
+
+    /**
+     * Records that the snapshot is now the one of the stage, and removes the counters that neither it nor
+     * the snapshot of another stage references.
+     */
+    synchronized void retain(String stage, ToggleSnapshot snapshot) {
+        Set<HitKey> keys = new HashSet<>();
+        for (CompiledToggle toggle : snapshot.getToggles()) {
+            for (CompiledRule rule : toggle.rules()) {
+                keys.add(keep(new HitKey(toggle.name(), String.valueOf(rule.row().ruleName())), rule.hits()));
+            }
+            keys.add(keep(new HitKey(toggle.name(), toggle.enabled() ? NO_MATCH : DISABLED), toggle.noMatchHits()));
+        }
+        keysByStage.put(stage, keys);
+        Set<HitKey> referenced = new HashSet<>();
+        keysByStage.values().forEach(referenced::addAll);
+        counters.entrySet().removeIf(entry -> {
+            if (referenced.contains(entry.getKey())) {
+                return false;
+            }
+            meterRegistry.remove(entry.getValue().counter());
+            return true;
+        });
+    }
+
+    /**
+     * Registers the counter of the snapshot again if another stage's snapshot removed it since it was built.
+     */
+    private HitKey keep(HitKey key, LongAdder adder) {
+        counters.computeIfAbsent(key, k -> register(k, adder));
+        return key;
+    }
+
+    private Hits register(HitKey key) {
+        return register(key, new LongAdder());
+    }
+
+    private Hits register(HitKey key, LongAdder adder) {
+        FunctionCounter counter = FunctionCounter.builder(METRIC_NAME, adder, LongAdder::sum)
+                .description("Number of toggle evaluations that ended with the given rule")
+                .tags("toggle", key.toggle(), "rule", key.rule())
+                .register(meterRegistry);
+        return new Hits(adder, counter);
+    }
+
+    /**
+     * Builds a report of the hits of every rule in the given snapshot, ordered by toggle and priority.
+     */
+    public Report report(ToggleSnapshot snapshot) {
+        List<RuleHits> rules = new ArrayList<>();
+        List<RuleHits> neverHit = new ArrayList<>();
+        List<CompiledToggle> toggles = new ArrayList<>(snapshot.getToggles());
+        toggles.sort(Comparator.comparing(CompiledToggle::name));
+        for (CompiledToggle toggle : toggles) {
+            for (CompiledRule rule : toggle.rules()) {
+                long total = rule.hits().sum();
+                RuleHits hits = new RuleHits(toggle.name(), rule.row().ruleName(), rule.row().priority(),
+                        rule.row().value(), total - rule.hitsAtLoad(), total);
+                rules.add(hits);
+                if (hits.hitsSinceLoad() == 0) {
+                    neverHit.add(hits);
+                }
+            }
+            long noMatch = toggle.noMatchHits().sum();
+            rules.add(new RuleHits(toggle.name(), toggle.enabled() ? NO_MATCH : DISABLED, Integer.MAX_VALUE,
+                    "off", noMatch - toggle.noMatchHitsAtLoad(), noMatch));
+        }
+        return new Report(snapshot.getVersion(), snapshot.getLoadedAt(), rules, neverHit);
+    }
+
+    private record HitKey(String toggle, String rule) {
+    }
+
+    private record Hits(LongAdder adder, FunctionCounter counter) {
+    }
+
+    @RegisterForReflection
+    public record RuleHits(String toggle, String rule, int priority, String value, long hitsSinceLoad, long totalHits) {
+    }
+
+    @RegisterForReflection
+    public record Report(long snapshotVersion, Instant snapshotLoadedAt, List<RuleHits> rules, List<RuleHits> neverHitSinceLoad) {
+    }
+}
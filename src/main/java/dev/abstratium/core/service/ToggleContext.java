@@ -0,0 +1,58 @@
+package dev.abstratium.core.service;
+
+import java.util.Map;
+
+/**
+ * The context against which a toggle's rule criteria are matched.
+ *
+ * <p>An explicit context ({@link #of(Map)}) contains exactly the given values. A lazy context
+ * ({@link #lazy()}, {@link #lazy(Map)}) additionally resolves missing keys on demand through the
+ * registered {@link ToggleContextProvider}s, so callers no longer need to compute values such as
+ * the client IP up front just in case a rule looks at them.</p>
+ */
+public final class ToggleContext {
+
+    private static final ToggleContext LAZY = new ToggleContext(Map.of(), true);
+
+    private final Map<String, String> values;
+    private final boolean useProviders;
+
+    private ToggleContext(Map<String, String> values, boolean useProviders) {
+        this.values = values;
+        this.useProviders = useProviders;
+    }
+
+    /**
+     * @param values the complete context; missing keys match as empty strings
+     */
+    public static ToggleContext of(Map<String, String> values) {
+        return new ToggleContext(values != null ? values : Map.of(), false);
+    }
+
+    /**
+     * @return a context whose values are all resolved by {@link ToggleContextProvider}s
+     */
+    public static ToggleContext lazy() {
+        return LAZY;
+    }
+
+    /**
+     * @param values explicit values, which take precedence over those of the providers
+     */
+    public static ToggleContext lazy(Map<String, String> values) {
+        return new ToggleContext(values != null ? values : Map.of(), true);
+    }
+
+    Map<String, String> values() {
+        return values;
+    }
+
+    boolean useProviders() {
+        return useProviders;
+    }
+
+    @Override
+    public String toString() {
+        return (useProviders ? "lazy" : "explicit") + values;
+    }
+}
@@ -0,0 +1,23 @@
+package dev.abstratium.core.service;
+
+/**
+ * SPI for lazily supplying a value of the context against which toggle rule criteria are matched.
+ *
+ * <p>Implementations are CDI beans. {@link TogglesService} only calls {@link #resolve()} when a
+ * rule in the current {@link ToggleSnapshot} actually references {@link #key()} and the caller
+ * did not supply that key explicitly, so providers whose keys are not used by any rule never run.
+ * A value is resolved at most once per evaluation call.</p>
+ */
+public interface ToggleContextProvider {
+
+    /**
+     * @return the criterion key this provider supplies, e.g. {@code userId}
+     */
+    String key();
+
+    /**
+     * @return the value for the current request, or {@code null} if it is not available,
+     * in which case the criterion is matched against an empty string
+     */
+    String resolve();
+}
@@ -0,0 +1,129 @@
+package dev.abstratium.core.service;
+
+import io.opentelemetry.api.baggage.Baggage;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.sdk.trace.data.LinkData;
+import io.opentelemetry.sdk.trace.samplers.Sampler;
+import io.opentelemetry.sdk.trace.samplers.SamplingResult;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * OpenTelemetry sampler controlled by toggles, so that the sampling ratio and JDBC spans can be
+ * changed at runtime, e.g. raised for one endpoint or tenant while debugging, or lowered under load.
+ * Quarkus uses it instead of {@code quarkus.otel.traces.sampler} because it is a {@link Sampler} bean.
+ *
+ * <ul>
+ *   <li>{@value #RATIO_TOGGLE} - the ratio (0.0 to 1.0) of new traces to sample. Rules can match on
+ *   {@code path} and {@code method} of the request that starts the trace and on {@code orgId}, if
+ *   the caller sends it as W3C baggage. Defaults to {@code abstratium.tracing.sample-ratio}.</li>
+ *   <li>{@value #JDBC_TOGGLE} - whether JDBC spans are recorded (requires
+ *   {@code quarkus.datasource.jdbc.telemetry=true}). Defaults to {@code abstratium.tracing.jdbc-spans}.</li>
+ * </ul>
+ *
+ * <p>Spans with a parent follow the parent's decision. Toggles are evaluated against
+ * {@link TogglesService#getLatestSnapshot()}, so sampling never calls the toggle API; instead, at most
+ * once per cache TTL, a stale snapshot triggers an asynchronous {@link TogglesService#refresh()}. The
+ * evaluations do not count as {@link ToggleAnalytics} hits.</p>
+ */
+@ApplicationScoped
+public class ToggleSampler implements Sampler {
+
+    static final String RATIO_TOGGLE = "tracing-sample-ratio";
+    static final String JDBC_TOGGLE = "tracing-jdbc-spans";
+
+    private static final AttributeKey<String> URL_PATH = AttributeKey.stringKey("url.path");
+    private static final AttributeKey<String> HTTP_TARGET = AttributeKey.stringKey("http.target");
+    private static final AttributeKey<String> HTTP_METHOD = AttributeKey.stringKey("http.request.method");
+    private static final AttributeKey<String> DB_SYSTEM = AttributeKey.stringKey("db.system");
+    private static final AttributeKey<String> DB_SYSTEM_NAME = AttributeKey.stringKey("db.system.name");
+
+    @ConfigProperty(name = "abstratium.tracing.sample-ratio", defaultValue = "1.0")
+    double defaultRatio;
+
+    @ConfigProperty(name = "abstratium.tracing.jdbc-spans", defaultValue = "true")
+    boolean defaultJdbcSpans;
+
+    @ConfigProperty(name = "abstratium.toggles.cache.ttl-seconds", defaultValue = "30")
+    long cacheTtlSeconds;
+
+    @Inject
+    TogglesService togglesService;
+
+    /** One ratio sampler per distinct ratio found in the toggles. */
+    private final Map<Double, Sampler> ratioSamplers = new ConcurrentHashMap<>();
+
+    private final AtomicLong nextStalenessCheck = new AtomicLong(System.nanoTime());
+
+    @Override
+    public SamplingResult shouldSample(Context parentContext, String traceId, String name, SpanKind spanKind,
+            Attributes attributes, List<LinkData> parentLinks) {
+        ToggleSnapshot snapshot = togglesService.getLatestSnapshot();
+        refreshIfStale(snapshot);
+
+        if (isJdbcSpan(attributes)
+                && !togglesService.getBoolean(snapshot, JDBC_TOGGLE, context(parentContext, attributes), defaultJdbcSpans, false)) {
+            return SamplingResult.drop();
+        }
+
+        SpanContext parent = Span.fromContext(parentContext).getSpanContext();
+        if (parent.isValid()) {
+            return parent.isSampled() ? SamplingResult.recordAndSample() : SamplingResult.drop();
+        }
+
+        double ratio = togglesService.getDouble(snapshot, RATIO_TOGGLE, context(parentContext, attributes), defaultRatio,
+                false);
+        return ratioSampler(ratio).shouldSample(parentContext, traceId, name, spanKind, attributes, parentLinks);
+    }
+
+    @Override
+    public String getDescription() {
+        return "ToggleSampler{ratio=" + RATIO_TOGGLE + ",jdbc=" + JDBC_TOGGLE + "}";
+    }
+
+    private Sampler ratioSampler(double ratio) {
+        double clamped = Double.isNaN(ratio) ? defaultRatio : Math.max(0.0, Math.min(1.0, ratio));
+        return ratioSamplers.computeIfAbsent(clamped, Sampler::traceIdRatioBased);
+    }
+
+    private ToggleContext context(Context parentContext, Attributes attributes) {
+        String path = attributes.get(URL_PATH);
+        if (path == null) {
+            path = attributes.get(HTTP_TARGET);
+        }
+        String method = attributes.get(HTTP_METHOD);
+        String orgId = Baggage.fromContext(parentContext).getEntryValue("orgId");
+        return ToggleContext.of(Map.of(
+                "path", path != null ? path : "",
+                "method", method != null ? method : "",
+                "orgId", orgId != null ? orgId : ""));
+    }
+
+    private static boolean isJdbcSpan(Attributes attributes) {
+        return attributes.get(DB_SYSTEM) != null || attributes.get(DB_SYSTEM_NAME) != null;
+    }
+
+    private void refreshIfStale(ToggleSnapshot snapshot) {
+        long now = System.nanoTime();
+        long next = nextStalenessCheck.get();
+        if (now - next < 0 || !nextStalenessCheck.compareAndSet(next, now + TimeUnit.SECONDS.toNanos(cacheTtlSeconds))) {
+            return;
+        }
+        if (snapshot.getLoadedAt().plusSeconds(cacheTtlSeconds).isBefore(Instant.now())) {
+            togglesService.refresh();
+        }
+    }
+}
@@ -0,0 +1,282 @@
+package dev.abstratium.core.service;
+
+import io.quarkus.runtime.configuration.DurationConverter;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Immutable, pre-compiled view of one toggle API response.
+ *
+ * <p>Built once per upstream fetch by {@link TogglesService}: rows are grouped by toggle name,
+ * sorted by priority and their criteria patterns are compiled up front, so that evaluating a
+ * toggle only walks the rules. A snapshot is pinned for the duration of an HTTP request or a
+ * transaction so that all evaluations within that unit of work see the same set of values.</p>
+ */
+public final class ToggleSnapshot {
+
+    private static final ToggleSnapshot EMPTY = new ToggleSnapshot(Map.of(), Set.of(), 0, Map.of(), 0, 0L, Instant.EPOCH);
+
+    private final Map<String, CompiledToggle> toggles;
+    private final Set<String> referencedKeys;
+    private final int rowCount;
+    private final Map<String, Integer> rowsPerStage;
+    private final int sizeBytes;
+    private final long version;
+    private final Instant loadedAt;
+
+    private ToggleSnapshot(Map<String, CompiledToggle> toggles, Set<String> referencedKeys, int rowCount,
+            Map<String, Integer> rowsPerStage, int sizeBytes, long version, Instant loadedAt) {
+        this.toggles = toggles;
+        this.referencedKeys = referencedKeys;
+        this.rowCount = rowCount;
+        this.rowsPerStage = rowsPerStage;
+        this.sizeBytes = sizeBytes;
+        this.version = version;
+        this.loadedAt = loadedAt;
+    }
+
+    /**
+     * @return a snapshot without any toggles, used when the toggle API cannot be reached
+     */
+    public static ToggleSnapshot empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Compiles the given response into a snapshot.
+     *
+     * @param response the deserialized toggle API response
+     * @param sizeBytes the size of the raw response body, used to weigh the snapshot in the cache
+     * @param version a monotonically increasing number identifying this snapshot
+     * @param analytics provides the hit counters attached to the compiled rules
+     */
+    static ToggleSnapshot build(ToggleResponse response, int sizeBytes, long version, ToggleAnalytics analytics) {
+        List<ToggleRow> rows = response == null || response.toggles() == null ? List.of() : response.toggles();
+
+        Map<String, List<ToggleRow>> rowsByName = new HashMap<>();
+        Map<String, Integer> rowsPerStage = new HashMap<>();
+        for (ToggleRow row : rows) {
+            if (row == null || row.toggleName() == null) {
+                continue;
+            }
+            rowsByName.computeIfAbsent(row.toggleName(), k -> new ArrayList<>()).add(row);
+            rowsPerStage.merge(String.valueOf(row.stageName()), 1, Integer::sum);
+        }
+
+        Map<String, CompiledToggle> toggles = new HashMap<>();
+        Set<String> referencedKeys = new HashSet<>();
+        for (Map.Entry<String, List<ToggleRow>> entry : rowsByName.entrySet()) {
+            List<ToggleRow> sorted = entry.getValue().stream()
+                    .sorted(Comparator.comparingInt(ToggleRow::priority))
+                    .toList();
+            String name = entry.getKey();
+            List<CompiledRule> rules = sorted.stream()
+                    .map(row -> CompiledRule.compile(row, analytics.counterFor(name, row.ruleName())))
+                    .toList();
+            rules.forEach(rule -> rule.criteria().forEach(criterion -> referencedKeys.add(criterion.key())));
+            ToggleRow first = sorted.get(0);
+            LongAdder noMatchHits = analytics.counterFor(name,
+                    first.toggleEnabled() ? ToggleAnalytics.NO_MATCH : ToggleAnalytics.DISABLED);
+            toggles.put(name, new CompiledToggle(name, first.toggleEnabled(), first.stageName(), rules,
+                    noMatchHits, noMatchHits.sum()));
+        }
+        referencedKeys.remove(null);
+        return new ToggleSnapshot(Map.copyOf(toggles), Set.copyOf(referencedKeys), rows.size(),
+                Map.copyOf(rowsPerStage), sizeBytes, version, Instant.now());
+    }
+
+    /**
+     * @return the compiled toggle with the given name, or {@code null} if the snapshot does not contain it
+     */
+    CompiledToggle get(String toggleName) {
+        return toggles.get(toggleName);
+    }
+
+    Collection<CompiledToggle> getToggles() {
+        return toggles.values();
+    }
+
+    /**
+     * @return the criterion keys referenced by at least one rule; context providers for other keys are never called
+     */
+    public Set<String> getReferencedKeys() {
+        return referencedKeys;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * @return the number of rows per stage name, as reported in the rows of the response
+     */
+    public Map<String, Integer> getRowsPerStage() {
+        return rowsPerStage;
+    }
+
+    public int getSizeBytes() {
+        return sizeBytes;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public Instant getLoadedAt() {
+        return loadedAt;
+    }
+
+    /**
+     * All rows of one toggle, sorted by priority. The enabled flag and stage are taken from the
+     * first row, as per the abstoggle algorithm. {@code noMatchHits} counts evaluations that
+     * returned "off" because the toggle is disabled or no rule matched.
+     */
+    record CompiledToggle(String name, boolean enabled, String stageName, List<CompiledRule> rules,
+            LongAdder noMatchHits, long noMatchHitsAtLoad) {
+    }
+
+    /**
+     * One rule (row) of a toggle with its criteria compiled and its value parsed into the typed
+     * forms offered by {@link TogglesService}. Numbers, booleans and durations are parsed when the
+     * snapshot is built; JSON values are parsed on first use per target type and then kept for the
+     * lifetime of the snapshot. A field is {@code null} when the value does not parse as that type.
+     * {@code hits} is the {@link ToggleAnalytics} counter of this rule, {@code hitsAtLoad} its value
+     * when the snapshot was built.
+     */
+    record CompiledRule(ToggleRow row, List<CompiledCriterion> criteria,
+            Long longValue, Double doubleValue, Boolean booleanValue, Duration durationValue,
+            Map<Class<?>, Object> jsonValues, Set<Class<?>> reportedParseFailures,
+            LongAdder hits, long hitsAtLoad) {
+
+        static CompiledRule compile(ToggleRow row, LongAdder hits) {
+            List<CompiledCriterion> criteria = row.ruleCriteria() == null
+                    ? List.of()
+                    : row.ruleCriteria().stream().map(CompiledCriterion::compile).toList();
+            String value = row.value() == null ? null : row.value().trim();
+            return new CompiledRule(row, criteria,
+                    parseLong(value), parseDouble(value), parseBoolean(value), parseDuration(value),
+                    new ConcurrentHashMap<>(), ConcurrentHashMap.newKeySet(),
+                    hits, hits.sum());
+        }
+
+        /**
+         * @return true the first time a parse failure for the given type is reported for this rule
+         */
+        boolean firstParseFailure(Class<?> type) {
+            return reportedParseFailures.add(type);
+        }
+
+        private static Long parseLong(String value) {
+            if (value == null || value.isEmpty()) {
+                return null;
+            }
+            try {
+                return Long.valueOf(value);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        private static Double parseDouble(String value) {
+            if (value == null || value.isEmpty()) {
+                return null;
+            }
+            try {
+                return Double.valueOf(value);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        private static Boolean parseBoolean(String value) {
+            if (value == null) {
+                return null;
+            }
+            return switch (value.toLowerCase(Locale.ROOT)) {
+                case "true", "on", "yes", "enabled", "1" -> Boolean.TRUE;
+                case "false", "off", "no", "disabled", "0" -> Boolean.FALSE;
+                default -> null;
+            };
+        }
+
+        private static Duration parseDuration(String value) {
+            if (value == null || value.isEmpty()) {
+                return null;
+            }
+            try {
+                // same syntax as Quarkus configuration, e.g. "30s", "5m", "PT1H" or plain seconds
+                return DurationConverter.parseDuration(value);
+            } catch (RuntimeException e) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * A criterion whose value has been compiled into a pattern. Slash-delimited values
+     * ({@code /regex/flags}) honour the flags; values that are not valid regular expressions
+     * are matched literally.
+     */
+    record CompiledCriterion(String key, String rawValue, Pattern pattern) {
+
+        static CompiledCriterion compile(RuleCriterion criterion) {
+            String value = criterion.criterionValue();
+            return new CompiledCriterion(criterion.criterionKey(), value, compilePattern(value));
+        }
+
+        boolean matches(String clientValue) {
+            if (rawValue == null) {
+                return false;
+            }
+            if (pattern == null) {
+                return rawValue.equals(clientValue);
+            }
+            return pattern.matcher(clientValue).matches();
+        }
+
+        private static Pattern compilePattern(String value) {
+            if (value == null) {
+                return null;
+            }
+            if (value.startsWith("/") && value.lastIndexOf('/') > 0) {
+                int lastSlash = value.lastIndexOf('/');
+                String regex = value.substring(1, lastSlash);
+                String flags = value.substring(lastSlash + 1);
+                int javaFlags = 0;
+                for (char c : flags.toCharArray()) {
+                    switch (c) {
+                        case 'i' -> javaFlags |= Pattern.CASE_INSENSITIVE;
+                        case 'm' -> javaFlags |= Pattern.MULTILINE;
+                        case 's' -> javaFlags |= Pattern.DOTALL;
+                        case 'x' -> javaFlags |= Pattern.COMMENTS;
+                        case 'u' -> javaFlags |= Pattern.UNICODE_CASE;
+                    }
+                }
+                try {
+                    return Pattern.compile(regex, javaFlags);
+                } catch (PatternSyntaxException e) {
+                    return null;
+                }
+            }
+            try {
+                return Pattern.compile(value);
+            } catch (PatternSyntaxException e) {
+                return null;
+            }
+        }
+    }
+}
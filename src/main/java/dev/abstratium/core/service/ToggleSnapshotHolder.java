@@ -0,0 +1,23 @@
+package dev.abstratium.core.service;
+
+import jakarta.enterprise.context.RequestScoped;
+
+/**
+ * Request-scoped holder for the {@link ToggleSnapshot} that {@link TogglesService} pinned for
+ * the current HTTP request. The first toggle evaluation in a request fills it; all further
+ * evaluations in the same request reuse it, even if the cache is refreshed in the meantime.
+ */
+@RequestScoped
+public class ToggleSnapshotHolder {
+
+    private ToggleSnapshot snapshot;
+
+    public ToggleSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    public void setSnapshot(ToggleSnapshot snapshot) {
+        this.snapshot = snapshot;
+    }
+
+}
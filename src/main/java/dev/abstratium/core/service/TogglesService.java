@@ -2,38 +2,55 @@ package dev.abstratium.core.service;
 
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import dev.abstratium.core.service.ToggleSnapshot.CompiledCriterion;
+import dev.abstratium.core.service.ToggleSnapshot.CompiledRule;
+import dev.abstratium.core.service.ToggleSnapshot.CompiledToggle;
+import io.quarkus.arc.Arc;
+import io.quarkus.runtime.annotations.RegisterForReflection;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.inject.Any;
+import jakarta.enterprise.inject.Instance;
 import jakarta.inject.Inject;
+import jakarta.transaction.TransactionSynchronizationRegistry;
 import jakarta.ws.rs.client.Client;
 import jakarta.ws.rs.client.ClientBuilder;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.context.ManagedExecutor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import io.quarkus.oidc.IdToken;
-import org.eclipse.microprofile.jwt.JsonWebToken;
 
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
-import java.util.regex.Pattern;
-import java.util.regex.PatternSyntaxException;
+import java.util.concurrent.atomic.AtomicLong;
 
 @ApplicationScoped
 public class TogglesService {
 
     private static final Logger log = LoggerFactory.getLogger(TogglesService.class);
 
+    private static final String SNAPSHOT_RESOURCE_KEY = TogglesService.class.getName() + ".snapshot";
+
+    private static final Object PARSE_FAILED = new Object();
+
     @ConfigProperty(name = "abstratium.toggles.api.url")
     String togglesApiUrl;
 
@@ -53,11 +70,30 @@ public class TogglesService {
     ObjectMapper objectMapper;
 
     @Inject
-    @IdToken
-    JsonWebToken idToken;
+    @Any
+    Instance<ToggleContextProvider> contextProviders;
+
+    @Inject
+    ToggleSnapshotHolder snapshotHolder;
+
+    @Inject
+    TransactionSynchronizationRegistry transactionRegistry;
+
+    @Inject
+    ToggleAnalytics analytics;
+
+    @Inject
+    ManagedExecutor executor;
 
     private Client client;
-    private Cache<String, String> cache;
+    private Cache<String, ToggleSnapshot> cache;
+    private final AtomicLong snapshotVersions = new AtomicLong();
+    private Map<String, ToggleContextProvider> providersByKey;
+    private volatile ToggleSnapshot latestSnapshot = ToggleSnapshot.empty();
+    private volatile FetchStatus lastFetch;
+
+    /** Fetches from the toggle API currently running, per stage. Callers arriving meanwhile wait for them. */
+    private final Map<String, CompletableFuture<ToggleSnapshot>> fetchesInFlight = new ConcurrentHashMap<>();
 
     public TogglesService() {
     }
@@ -70,9 +106,21 @@ public class TogglesService {
                 .build();
         this.cache = CacheBuilder.newBuilder()
                 .expireAfterWrite(Duration.ofSeconds(cacheTtlSeconds))
+                // Guava splits the maximum weight between its segments; with the default of four, a snapshot
+                // larger than a quarter of max-size-bytes would be evicted as soon as it is cached
+                .concurrencyLevel(1)
                 .maximumWeight(maxCacheSizeBytes)
-                .weigher((String key, String value) -> value.getBytes(StandardCharsets.UTF_8).length)
+                .weigher((String key, ToggleSnapshot value) -> value.getSizeBytes())
                 .build();
+        Map<String, ToggleContextProvider> providers = new HashMap<>();
+        for (ToggleContextProvider provider : contextProviders) {
+            ToggleContextProvider previous = providers.put(provider.key(), provider);
+            if (previous != null) {
+                log.warn("init: toggle context key '{}' is provided by both {} and {}, using the latter",
+                        provider.key(), previous.getClass().getName(), provider.getClass().getName());
+            }
+        }
+        this.providersByKey = Map.copyOf(providers);
     }
 
     @PreDestroy
@@ -83,64 +131,415 @@ public class TogglesService {
     }
 
     /**
-     * Clears the toggle cache. Used for testing.
+     * Clears the toggle cache, including a snapshot pinned to the current request. Used for testing.
      */
     void clearCache() {
         cache.invalidateAll();
+        if (Arc.container().requestContext().isActive()) {
+            snapshotHolder.setSnapshot(null);
+        }
     }
 
     /**
-     * Gets toggle values using default context derived from the current JWT token.
-     * The userId is set to the email from the JWT if present, otherwise "anonymous".
+     * Gets toggle values using a lazy context: keys referenced by rules are resolved on demand by the
+     * registered {@link ToggleContextProvider}s, e.g. userId (the email from the JWT if present,
+     * otherwise "anonymous"), orgId, clientIp and stage.
      *
      * @param toggleNames set of toggle names to evaluate
      * @return map of toggle names to their values
      */
     public Map<String, String> getToggleValues(Set<String> toggleNames) {
-        Map<String, String> defaultContext = new HashMap<>();
-        String userId = idToken != null && idToken.getClaim("email") != null
-                ? idToken.getClaim("email")
-                : "anonymous";
-        defaultContext.put("userId", userId);
-        return getToggleValues(toggleNames, defaultContext);
+        return evaluateToggles(toggleNames, ToggleContext.lazy());
     }
 
+    /**
+     * Gets toggle values using exactly the given context. Keys missing from it match as empty strings.
+     */
     public Map<String, String> getToggleValues(Set<String> toggleNames, Map<String, String> clientContext) {
+        return evaluateToggles(toggleNames, ToggleContext.of(clientContext));
+    }
+
+    /**
+     * Gets toggle values using the given explicit or lazy context.
+     *
+     * @param toggleNames set of toggle names to evaluate
+     * @param clientContext the context against which rule criteria are matched
+     * @return map of toggle names to their values
+     */
+    public Map<String, String> evaluateToggles(Set<String> toggleNames, ToggleContext clientContext) {
         if (toggleNames == null || toggleNames.isEmpty()) {
-            log.debug("getToggleValues: empty toggle names, returning empty map");
+            log.debug("evaluateToggles: empty toggle names, returning empty map");
             return Map.of();
         }
 
-        log.debug("getToggleValues: evaluating {} toggles with context {}", toggleNames, clientContext);
-        ToggleResponse response = fetchToggles();
+        log.debug("evaluateToggles: evaluating {} toggles with context {}", toggleNames, clientContext);
+        ToggleSnapshot snapshot = currentSnapshot();
+        ContextLookup lookup = new ContextLookup(clientContext, snapshot);
         Map<String, String> result = new HashMap<>();
         for (String name : toggleNames) {
-            String value = evaluateToggle(name, response, clientContext);
-            log.debug("getToggleValues: toggle '{}' = '{}'", name, value);
+            CompiledRule rule = evaluateToggle(name, snapshot, lookup);
+            String value = rule != null ? rule.row().value() : "off";
+            log.debug("evaluateToggles: toggle '{}' = '{}'", name, value);
             result.put(name, value);
         }
-        log.debug("getToggleValues: completed evaluation for {} toggles", toggleNames.size());
+        log.debug("evaluateToggles: completed evaluation for {} toggles", toggleNames.size());
         return result;
     }
 
-    private ToggleResponse fetchToggles() {
-        String stage = stageService.getStage();
-        log.debug("fetchToggles: fetching toggles for stage '{}'", stage);
+    /**
+     * Evaluates a toggle and returns its value as an int, using a lazy context.
+     *
+     * @return the parsed value, or {@code defaultValue} if the toggle is off, no rule matches
+     * or the matching value is not a valid int, e.g. a long outside the range of ints
+     */
+    public int getInt(String toggleName, int defaultValue) {
+        return getInt(toggleName, ToggleContext.lazy(), defaultValue);
+    }
+
+    public int getInt(String toggleName, ToggleContext clientContext, int defaultValue) {
+        CompiledRule rule = evaluateTyped(toggleName, clientContext);
+        if (rule == null) {
+            return defaultValue;
+        }
+        Long value = rule.longValue();
+        if (value == null || value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            reportParseFailure(toggleName, rule, Integer.class, null);
+            return defaultValue;
+        }
+        return value.intValue();
+    }
+
+    /**
+     * Evaluates a toggle and returns its value as a long, using a lazy context.
+     *
+     * @return the parsed value, or {@code defaultValue} if the toggle is off, no rule matches
+     * or the matching value is not a valid long
+     */
+    public long getLong(String toggleName, long defaultValue) {
+        return getLong(toggleName, ToggleContext.lazy(), defaultValue);
+    }
+
+    public long getLong(String toggleName, ToggleContext clientContext, long defaultValue) {
+        CompiledRule rule = evaluateTyped(toggleName, clientContext);
+        if (rule == null) {
+            return defaultValue;
+        }
+        if (rule.longValue() == null) {
+            reportParseFailure(toggleName, rule, Long.class, null);
+            return defaultValue;
+        }
+        return rule.longValue();
+    }
+
+    /**
+     * Evaluates a toggle and returns its value as a double, using a lazy context.
+     *
+     * @return the parsed value, or {@code defaultValue} if the toggle is off, no rule matches
+     * or the matching value is not a valid number
+     */
+    public double getDouble(String toggleName, double defaultValue) {
+        return getDouble(toggleName, ToggleContext.lazy(), defaultValue);
+    }
+
+    public double getDouble(String toggleName, ToggleContext clientContext, double defaultValue) {
+        return getDouble(currentSnapshot(), toggleName, clientContext, defaultValue);
+    }
 
-        String cachedJson = cache.getIfPresent(stage);
-        if (cachedJson != null) {
-            log.debug("fetchToggles: cache HIT for stage '{}'", stage);
+    /**
+     * Evaluates a toggle against the given snapshot rather than the one pinned to the current unit of
+     * work, e.g. with {@link #getLatestSnapshot()} on hot paths that must never call the toggle API.
+     */
+    public double getDouble(ToggleSnapshot snapshot, String toggleName, ToggleContext clientContext, double defaultValue) {
+        return getDouble(snapshot, toggleName, clientContext, defaultValue, true);
+    }
+
+    /**
+     * @param countHit false for evaluations on behalf of the framework, e.g. by the {@link ToggleSampler} for every
+     *        span, which would otherwise drown the {@link ToggleAnalytics} hits of the application
+     */
+    double getDouble(ToggleSnapshot snapshot, String toggleName, ToggleContext clientContext, double defaultValue,
+            boolean countHit) {
+        CompiledRule rule = evaluateTyped(snapshot, toggleName, clientContext, countHit);
+        if (rule == null) {
+            return defaultValue;
+        }
+        if (rule.doubleValue() == null) {
+            reportParseFailure(toggleName, rule, Double.class, null);
+            return defaultValue;
+        }
+        return rule.doubleValue();
+    }
+
+    /**
+     * Evaluates a toggle and returns its value as a boolean, using a lazy context.
+     * Accepts {@code true/false}, {@code on/off}, {@code yes/no}, {@code enabled/disabled} and {@code 1/0}.
+     * Unlike the other typed accessors, a toggle that is off returns {@code false} rather than the default.
+     *
+     * @return the parsed value, or {@code defaultValue} if no toggle exists or the matching value
+     * is not a valid boolean
+     */
+    public boolean getBoolean(String toggleName, boolean defaultValue) {
+        return getBoolean(toggleName, ToggleContext.lazy(), defaultValue);
+    }
+
+    public boolean getBoolean(String toggleName, ToggleContext clientContext, boolean defaultValue) {
+        return getBoolean(currentSnapshot(), toggleName, clientContext, defaultValue);
+    }
+
+    /**
+     * Evaluates a toggle against the given snapshot rather than the one pinned to the current unit of
+     * work, e.g. with {@link #getLatestSnapshot()} on hot paths that must never call the toggle API.
+     */
+    public boolean getBoolean(ToggleSnapshot snapshot, String toggleName, ToggleContext clientContext, boolean defaultValue) {
+        return getBoolean(snapshot, toggleName, clientContext, defaultValue, true);
+    }
+
+    /**
+     * @param countHit false for evaluations on behalf of the framework, see
+     *        {@link #getDouble(ToggleSnapshot, String, ToggleContext, double, boolean)}
+     */
+    boolean getBoolean(ToggleSnapshot snapshot, String toggleName, ToggleContext clientContext, boolean defaultValue,
+            boolean countHit) {
+        if (snapshot.get(toggleName) == null) {
+            return defaultValue;
+        }
+        CompiledRule rule = evaluateToggle(toggleName, snapshot, new ContextLookup(clientContext, snapshot), countHit);
+        if (rule == null) {
+            return false;
+        }
+        if (rule.booleanValue() == null) {
+            reportParseFailure(toggleName, rule, Boolean.class, null);
+            return defaultValue;
+        }
+        return rule.booleanValue();
+    }
+
+    /**
+     * Evaluates a toggle and returns its value as a duration, using a lazy context.
+     * Accepts the same syntax as Quarkus configuration, e.g. {@code 30s}, {@code 5m}, {@code PT1H}
+     * or a plain number of seconds.
+     *
+     * @return the parsed value, or {@code defaultValue} if the toggle is off, no rule matches
+     * or the matching value is not a valid duration
+     */
+    public Duration getDuration(String toggleName, Duration defaultValue) {
+        return getDuration(toggleName, ToggleContext.lazy(), defaultValue);
+    }
+
+    public Duration getDuration(String toggleName, ToggleContext clientContext, Duration defaultValue) {
+        CompiledRule rule = evaluateTyped(toggleName, clientContext);
+        if (rule == null) {
+            return defaultValue;
+        }
+        if (rule.durationValue() == null) {
+            reportParseFailure(toggleName, rule, Duration.class, null);
+            return defaultValue;
+        }
+        return rule.durationValue();
+    }
+
+    /**
+     * Evaluates a toggle and deserializes its JSON value into the given type, using a lazy context.
+     * The deserialized object is cached with the snapshot and shared between callers, so it must be
+     * treated as read-only.
+     *
+     * @return the deserialized value, or empty if the toggle is off, no rule matches or the matching
+     * value cannot be deserialized into the given type
+     */
+    public <T> Optional<T> getJson(String toggleName, Class<T> type) {
+        return getJson(toggleName, ToggleContext.lazy(), type);
+    }
+
+    public <T> Optional<T> getJson(String toggleName, ToggleContext clientContext, Class<T> type) {
+        CompiledRule rule = evaluateTyped(toggleName, clientContext);
+        if (rule == null) {
+            return Optional.empty();
+        }
+        Object value = rule.jsonValues().computeIfAbsent(type, t -> {
             try {
-                ToggleResponse cached = objectMapper.readValue(cachedJson, ToggleResponse.class);
-                log.debug("fetchToggles: returning {} toggles from cache", cached.toggles().size());
-                return cached;
+                Object parsed = objectMapper.readValue(rule.row().value(), t);
+                return parsed != null ? parsed : PARSE_FAILED;
             } catch (Exception e) {
-                log.warn("fetchToggles: failed to deserialize cached toggle response, invalidating cache", e);
-                cache.invalidate(stage);
+                reportParseFailure(toggleName, rule, t, e);
+                return PARSE_FAILED;
+            }
+        });
+        return value == PARSE_FAILED ? Optional.empty() : Optional.of(type.cast(value));
+    }
+
+    /**
+     * Evaluates a toggle for one of the typed accessors. A matching rule whose value is "off"
+     * is treated like no match, so that callers get their default value.
+     */
+    private CompiledRule evaluateTyped(String toggleName, ToggleContext clientContext) {
+        return evaluateTyped(currentSnapshot(), toggleName, clientContext);
+    }
+
+    private CompiledRule evaluateTyped(ToggleSnapshot snapshot, String toggleName, ToggleContext clientContext) {
+        return evaluateTyped(snapshot, toggleName, clientContext, true);
+    }
+
+    private CompiledRule evaluateTyped(ToggleSnapshot snapshot, String toggleName, ToggleContext clientContext,
+            boolean countHit) {
+        CompiledRule rule = evaluateToggle(toggleName, snapshot, new ContextLookup(clientContext, snapshot), countHit);
+        if (rule == null || rule.row().value() == null || "off".equals(rule.row().value())) {
+            return null;
+        }
+        return rule;
+    }
+
+    /**
+     * Logs a parse failure once per rule, type and snapshot, rather than on every evaluation.
+     */
+    private void reportParseFailure(String toggleName, CompiledRule rule, Class<?> type, Exception cause) {
+        if (rule.firstParseFailure(type)) {
+            log.warn("toggle '{}' rule '{}' has value '{}' which is not a valid {}, using the default value{}",
+                    toggleName, rule.row().ruleName(), rule.row().value(), type.getSimpleName(),
+                    cause != null ? ": " + cause.getMessage() : "");
+        }
+    }
+
+    /**
+     * @return the most recently fetched snapshot, without consulting the cache or the toggle API.
+     * Empty until the first successful fetch.
+     */
+    public ToggleSnapshot getLatestSnapshot() {
+        return latestSnapshot;
+    }
+
+    /**
+     * @return hit counts of every rule in the most recently fetched snapshot
+     */
+    public ToggleAnalytics.Report getAnalyticsReport() {
+        return analytics.report(latestSnapshot);
+    }
+
+    /**
+     * Fetches the toggles of the current stage from the toggle API in the background and replaces the
+     * cached snapshot, without waiting for the cache entry to expire. If a fetch for the stage is already
+     * running, no second upstream call is made and the returned future completes with that fetch.
+     * Snapshots already pinned to a request or transaction are not affected. If the fetch fails, the
+     * cached snapshot is kept.
+     *
+     * @return a future completing with the fetched snapshot, or an empty snapshot if the fetch failed
+     */
+    public CompletableFuture<ToggleSnapshot> refresh() {
+        String stage = stageService.getStage();
+        log.debug("refresh: refreshing toggles for stage '{}'", stage);
+        return fetchSingleFlight(stage, executor);
+    }
+
+    /**
+     * Evaluates a toggle against exactly the given context, for diagnostics. Uses the cached snapshot
+     * rather than the one pinned to the current unit of work and does not count towards the
+     * {@link ToggleAnalytics} hits.
+     */
+    public Evaluation explain(String toggleName, Map<String, String> clientContext) {
+        ToggleSnapshot snapshot = fetchSnapshot();
+        ToggleContext context = ToggleContext.of(clientContext);
+        CompiledToggle toggle = snapshot.get(toggleName);
+        CompiledRule rule = evaluateToggle(toggleName, snapshot, new ContextLookup(context, snapshot), false);
+        return new Evaluation(toggleName, rule != null ? rule.row().value() : "off",
+                rule != null ? rule.row().ruleName() : null,
+                toggle != null, toggle != null && toggle.enabled(),
+                snapshot.getVersion(), context.values());
+    }
+
+    /**
+     * @return the cached snapshots per stage and the outcome of the last fetch from the toggle API
+     */
+    public Status getStatus() {
+        Instant now = Instant.now();
+        List<SnapshotInfo> snapshots = new ArrayList<>();
+        cache.asMap().forEach((stage, snapshot) -> snapshots.add(new SnapshotInfo(stage, toggleContext,
+                snapshot.getVersion(), snapshot.getLoadedAt(), Duration.between(snapshot.getLoadedAt(), now).toMillis(),
+                snapshot.getSizeBytes(), snapshot.getRowCount(), snapshot.getRowsPerStage())));
+        snapshots.sort(Comparator.comparing(SnapshotInfo::stage));
+        return new Status(stageService.getStage(), toggleContext, cacheTtlSeconds, snapshots, lastFetch,
+                new TreeSet<>(fetchesInFlight.keySet()));
+    }
+
+    /**
+     * Returns the snapshot pinned to the current unit of work. Within an active HTTP request the
+     * snapshot is pinned in the request-scoped {@link ToggleSnapshotHolder}; otherwise, within an
+     * active transaction, it is pinned as a transaction resource. Outside of both, the cached
+     * snapshot is returned as is.
+     */
+    ToggleSnapshot currentSnapshot() {
+        if (Arc.container().requestContext().isActive()) {
+            ToggleSnapshot pinned = snapshotHolder.getSnapshot();
+            if (pinned == null) {
+                pinned = fetchSnapshot();
+                snapshotHolder.setSnapshot(pinned);
+                log.debug("currentSnapshot: pinned snapshot version {} to request", pinned.getVersion());
+            }
+            return pinned;
+        }
+
+        if (transactionRegistry.getTransactionKey() != null) {
+            ToggleSnapshot pinned = (ToggleSnapshot) transactionRegistry.getResource(SNAPSHOT_RESOURCE_KEY);
+            if (pinned == null) {
+                pinned = fetchSnapshot();
+                transactionRegistry.putResource(SNAPSHOT_RESOURCE_KEY, pinned);
+                log.debug("currentSnapshot: pinned snapshot version {} to transaction", pinned.getVersion());
+            }
+            return pinned;
+        }
+
+        return fetchSnapshot();
+    }
+
+    private ToggleSnapshot fetchSnapshot() {
+        String stage = stageService.getStage();
+        log.debug("fetchSnapshot: fetching toggles for stage '{}'", stage);
+
+        ToggleSnapshot cached = cache.getIfPresent(stage);
+        if (cached != null) {
+            log.debug("fetchSnapshot: cache HIT for stage '{}', snapshot version {}", stage, cached.getVersion());
+            return cached;
+        }
+
+        log.debug("fetchSnapshot: cache MISS for stage '{}'", stage);
+        return fetchSingleFlight(stage, null).join();
+    }
+
+    /**
+     * Starts a fetch for the given stage, unless one is already running, in which case that one is
+     * returned. The fetch runs on the given executor, or on the calling thread if it is {@code null}.
+     */
+    private CompletableFuture<ToggleSnapshot> fetchSingleFlight(String stage, Executor fetchExecutor) {
+        CompletableFuture<ToggleSnapshot> fetch = new CompletableFuture<>();
+        CompletableFuture<ToggleSnapshot> running = fetchesInFlight.putIfAbsent(stage, fetch);
+        if (running != null) {
+            log.debug("fetchSingleFlight: fetch for stage '{}' already running, waiting for it", stage);
+            return running;
+        }
+        Runnable task = () -> {
+            ToggleSnapshot snapshot = ToggleSnapshot.empty();
+            try {
+                snapshot = fetchFromApi(stage);
+            } finally {
+                // deregister before completing, so that callers seeing the result never join a finished fetch
+                fetchesInFlight.remove(stage, fetch);
+                fetch.complete(snapshot);
+            }
+        };
+        if (fetchExecutor == null) {
+            task.run();
+        } else {
+            try {
+                fetchExecutor.execute(task);
+            } catch (RuntimeException e) {
+                fetchesInFlight.remove(stage, fetch);
+                fetch.completeExceptionally(e);
             }
         }
+        return fetch;
+    }
 
-        log.debug("fetchToggles: cache MISS for stage '{}', calling API at {}", stage, togglesApiUrl);
+    private ToggleSnapshot fetchFromApi(String stage) {
+        log.debug("fetchFromApi: calling API at {} for stage '{}'", togglesApiUrl, stage);
+        long start = System.nanoTime();
         try {
             Response response = client.target(togglesApiUrl)
                     .path("public/toggles")
@@ -150,8 +549,9 @@ public class TogglesService {
                     .get();
 
             if (response.getStatus() != 200) {
-                log.warn("fetchToggles: API returned status {} for stage={}, returning empty response", response.getStatus(), stage);
-                return emptyResponse();
+                log.warn("fetchFromApi: API returned status {} for stage={}, returning empty snapshot", response.getStatus(), stage);
+                recordFetch(stage, start, response.getStatus(), "unexpected status " + response.getStatus(), null);
+                return ToggleSnapshot.empty();
             }
 
             // Suppress unsafe null inference: Response is not annotated for null analysis
@@ -159,119 +559,170 @@ public class TogglesService {
             String body = response.readEntity(String.class);
             ToggleResponse toggleResponse = objectMapper.readValue(body, ToggleResponse.class);
             if (toggleResponse == null) {
-                log.warn("fetchToggles: deserialized response is null, returning empty response");
-                return emptyResponse();
+                log.warn("fetchFromApi: deserialized response is null, returning empty snapshot");
+                recordFetch(stage, start, response.getStatus(), "empty response body", null);
+                return ToggleSnapshot.empty();
             }
-            log.debug("fetchToggles: received {} toggles from API, caching response", toggleResponse.toggles().size());
-            cache.put(stage, body);
-            return toggleResponse;
+            ToggleSnapshot snapshot = ToggleSnapshot.build(toggleResponse,
+                    body.getBytes(StandardCharsets.UTF_8).length, snapshotVersions.incrementAndGet(), analytics);
+            log.debug("fetchFromApi: received {} toggle rows from API, caching snapshot version {}",
+                    snapshot.getRowCount(), snapshot.getVersion());
+            cache.put(stage, snapshot);
+            analytics.retain(stage, snapshot);
+            latestSnapshot = snapshot;
+            recordFetch(stage, start, response.getStatus(), null, snapshot.getVersion());
+            return snapshot;
         } catch (Exception e) {
-            log.error("fetchToggles: failed to fetch toggles from API", e);
-            return emptyResponse();
+            log.error("fetchFromApi: failed to fetch toggles from API", e);
+            recordFetch(stage, start, null, e.getClass().getSimpleName() + ": " + e.getMessage(), null);
+            return ToggleSnapshot.empty();
         }
     }
 
-    private ToggleResponse emptyResponse() {
-        return new ToggleResponse(List.of(), new QueryMetadata(0, false));
+    private void recordFetch(String stage, long startNanos, Integer httpStatus, String error, Long snapshotVersion) {
+        lastFetch = new FetchStatus(stage, Instant.now(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos),
+                httpStatus, error == null, error, snapshotVersion);
     }
 
-    private String evaluateToggle(String toggleName, ToggleResponse response, Map<String, String> clientContext) {
-        log.debug("evaluateToggle: evaluating '{}' with {} context entries", toggleName, clientContext != null ? clientContext.size() : 0);
-
-        if (response == null || response.toggles() == null) {
-            log.debug("evaluateToggle: null response or toggles, returning 'off'");
-            return "off";
-        }
-
-        List<ToggleRow> matchingRows = response.toggles().stream()
-                .filter(r -> toggleName.equals(r.toggleName()))
-                .sorted(Comparator.comparingInt(ToggleRow::priority))
-                .toList();
+    /**
+     * @return the first matching rule, or {@code null} if the toggle is missing, disabled or no rule matches,
+     * in which case the toggle's value is "off"
+     */
+    private CompiledRule evaluateToggle(String toggleName, ToggleSnapshot snapshot, ContextLookup context) {
+        return evaluateToggle(toggleName, snapshot, context, true);
+    }
 
-        log.debug("evaluateToggle: found {} matching rows for '{}'", matchingRows.size(), toggleName);
+    private CompiledRule evaluateToggle(String toggleName, ToggleSnapshot snapshot, ContextLookup context, boolean countHit) {
+        log.debug("evaluateToggle: evaluating '{}' with context {}", toggleName, context);
 
-        if (matchingRows.isEmpty()) {
+        CompiledToggle toggle = snapshot.get(toggleName);
+        if (toggle == null) {
             log.debug("evaluateToggle: no rows found for '{}', returning 'off'", toggleName);
-            return "off";
+            return null;
         }
 
         // Check if toggle is disabled - if so, return "off" immediately (per abstoggle algorithm)
-        ToggleRow firstRow = matchingRows.get(0);
-        if (!firstRow.toggleEnabled()) {
+        if (!toggle.enabled()) {
             log.debug("evaluateToggle: toggle '{}' is disabled (from stage '{}'), returning 'off'",
-                    toggleName, firstRow.stageName());
-            return "off";
+                    toggleName, toggle.stageName());
+            if (countHit) {
+                toggle.noMatchHits().increment();
+            }
+            return null;
         }
 
         log.debug("evaluateToggle: toggle '{}' enabled (from stage '{}'), checking {} rules",
-                toggleName, firstRow.stageName(), matchingRows.size());
-
-        Map<String, String> context = clientContext != null ? clientContext : Map.of();
-        for (ToggleRow row : matchingRows) {
-            log.debug("evaluateToggle: checking rule '{}' priority={} value='{}' criteria={}",
-                    row.ruleName(), row.priority(), row.value(),
-                    row.ruleCriteria() != null ? row.ruleCriteria().size() : 0);
-            if (matchesCriteria(row.ruleCriteria(), context)) {
+                toggleName, toggle.stageName(), toggle.rules().size());
+
+        for (CompiledRule rule : toggle.rules()) {
+            ToggleRow row = rule.row();
+            if (matchesCriteria(rule.criteria(), context)) {
                 log.debug("evaluateToggle: rule '{}' MATCHED, returning '{}'", row.ruleName(), row.value());
-                return row.value();
+                if (countHit) {
+                    rule.hits().increment();
+                }
+                return rule;
             }
             log.debug("evaluateToggle: rule '{}' did not match", row.ruleName());
         }
 
         log.debug("evaluateToggle: no rules matched for '{}', returning 'off'", toggleName);
-        return "off";
-    }
-
-    private boolean matchesCriteria(List<RuleCriterion> criteria, Map<String, String> clientContext) {
-        if (criteria == null || criteria.isEmpty()) {
-            log.debug("matchesCriteria: no criteria (catch-all), returning true");
-            return true;
-        }
-        log.debug("matchesCriteria: checking {} criteria", criteria.size());
-        for (RuleCriterion criterion : criteria) {
-            String clientValue = clientContext.getOrDefault(criterion.criterionKey(), "");
-            boolean matched = matchesPattern(criterion.criterionValue(), clientValue);
-            log.debug("matchesCriteria: {}: clientValue='{}' pattern='{}' -> {}",
-                    criterion.criterionKey(), clientValue, criterion.criterionValue(), matched);
-            if (!matched) {
-                log.debug("matchesCriteria: criterion '{}' did not match, aborting", criterion.criterionKey());
+        if (countHit) {
+            toggle.noMatchHits().increment();
+        }
+        return null;
+    }
+
+    private boolean matchesCriteria(List<CompiledCriterion> criteria, ContextLookup context) {
+        // empty criteria means catch-all
+        for (CompiledCriterion criterion : criteria) {
+            String clientValue = context.get(criterion.key());
+            if (!criterion.matches(clientValue)) {
+                log.debug("matchesCriteria: criterion '{}' did not match value '{}', aborting", criterion.key(), clientValue);
                 return false;
             }
         }
-        log.debug("matchesCriteria: all {} criteria matched", criteria.size());
         return true;
     }
 
-    private boolean matchesPattern(String pattern, String value) {
-        if (pattern == null) {
-            return false;
+    /**
+     * Resolves context values for one evaluation call: explicit values first, then, for lazy
+     * contexts, the provider of a key referenced by the snapshot. Provider results are memoized
+     * so that each provider runs at most once per call.
+     */
+    private final class ContextLookup {
+
+        private final ToggleContext context;
+        private final ToggleSnapshot snapshot;
+        private Map<String, String> resolved;
+
+        ContextLookup(ToggleContext context, ToggleSnapshot snapshot) {
+            this.context = context != null ? context : ToggleContext.of(Map.of());
+            this.snapshot = snapshot;
         }
-        if (pattern.startsWith("/") && pattern.lastIndexOf('/') > 0) {
-            int lastSlash = pattern.lastIndexOf('/');
-            String regex = pattern.substring(1, lastSlash);
-            String flags = pattern.substring(lastSlash + 1);
-            int javaFlags = 0;
-            for (char c : flags.toCharArray()) {
-                switch (c) {
-                    case 'i' -> javaFlags |= Pattern.CASE_INSENSITIVE;
-                    case 'm' -> javaFlags |= Pattern.MULTILINE;
-                    case 's' -> javaFlags |= Pattern.DOTALL;
-                    case 'x' -> javaFlags |= Pattern.COMMENTS;
-                    case 'u' -> javaFlags |= Pattern.UNICODE_CASE;
-                }
+
+        String get(String key) {
+            String value = context.values().get(key);
+            if (value != null) {
+                return value;
+            }
+            if (!context.useProviders() || !snapshot.getReferencedKeys().contains(key)) {
+                return "";
+            }
+            if (resolved == null) {
+                resolved = new HashMap<>();
+            } else if (resolved.containsKey(key)) {
+                return resolved.get(key);
+            }
+            value = resolveFromProvider(key);
+            resolved.put(key, value);
+            return value;
+        }
+
+        private String resolveFromProvider(String key) {
+            ToggleContextProvider provider = providersByKey.get(key);
+            if (provider == null) {
+                return "";
             }
             try {
-                Pattern p = Pattern.compile(regex, javaFlags);
-                return p.matcher(value).matches();
-            } catch (PatternSyntaxException e) {
-                return pattern.equals(value);
+                String value = provider.resolve();
+                log.debug("ContextLookup: provider for '{}' resolved '{}'", key, value);
+                return value != null ? value : "";
+            } catch (RuntimeException e) {
+                log.warn("ContextLookup: provider for '{}' failed, using empty value", key, e);
+                return "";
             }
         }
-        try {
-            Pattern p = Pattern.compile(pattern);
-            return p.matcher(value).matches();
-        } catch (PatternSyntaxException e) {
-            return pattern.equals(value);
+
+        @Override
+        public String toString() {
+            return context.toString();
         }
     }
+
+    /**
+     * Outcome of the last call to the toggle API. {@code httpStatus} is {@code null} if no response was received.
+     */
+    @RegisterForReflection
+    public record FetchStatus(String stage, Instant finishedAt, long latencyMillis, Integer httpStatus,
+            boolean success, String error, Long snapshotVersion) {
+    }
+
+    @RegisterForReflection
+    public record SnapshotInfo(String stage, String context, long version, Instant loadedAt, long ageMillis,
+            int sizeBytes, int rowCount, Map<String, Integer> rowsPerStage) {
+    }
+
+    @RegisterForReflection
+    public record Status(String stage, String context, long cacheTtlSeconds, List<SnapshotInfo> snapshots,
+            FetchStatus lastFetch, Set<String> fetchesInProgress) {
+    }
+
+    /**
+     * Result of {@link #explain}: {@code rule} is the name of the matching rule, or {@code null} if the value is "off".
+     */
+    @RegisterForReflection
+    public record Evaluation(String toggle, String value, String rule, boolean exists, boolean enabled,
+            long snapshotVersion, Map<String, String> context) {
+    }
 }
@@ -0,0 +1,35 @@
+package dev.abstratium.core.service;
+
+import io.quarkus.arc.Arc;
+import io.quarkus.oidc.IdToken;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.inject.Instance;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.jwt.JsonWebToken;
+
+/**
+ * Supplies {@code userId}: the email from the current ID token, or "anonymous" if there is none.
+ */
+@ApplicationScoped
+public class UserIdToggleContextProvider implements ToggleContextProvider {
+
+    @Inject
+    @IdToken
+    Instance<JsonWebToken> idToken;
+
+    @Override
+    public String key() {
+        return "userId";
+    }
+
+    @Override
+    public String resolve() {
+        if (!Arc.container().requestContext().isActive()) {
+            return "anonymous";
+        }
+        // looked up per call, the token is request scoped and this provider is not
+        JsonWebToken token = idToken.isResolvable() ? idToken.get() : null;
+        Object email = token != null ? token.getClaim("email") : null;
+        return email != null ? email.toString() : "anonymous";
+    }
+}
@@ -0,0 +1,72 @@
+package dev.abstratium.core.util;
+
+import com.google.common.hash.Hashing;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Count-min sketch (Cormode and Muthukrishnan): estimates the total weight of every item of a stream in
+ * {@code width * depth} counters, however many distinct items there are. An estimate is never lower than the
+ * true weight, and with probability {@code 1 - e^-depth} exceeds it by at most {@code e / width} of the total
+ * weight.
+ *
+ * <p>Updates are lock-free.</p>
+ */
+public class CountMinSketch {
+
+    private final int width;
+    private final int depth;
+    private final AtomicLongArray counters;
+    private final LongAdder total = new LongAdder();
+
+    public CountMinSketch(int width, int depth) {
+        if (width < 1 || depth < 1) {
+            throw new IllegalArgumentException("width and depth must be at least 1");
+        }
+        this.width = width;
+        this.depth = depth;
+        this.counters = new AtomicLongArray(width * depth);
+    }
+
+    /**
+     * Adds the weight to the item.
+     *
+     * @return the estimated total weight of the item, including this weight, without hashing it again like
+     *         {@link #estimate(CharSequence)}
+     */
+    public long add(CharSequence item, long weight) {
+        long hash = Hashing.murmur3_128().hashUnencodedChars(item).asLong();
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counters.addAndGet(row * width + column(hash, row), weight));
+        }
+        total.add(weight);
+        return estimate;
+    }
+
+    /**
+     * @return the estimated total weight of the item, at least its true weight
+     */
+    public long estimate(CharSequence item) {
+        long hash = Hashing.murmur3_128().hashUnencodedChars(item).asLong();
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counters.get(row * width + column(hash, row)));
+        }
+        return estimate;
+    }
+
+    /**
+     * @return the sum of all weights added so far
+     */
+    public long total() {
+        return total.sum();
+    }
+
+    private int column(long hash, int row) {
+        // one hash function per row from two halves of a single hash (Kirsch and Mitzenmacher)
+        int combined = (int) hash + row * (int) (hash >>> 32);
+        return (combined & Integer.MAX_VALUE) % width;
+    }
+}
@@ -0,0 +1,79 @@
+package dev.abstratium.core.util;
+
+import io.quarkus.runtime.annotations.RegisterForReflection;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Finds the items with the highest total weight in a stream, in fixed memory. A
+ * {@link StripedSpaceSavingSketch} keeps the candidates, and a {@link CountMinSketch} estimates their weights:
+ * the count of a candidate that replaced another one includes the weight of the replaced one, which the
+ * count-min estimate does not, so the smaller of the two is reported.
+ *
+ * <p>Many threads can offer at once: the count-min sketch is lock-free, the candidates are striped, and
+ * every offer hashes the item once for the count-min sketch.</p>
+ */
+public class HeavyHitters {
+
+    private final StripedSpaceSavingSketch<String> candidates;
+    private final CountMinSketch weights;
+
+    /**
+     * @param capacity the number of candidates tracked
+     * @param width the width of the count-min sketch, see {@link CountMinSketch}
+     * @param depth the depth of the count-min sketch
+     */
+    public HeavyHitters(int capacity, int width, int depth) {
+        this.candidates = new StripedSpaceSavingSketch<>(capacity);
+        this.weights = new CountMinSketch(width, depth);
+    }
+
+    /**
+     * Adds the weight to the item.
+     *
+     * @return the estimated total weight of the item, including this weight
+     */
+    public long offer(String item, long weight) {
+        candidates.offer(item, weight);
+        return weights.add(item, weight);
+    }
+
+    /**
+     * @return the estimated total weight of the item
+     */
+    public long estimate(String item) {
+        return weights.estimate(item);
+    }
+
+    /**
+     * @return the sum of all weights offered so far
+     */
+    public long total() {
+        return weights.total();
+    }
+
+    /**
+     * @return the at most {@code n} items with the highest estimated weights, highest first
+     */
+    public List<Entry> top(int n) {
+        long total = total();
+        List<Entry> entries = new ArrayList<>();
+        for (SpaceSavingSketch.Entry<String> candidate : candidates.top(n)) {
+            long weight = Math.min(candidate.count(), weights.estimate(candidate.item()));
+            entries.add(new Entry(candidate.item(), weight, total > 0 ? (double) weight / total : 0));
+        }
+        entries.sort(Comparator.comparingLong(Entry::weight).reversed());
+        return entries;
+    }
+
+    /**
+     * An item with its estimated weight.
+     *
+     * @param share the estimated weight as a fraction of the total weight
+     */
+    @RegisterForReflection
+    public record Entry(String item, long weight, double share) {
+    }
+}
@@ -0,0 +1,103 @@
+package dev.abstratium.core.util;
+
+import io.quarkus.runtime.annotations.RegisterForReflection;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Space-saving heavy-hitters sketch (Metwally et al.): approximates the most frequent items of a stream
+ * with a fixed number of counters. Every item whose true weight exceeds {@code total / capacity} is
+ * guaranteed to be tracked, and the count of a tracked item overestimates its true weight by at most
+ * its {@link Entry#error()}.
+ *
+ * <p>Updates are synchronized; an update is O(1) for tracked items and O(capacity) when an untracked item
+ * replaces the smallest counter, so the capacity should stay in the hundreds. Where many threads offer
+ * items, use {@link StripedSpaceSavingSketch}.</p>
+ *
+ * @param <T> the type of the items
+ */
+public class SpaceSavingSketch<T> {
+
+    private final int capacity;
+    private final Map<T, Counter> counters;
+    private long total;
+
+    public SpaceSavingSketch(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be at least 1");
+        }
+        this.capacity = capacity;
+        this.counters = new HashMap<>(capacity * 2);
+    }
+
+    /**
+     * Adds the weight to the count of the item.
+     */
+    public synchronized void offer(T item, long weight) {
+        total += weight;
+        Counter counter = counters.get(item);
+        if (counter != null) {
+            counter.count += weight;
+            return;
+        }
+        if (counters.size() < capacity) {
+            counters.put(item, new Counter(weight, 0));
+            return;
+        }
+        Map.Entry<T, Counter> smallest = null;
+        for (Map.Entry<T, Counter> entry : counters.entrySet()) {
+            if (smallest == null || entry.getValue().count < smallest.getValue().count) {
+                smallest = entry;
+            }
+        }
+        counters.remove(smallest.getKey());
+        long min = smallest.getValue().count;
+        counters.put(item, new Counter(min + weight, min));
+    }
+
+    /**
+     * @return the at most {@code n} items with the highest counts, highest first
+     */
+    public synchronized List<Entry<T>> top(int n) {
+        List<Entry<T>> entries = new ArrayList<>(counters.size());
+        counters.forEach((item, counter) -> entries.add(new Entry<>(item, counter.count, counter.error)));
+        entries.sort(Comparator.comparingLong(Entry<T>::count).reversed());
+        return entries.size() > n ? List.copyOf(entries.subList(0, n)) : entries;
+    }
+
+    /**
+     * @return the sum of all weights offered so far
+     */
+    public synchronized long total() {
+        return total;
+    }
+
+    public synchronized void clear() {
+        counters.clear();
+        total = 0;
+    }
+
+    /**
+     * A tracked item.
+     *
+     * @param count the estimated weight, at most {@code error} more than the true weight
+     * @param error the maximum overestimation of the count
+     */
+    @RegisterForReflection
+    public record Entry<T>(T item, long count, long error) {
+    }
+
+    private static final class Counter {
+        long count;
+        final long error;
+
+        Counter(long count, long error) {
+            this.count = count;
+            this.error = error;
+        }
+    }
+}
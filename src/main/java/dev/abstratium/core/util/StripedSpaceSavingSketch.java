@@ -0,0 +1,89 @@
+package dev.abstratium.core.util;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A {@link SpaceSavingSketch} for many threads: items are partitioned by hash over independent stripes with
+ * their own lock, so concurrent offers of different items rarely wait for each other, and the O(capacity)
+ * scan for the smallest counter only covers one stripe.
+ *
+ * <p>Every item is counted in one stripe only, so each stripe is a space-saving sketch of its part of the
+ * stream, and the top items are the top of all stripes. The capacity is split over the stripes; as items are
+ * spread evenly, every item whose weight exceeds about {@code total / capacity} is still tracked. Stripes keep
+ * at least {@value #MIN_STRIPE_CAPACITY} counters, so small capacities get fewer stripes.</p>
+ *
+ * @param <T> the type of the items
+ */
+public class StripedSpaceSavingSketch<T> {
+
+    static final int MIN_STRIPE_CAPACITY = 8;
+
+    private final List<SpaceSavingSketch<T>> stripes;
+
+    public StripedSpaceSavingSketch(int capacity) {
+        this(capacity, Runtime.getRuntime().availableProcessors() * 2);
+    }
+
+    /**
+     * @param maxStripes the number of stripes if the capacity allows them
+     */
+    public StripedSpaceSavingSketch(int capacity, int maxStripes) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be at least 1");
+        }
+        int count = Math.max(1, Math.min(maxStripes, capacity / MIN_STRIPE_CAPACITY));
+        int stripeCapacity = (capacity + count - 1) / count;
+        List<SpaceSavingSketch<T>> list = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            list.add(new SpaceSavingSketch<>(stripeCapacity));
+        }
+        this.stripes = List.copyOf(list);
+    }
+
+    /**
+     * Adds the weight to the count of the item.
+     */
+    public void offer(T item, long weight) {
+        stripes.get(stripe(item)).offer(item, weight);
+    }
+
+    /**
+     * @return the at most {@code n} items with the highest counts, highest first
+     */
+    public List<SpaceSavingSketch.Entry<T>> top(int n) {
+        List<SpaceSavingSketch.Entry<T>> entries = new ArrayList<>();
+        for (SpaceSavingSketch<T> stripe : stripes) {
+            entries.addAll(stripe.top(n));
+        }
+        entries.sort(Comparator.comparingLong(SpaceSavingSketch.Entry<T>::count).reversed());
+        return entries.size() > n ? List.copyOf(entries.subList(0, n)) : entries;
+    }
+
+    /**
+     * @return the sum of all weights offered so far
+     */
+    public long total() {
+        long total = 0;
+        for (SpaceSavingSketch<T> stripe : stripes) {
+            total += stripe.total();
+        }
+        return total;
+    }
+
+    public void clear() {
+        stripes.forEach(SpaceSavingSketch::clear);
+    }
+
+    int stripeCount() {
+        return stripes.size();
+    }
+
+    private int stripe(T item) {
+        int hash = item.hashCode();
+        // spread the high bits, as HashMap does, so that similar hash codes land in different stripes
+        hash ^= hash >>> 16;
+        return (hash & Integer.MAX_VALUE) % stripes.size();
+    }
+}
@@ -0,0 +1,76 @@
+package dev.abstratium.core.util;
+
+import java.nio.ByteBuffer;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates time-ordered version 7 UUIDs (RFC 9562): the first 48 bits are the Unix time in milliseconds,
+ * followed by a 12 bit counter that keeps ids generated in the same millisecond ordered, and 62 random bits.
+ *
+ * <p>Stored as {@code BINARY(16)}, consecutive ids are appended at the end of the primary key index instead of
+ * at random places, which keeps InnoDB from splitting pages, and the key is less than half the size of its
+ * 36 character string form. Ids of one JVM are strictly increasing, even if the clock goes back.</p>
+ */
+public final class UuidV7 {
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final int COUNTER_BITS = 12;
+
+    /** The millisecond and counter of the last id, as {@code millis << 12 | counter}. */
+    private static final AtomicLong LAST = new AtomicLong();
+
+    private UuidV7() {
+    }
+
+    public static UUID generate() {
+        return generate(System.currentTimeMillis());
+    }
+
+    static UUID generate(long nowMillis) {
+        long timeAndCounter = LAST.updateAndGet(last -> {
+            long first = nowMillis << COUNTER_BITS;
+            // once the counter overflows, this borrows from the next millisecond
+            return first > last ? first : last + 1;
+        });
+        long mostSignificant = (timeAndCounter >>> COUNTER_BITS) << 16
+                | 0x7000L
+                | (timeAndCounter & ((1L << COUNTER_BITS) - 1));
+        long leastSignificant = RANDOM.nextLong() & 0x3FFFFFFFFFFFFFFFL | 0x8000000000000000L;
+        return new UUID(mostSignificant, leastSignificant);
+    }
+
+    /**
+     * @return when the version 7 UUID was generated
+     * @throws IllegalArgumentException if it is not a version 7 UUID
+     */
+    public static Instant timestamp(UUID uuid) {
+        if (uuid.version() != 7) {
+            throw new IllegalArgumentException(uuid + " is not a version 7 UUID");
+        }
+        return Instant.ofEpochMilli(uuid.getMostSignificantBits() >>> 16);
+    }
+
+    /**
+     * @return the 16 bytes of the UUID as stored in a {@code BINARY(16)} column, most significant first
+     */
+    public static byte[] toBytes(UUID uuid) {
+        return ByteBuffer.allocate(16)
+                .putLong(uuid.getMostSignificantBits())
+                .putLong(uuid.getLeastSignificantBits())
+                .array();
+    }
+
+    /**
+     * @return the UUID of the 16 bytes of a {@code BINARY(16)} column
+     */
+    public static UUID fromBytes(byte[] bytes) {
+        if (bytes.length != 16) {
+            throw new IllegalArgumentException("A UUID has 16 bytes, not " + bytes.length);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+}
@@ -0,0 +1,202 @@
+package dev.abstratium.core.util;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToIntFunction;
+
+/**
+ * A semaphore with a global number of permits and a limit per key, which hands out freed permits to the
+ * waiting keys in weighted round-robin order: a key at the head of the round gets up to its weight in
+ * permits before the next waiting key is served. Within a key, waiters are served in arrival order.
+ *
+ * <p>Waiting blocks the calling thread, so it is meant for virtual threads.</p>
+ */
+public class WeightedFairSemaphore {
+
+    private final int maxPermits;
+    private final int maxPermitsPerKey;
+    private final ToIntFunction<String> weights;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<String, KeyState> states = new HashMap<>();
+    /** Keys with waiters, in round-robin order. */
+    private final ArrayDeque<KeyState> round = new ArrayDeque<>();
+    private int inUse;
+    private int waiting;
+
+    /**
+     * @param weights the weight of each key, at least 1
+     */
+    public WeightedFairSemaphore(int maxPermits, int maxPermitsPerKey, ToIntFunction<String> weights) {
+        if (maxPermits < 1 || maxPermitsPerKey < 1) {
+            throw new IllegalArgumentException("maxPermits and maxPermitsPerKey must be at least 1");
+        }
+        this.maxPermits = maxPermits;
+        this.maxPermitsPerKey = maxPermitsPerKey;
+        this.weights = weights;
+    }
+
+    /**
+     * Takes a permit for the key, waiting at most the given time.
+     *
+     * @return {@code true} if a permit was taken and must be given back with {@link #release(String)}
+     */
+    public boolean tryAcquire(String key, long timeout, TimeUnit unit) throws InterruptedException {
+        lock.lock();
+        try {
+            KeyState state = states.computeIfAbsent(key, KeyState::new);
+            if (round.isEmpty() && inUse < maxPermits && state.running < maxPermitsPerKey) {
+                grant(state);
+                return true;
+            }
+            Waiter waiter = new Waiter(lock.newCondition());
+            state.waiters.add(waiter);
+            waiting++;
+            if (!state.inRound) {
+                state.inRound = true;
+                round.addLast(state);
+            }
+            dispatch();
+            long remainingNanos = unit.toNanos(timeout);
+            try {
+                while (!waiter.granted) {
+                    if (remainingNanos <= 0) {
+                        abandon(state, waiter);
+                        return false;
+                    }
+                    remainingNanos = waiter.condition.awaitNanos(remainingNanos);
+                }
+            } catch (InterruptedException e) {
+                if (waiter.granted) {
+                    release(state);
+                } else {
+                    abandon(state, waiter);
+                }
+                throw e;
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gives back a permit taken for the key.
+     */
+    public void release(String key) {
+        lock.lock();
+        try {
+            KeyState state = states.get(key);
+            if (state == null || state.running == 0) {
+                throw new IllegalStateException("No permit taken for " + key);
+            }
+            release(state);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int inUse() {
+        lock.lock();
+        try {
+            return inUse;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int waiting() {
+        lock.lock();
+        try {
+            return waiting;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release(KeyState state) {
+        state.running--;
+        inUse--;
+        removeIfIdle(state);
+        dispatch();
+    }
+
+    private void dispatch() {
+        int skipped = 0;
+        while (inUse < maxPermits && !round.isEmpty() && skipped < round.size()) {
+            KeyState state = round.peekFirst();
+            if (state.running >= maxPermitsPerKey) {
+                state.credits = 0;
+                round.addLast(round.pollFirst());
+                skipped++;
+                continue;
+            }
+            skipped = 0;
+            if (state.credits == 0) {
+                state.credits = Math.max(1, weights.applyAsInt(state.key));
+            }
+            Waiter waiter = state.waiters.pollFirst();
+            waiting--;
+            waiter.granted = true;
+            grant(state);
+            waiter.condition.signal();
+            state.credits--;
+            if (state.waiters.isEmpty()) {
+                round.pollFirst();
+                state.inRound = false;
+                state.credits = 0;
+            } else if (state.credits == 0) {
+                round.addLast(round.pollFirst());
+            }
+        }
+    }
+
+    private void grant(KeyState state) {
+        state.running++;
+        inUse++;
+    }
+
+    private void abandon(KeyState state, Waiter waiter) {
+        state.waiters.remove(waiter);
+        waiting--;
+        if (state.waiters.isEmpty() && state.inRound) {
+            round.remove(state);
+            state.inRound = false;
+            state.credits = 0;
+        }
+        removeIfIdle(state);
+        // the abandoned waiter may have been the one blocking the round
+        dispatch();
+    }
+
+    private void removeIfIdle(KeyState state) {
+        if (state.running == 0 && state.waiters.isEmpty()) {
+            states.remove(state.key);
+        }
+    }
+
+    private static final class KeyState {
+        final String key;
+        final ArrayDeque<Waiter> waiters = new ArrayDeque<>();
+        int running;
+        int credits;
+        boolean inRound;
+
+        KeyState(String key) {
+            this.key = key;
+        }
+    }
+
+    private static final class Waiter {
+        final Condition condition;
+        boolean granted;
+
+        Waiter(Condition condition) {
+            this.condition = condition;
+        }
+    }
+}
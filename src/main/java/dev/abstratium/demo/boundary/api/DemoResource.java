@@ -1,60 +1,208 @@
 package dev.abstratium.demo.boundary.api;
 
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
 import java.util.List;
+import java.util.UUID;
 
 import org.eclipse.microprofile.openapi.annotations.tags.Tag;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import dev.abstratium.core.boundary.EntityTags;
 import dev.abstratium.core.boundary.ErrorCode;
 import dev.abstratium.core.boundary.FunctionalException;
+import dev.abstratium.core.boundary.PagedResponse;
+import dev.abstratium.core.service.CurrentOrgContext;
+import dev.abstratium.core.service.TenantContext;
+import dev.abstratium.core.service.TenantScheduled;
+import dev.abstratium.core.service.TenantScheduler;
 import dev.abstratium.demo.Roles;
 import dev.abstratium.demo.entity.Demo;
+import dev.abstratium.demo.service.DemoBulkService;
 import dev.abstratium.demo.service.DemoService;
+import io.smallrye.common.annotation.RunOnVirtualThread;
 import jakarta.annotation.security.RolesAllowed;
 import jakarta.inject.Inject;
+import jakarta.ws.rs.Consumes;
 import jakarta.ws.rs.DELETE;
 import jakarta.ws.rs.GET;
+import jakarta.ws.rs.HeaderParam;
 import jakarta.ws.rs.POST;
 import jakarta.ws.rs.PUT;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.PathParam;
 import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
+import jakarta.ws.rs.core.UriInfo;
 
 @Path("/api/demo")
 @Tag(name = "Demo", description = "Demo endpoints")
+@RunOnVirtualThread
+@TenantScheduled
 public class DemoResource {
 
+    static final String NDJSON = "application/x-ndjson";
+
     @Inject
     DemoService demoService;
 
+    @Inject
+    DemoBulkService demoBulkService;
+
+    @Inject
+    CurrentOrgContext currentOrgContext;
+
+    @Inject
+    ObjectMapper objectMapper;
+
+    @Inject
+    TenantScheduler tenantScheduler;
+
+    /**
+     * Returns one page of demos as a JSON array, with a {@code Link rel="next"} header unless it is the last page.
+     * With {@code stream=true}, returns all demos instead, as newline-delimited JSON that is written while the
+     * rows are read.
+     */
+    @GET
+    @Produces({MediaType.APPLICATION_JSON, NDJSON})
+    @RolesAllowed({Roles.USER})
+    public Response getAll(@QueryParam(PagedResponse.CURSOR_PARAM) String cursor,
+                           @QueryParam(PagedResponse.LIMIT_PARAM) Integer limit,
+                           @QueryParam("stream") boolean stream,
+                           @Context UriInfo uriInfo) {
+        if (stream) {
+            return Response.ok(streamAll(), NDJSON).build();
+        }
+        return PagedResponse.ok(demoService.findPage(cursor, limit), uriInfo);
+    }
+
+    private StreamingOutput streamAll() {
+        // the output is written after this method returns and the interceptor has released the org's slot, so
+        // the org is passed on explicitly, and the output takes a slot of its own
+        String orgId = currentOrgContext.getOrgId();
+        if (orgId == null) {
+            throw new FunctionalException(Response.Status.FORBIDDEN, ErrorCode.FORBIDDEN,
+                "The organisation of the caller is not known");
+        }
+        return output -> {
+            String key;
+            try {
+                key = tenantScheduler.acquire(orgId);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for a slot of org " + orgId);
+            }
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(output)) {
+                generator.setRootValueSeparator(null);
+                TenantContext.runAs(orgId, () -> demoService.streamAll(demo -> {
+                    try {
+                        generator.writeObject(demo);
+                        generator.writeRaw('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            } finally {
+                tenantScheduler.release(key);
+            }
+        };
+    }
+
+    /**
+     * Returns the demo with its version as {@code ETag}.
+     */
     @GET
+    @Path("/{id}")
     @Produces(MediaType.APPLICATION_JSON)
     @RolesAllowed({Roles.USER})
-    public List<Demo> getAll() {
-        return demoService.findAll();
+    public Response get(@PathParam("id") String id) {
+        Demo demo = null;
+        try {
+            demo = demoService.findById(UUID.fromString(id));
+        } catch (IllegalArgumentException e) {
+            // not a UUID, so no demo has this id
+        }
+        if (demo == null) {
+            throw new FunctionalException(Response.Status.NOT_FOUND, ErrorCode.DEMO_NOT_FOUND, "Demo " + id + " not found");
+        }
+        return EntityTags.ok(demo, demo.getVersion());
     }
 
+    /**
+     * Creates the demo with an id generated by the server; an id in the request is ignored, so that clients
+     * cannot choose the id of a row, which might exist in another org.
+     */
     @POST
     @Produces(MediaType.APPLICATION_JSON)
     @RolesAllowed({Roles.USER})
-    public Demo create(Demo demo) {
-        return demoService.create(demo);
+    public Response create(Demo demo) {
+        if (demo != null) {
+            demo.setId(null);
+        }
+        Demo created = demoService.create(demo);
+        return EntityTags.ok(created, created.getVersion());
     }
 
+    /**
+     * Updates the demo if it still has the version of the {@code If-Match} header, i.e. the {@code ETag} it had
+     * when the client read it, and returns it with its new {@code ETag}. Fails with 428 without the header and
+     * with 412 if the demo was changed or deleted in the meantime.
+     */
     @PUT
     @Produces(MediaType.APPLICATION_JSON)
     @RolesAllowed({Roles.USER})
-    public Demo update(Demo demo) {
-        return demoService.update(demo);
+    public Response update(@HeaderParam(HttpHeaders.IF_MATCH) String ifMatch, Demo demo) {
+        Long version = EntityTags.requiredVersion(ifMatch);
+        if (demo == null || demo.getId() == null) {
+            throw new FunctionalException(Response.Status.BAD_REQUEST, ErrorCode.DEMO_INVALID_INPUT,
+                "A demo with an id is required");
+        }
+        Demo updated = demoService.update(demo, version);
+        return EntityTags.ok(updated, updated.getVersion());
     }
 
+    /**
+     * Applies many creates, updates and deletes, in chunks of one transaction each, and returns the result of
+     * each of them; one failing operation does not fail the others.
+     */
+    @POST
+    @Path("/bulk")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    @RolesAllowed({Roles.USER})
+    public List<DemoBulkService.ItemResult> bulk(List<DemoBulkService.Operation> operations) {
+        if (operations == null) {
+            throw new FunctionalException(Response.Status.BAD_REQUEST, ErrorCode.DEMO_INVALID_INPUT,
+                "A JSON array of operations is required");
+        }
+        return demoBulkService.apply(operations);
+    }
+
+    /**
+     * Deletes the demo if it exists. Ids that are not UUIDs cannot exist, so they are ignored too.
+     */
     @DELETE
     @Path("/{id}")
     @Produces(MediaType.APPLICATION_JSON)
     @RolesAllowed({Roles.USER})
     public void delete(@PathParam("id") String id) {
-        demoService.delete(id);
+        UUID uuid;
+        try {
+            uuid = UUID.fromString(id);
+        } catch (IllegalArgumentException e) {
+            return;
+        }
+        demoService.delete(uuid);
     }
 
     /**
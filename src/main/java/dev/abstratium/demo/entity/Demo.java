@@ -2,34 +2,77 @@ package dev.abstratium.demo.entity;
 
 import java.util.UUID;
 
+import org.hibernate.annotations.TenantId;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import dev.abstratium.core.util.UuidV7;
+
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
 import jakarta.persistence.PrePersist;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 
+/**
+ * Tenant-scoped demo entity. The primary key of {@code T_demo} is {@code (org_id, id)}, so that the rows of an
+ * org are stored together; Hibernate always adds the {@code org_id} of the current tenant to its queries, so
+ * the entity only maps {@code id} as its identifier, which a unique constraint keeps unique across orgs. See
+ * HIBERNATE_DISCRIMINATOR_MULTITENANCY.md.
+ *
+ * <p>The id is a time-ordered {@link UuidV7} stored as {@code BINARY(16)}, see DATABASE.md. The version is
+ * incremented by every update and sent to clients as the {@code ETag}, see DemoResource.</p>
+ */
 @Entity
 @Table(name = "T_demo")
+@Cacheable
 public class Demo {
 
     @Id
-    @Column(length = 36)
-    private String id;
+    private UUID id;
+
+    // set by Hibernate from the resolved tenant, never by clients
+    @TenantId
+    @Column(name = "org_id", length = 36)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private String orgId;
+
+    @Version
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private long version;
 
     @PrePersist
     public void prePersist() {
         if (id == null) {
-            id = UUID.randomUUID().toString();
+            id = UuidV7.generate();
         }
     }
 
     // Getters and setters
-    public String getId() {
+    public UUID getId() {
         return id;
     }
 
-    public void setId(String id) {
+    public void setId(UUID id) {
         this.id = id;
     }
 
+    public String getOrgId() {
+        return orgId;
+    }
+
+    public void setOrgId(String orgId) {
+        this.orgId = orgId;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
 }
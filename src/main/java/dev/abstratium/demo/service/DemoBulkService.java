@@ -0,0 +1,261 @@
+package dev.abstratium.demo.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.hibernate.Session;
+import org.hibernate.exception.ConstraintViolationException;
+import org.jboss.logging.Logger;
+
+import dev.abstratium.core.boundary.ErrorCode;
+import dev.abstratium.core.boundary.FunctionalException;
+import dev.abstratium.core.service.TenantDml;
+import dev.abstratium.demo.entity.Demo;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.runtime.annotations.RegisterForReflection;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityExistsException;
+import jakarta.persistence.EntityManager;
+import jakarta.ws.rs.core.Response;
+
+/**
+ * Creates, updates and deletes many demos in one call.
+ *
+ * <p>Operations are applied in chunks of {@code abstratium.bulk.chunk-size}, one transaction per chunk, with
+ * Hibernate's JDBC batching of {@code abstratium.bulk.jdbc-batch-size} inserts. Which demos to update and
+ * delete exist, and their versions, are read with one query per chunk, and they are updated and deleted with
+ * {@link TenantDml} statements, which only reach the rows of the current org. Like {@code If-Match} of single
+ * updates, every update states the version the demo must still have, and the statements check it, so that
+ * updates never overwrite changes they did not see. New demos get generated ids; clients cannot choose them.
+ * If a chunk fails, it is rolled back and its operations are applied again one by one, each in its own
+ * transaction, so that only the failing operations fail. Every operation gets its own {@link ItemResult}.</p>
+ */
+@ApplicationScoped
+public class DemoBulkService {
+
+    private static final Logger log = Logger.getLogger(DemoBulkService.class);
+
+    public enum Action {
+        CREATE, UPDATE, DELETE
+    }
+
+    @ConfigProperty(name = "abstratium.bulk.chunk-size", defaultValue = "500")
+    int chunkSize;
+
+    @ConfigProperty(name = "abstratium.bulk.jdbc-batch-size", defaultValue = "50")
+    int jdbcBatchSize;
+
+    @ConfigProperty(name = "abstratium.bulk.max-operations", defaultValue = "10000")
+    int maxOperations;
+
+    @Inject
+    EntityManager em;
+
+    @Inject
+    DemoService demoService;
+
+    @Inject
+    TenantDml tenantDml;
+
+    /**
+     * @return the result of each operation, in the order of the operations
+     * @throws FunctionalException with status 400 if there are more than {@code abstratium.bulk.max-operations}
+     */
+    public List<ItemResult> apply(List<Operation> operations) {
+        if (operations.size() > maxOperations) {
+            throw new FunctionalException(Response.Status.BAD_REQUEST, ErrorCode.DEMO_INVALID_INPUT,
+                    "At most " + maxOperations + " operations are allowed per call");
+        }
+        ItemResult[] results = new ItemResult[operations.size()];
+        for (int start = 0; start < operations.size(); start += chunkSize) {
+            int end = Math.min(start + chunkSize, operations.size());
+            try {
+                int from = start;
+                QuarkusTransaction.requiringNew().run(() -> applyChunk(operations, from, end, results));
+            } catch (RuntimeException e) {
+                log.debugv(e, "Bulk chunk {0}..{1} failed, applying its operations one by one", start, end - 1);
+                for (int i = start; i < end; i++) {
+                    int index = i;
+                    try {
+                        QuarkusTransaction.requiringNew().run(() -> applyChunk(operations, index, index + 1, results));
+                    } catch (RuntimeException itemFailure) {
+                        results[i] = failure(index, operations.get(i), itemFailure);
+                    }
+                }
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+    private void applyChunk(List<Operation> operations, int start, int end, ItemResult[] results) {
+        em.unwrap(Session.class).setJdbcBatchSize(jdbcBatchSize);
+        Map<UUID, Long> versions = existingVersions(operations.subList(start, end));
+        Map<UUID, Update> toUpdate = new HashMap<>();
+        List<UUID> toDelete = new ArrayList<>();
+        boolean created = false;
+        for (int i = start; i < end; i++) {
+            Operation operation = operations.get(i);
+            String invalid = validate(operation);
+            if (invalid != null) {
+                results[i] = new ItemResult(i, operation != null ? operation.action() : null,
+                        operation != null ? operation.idOrNull() : null, 400, ErrorCode.DEMO_INVALID_INPUT.getCode(), invalid);
+                continue;
+            }
+            switch (operation.action()) {
+                case CREATE -> {
+                    // a copy, so that the generated id is not left on the operation if the chunk is rolled back
+                    Demo demo = newDemo(operation.demo());
+                    em.persist(demo);
+                    created = true;
+                    results[i] = new ItemResult(i, Action.CREATE, demo.getId(), 201, null, null);
+                }
+                case UPDATE -> {
+                    UUID id = operation.demo().getId();
+                    Long version = versions.get(id);
+                    if (version == null) {
+                        results[i] = new ItemResult(i, Action.UPDATE, id, 404,
+                                ErrorCode.DEMO_NOT_FOUND.getCode(), "Demo not found");
+                        continue;
+                    }
+                    if (!version.equals(operation.version())) {
+                        results[i] = new ItemResult(i, Action.UPDATE, id, 412, ErrorCode.VERSION_MISMATCH.getCode(),
+                                "Demo " + id + " no longer has version " + operation.version());
+                        continue;
+                    }
+                    // a later update of the same demo in the chunk must state the version after this one
+                    versions.put(id, version + 1);
+                    toUpdate.merge(id, new Update(version, 1), (first, next) -> new Update(first.version(), first.increments() + 1));
+                    results[i] = new ItemResult(i, Action.UPDATE, id, 200, null, null);
+                }
+                case DELETE -> {
+                    // idempotent, like DemoService.delete
+                    if (versions.remove(operation.id()) != null) {
+                        toDelete.add(operation.id());
+                    }
+                    results[i] = new ItemResult(i, Action.DELETE, operation.id(), 204, null, null);
+                }
+            }
+        }
+        // statements with the org_id of the current org, unlike those of em.merge and em.remove, see TenantDml;
+        // one per version read and number of updates, which is one for most chunks
+        Map<Update, List<UUID>> idsByUpdate = new HashMap<>();
+        toUpdate.forEach((id, update) -> idsByUpdate.computeIfAbsent(update, u -> new ArrayList<>()).add(id));
+        idsByUpdate.forEach((update, ids) ->
+                // the demo has no other columns yet; further ones need one statement per demo
+                expectAffected(ids.size(), tenantDml.update(Demo.class, "e.version = e.version + :increments",
+                        "e.id IN :ids AND e.version = :version",
+                        Map.of("ids", ids, "version", update.version(), "increments", (long) update.increments()))));
+        if (!toDelete.isEmpty()) {
+            expectAffected(toDelete.size(), tenantDml.delete(Demo.class, "e.id IN :ids", Map.of("ids", toDelete)));
+        }
+        if (created || !toUpdate.isEmpty() || !toDelete.isEmpty()) {
+            em.flush();
+            demoService.evictQueriesAfterCommit();
+        }
+    }
+
+    /**
+     * Rolls the chunk back if demos were changed or deleted since they were read, so that its operations are
+     * applied one by one and get the right results.
+     */
+    private static void expectAffected(int expected, int affected) {
+        if (affected != expected) {
+            throw new IllegalStateException(affected + " instead of " + expected + " demos were changed concurrently");
+        }
+    }
+
+    /**
+     * Reads the versions of the demos to update or delete that exist in the org, with one query.
+     */
+    private Map<UUID, Long> existingVersions(List<Operation> operations) {
+        List<UUID> ids = operations.stream()
+                .filter(operation -> validate(operation) == null && operation.action() != Action.CREATE)
+                .map(Operation::idOrNull)
+                .distinct()
+                .toList();
+        Map<UUID, Long> versions = new HashMap<>();
+        if (!ids.isEmpty()) {
+            em.createQuery("SELECT d.id, d.version FROM Demo d WHERE d.id IN :ids", Object[].class)
+                    .setParameter("ids", ids)
+                    .getResultList()
+                    .forEach(row -> versions.put((UUID) row[0], (Long) row[1]));
+        }
+        return versions;
+    }
+
+    /**
+     * @return a new demo with the values of the given one
+     */
+    private static Demo newDemo(Demo values) {
+        Demo demo = new Demo();
+        // Hibernate rejects an org that is not the current one; the demo has no other columns yet, further
+        // ones are copied here
+        demo.setOrgId(values.getOrgId());
+        return demo;
+    }
+
+    /**
+     * @return why the operation is invalid, or {@code null}
+     */
+    private static String validate(Operation operation) {
+        if (operation == null || operation.action() == null) {
+            return "action is required";
+        }
+        return switch (operation.action()) {
+            case CREATE -> operation.demo() == null ? "demo is required"
+                    : operation.demo().getId() != null ? "ids of new demos are generated, the demo must not have one" : null;
+            case UPDATE -> operation.demo() == null || operation.demo().getId() == null ? "demo with id is required"
+                    : operation.version() == null ? "the version the demo must still have is required" : null;
+            case DELETE -> operation.id() == null ? "id is required" : null;
+        };
+    }
+
+    private static ItemResult failure(int index, Operation operation, RuntimeException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException || cause instanceof EntityExistsException) {
+                return new ItemResult(index, operation.action(), operation.idOrNull(), 409,
+                        ErrorCode.DUPLICATE_ENTRY.getCode(), "Demo already exists");
+            }
+        }
+        log.warnv(e, "Bulk operation {0} failed", index);
+        return new ItemResult(index, operation.action(), operation.idOrNull(), 500, ErrorCode.DATABASE_ERROR.getCode(),
+                Objects.toString(e.getMessage(), e.getClass().getSimpleName()));
+    }
+
+    /**
+     * @param demo the demo to create or update
+     * @param id the id of the demo to delete
+     * @param version the version the demo to update must still have, i.e. its {@code ETag}
+     */
+    @RegisterForReflection
+    public record Operation(Action action, Demo demo, UUID id, Long version) {
+
+        UUID idOrNull() {
+            return demo != null ? demo.getId() : id;
+        }
+    }
+
+    /**
+     * The updates of one demo in a chunk.
+     *
+     * @param version the version read
+     */
+    private record Update(long version, int increments) {
+    }
+
+    /**
+     * @param index the position of the operation in the request
+     * @param status the HTTP status the operation would have had as a single call
+     * @param error the {@link ErrorCode} if the operation failed
+     */
+    @RegisterForReflection
+    public record ItemResult(int index, Action action, UUID id, int status, String error, String detail) {
+    }
+}
@@ -1,42 +1,152 @@
 package dev.abstratium.demo.service;
 
 import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
 
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.StatelessSession;
+
+import dev.abstratium.core.boundary.ErrorCode;
+import dev.abstratium.core.boundary.FunctionalException;
+import dev.abstratium.core.service.KeysetPager;
+import dev.abstratium.core.service.TenantCaches;
+import dev.abstratium.core.service.TenantDml;
 import dev.abstratium.demo.entity.Demo;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.OptimisticLockException;
 import jakarta.transaction.Transactional;
+import jakarta.ws.rs.core.Response;
 
 @ApplicationScoped
 public class DemoService {
 
+    static final String FIND_ALL_REGION = "dev.abstratium.demo.findAll";
+    static final String FIND_PAGE_REGION = "dev.abstratium.demo.findPage";
+
     @Inject
     EntityManager em;
 
+    @Inject
+    TenantCaches tenantCaches;
+
+    @Inject
+    KeysetPager keysetPager;
+
+    @Inject
+    StatelessSession statelessSession;
+
+    // MySQL only honours the fetch size with useCursorFetch=true in the JDBC URL
+    @ConfigProperty(name = "abstratium.streaming.fetch-size", defaultValue = "500")
+    int fetchSize;
+
+    /**
+     * Loads all demos of the org at once; endpoints use {@link #findPage(String, Integer)} instead.
+     */
     @Transactional
     public List<Demo> findAll() {
-        return em.createQuery("SELECT d FROM Demo d", Demo.class).getResultList();
+        return tenantCaches.cacheable(em.createQuery("SELECT d FROM Demo d", Demo.class), FIND_ALL_REGION)
+                .getResultList();
+    }
+
+    /**
+     * @param cursor the cursor of the previous page, or {@code null} for the first page
+     * @param limit the page size, or {@code null} for the default
+     */
+    @Transactional
+    public KeysetPager.Page<Demo> findPage(String cursor, Integer limit) {
+        // the primary key is (org_id, id)
+        return keysetPager.page(Demo.class, List.of("id"), cursor, limit,
+                query -> tenantCaches.cacheable(query, FIND_PAGE_REGION));
+    }
+
+    /**
+     * Hands all demos of the org to the consumer, one at a time and in id order, reading them with a
+     * forward-only cursor of a stateless session: rows are neither kept in a persistence context nor
+     * snapshotted for dirty checking, so memory use does not grow with the number of rows.
+     */
+    @Transactional
+    public void streamAll(Consumer<Demo> consumer) {
+        try (ScrollableResults<Demo> results = statelessSession
+                .createSelectionQuery("SELECT d FROM Demo d ORDER BY d.id", Demo.class)
+                .setFetchSize(fetchSize)
+                .setReadOnly(true)
+                .scroll(ScrollMode.FORWARD_ONLY)) {
+            while (results.next()) {
+                consumer.accept(results.get());
+            }
+        }
+    }
+
+    @Transactional
+    public Demo findById(UUID id) {
+        return em.find(Demo.class, id);
     }
 
     @Transactional
     public Demo create(Demo demo) {
         em.persist(demo);
+        evictQueriesAfterCommit();
         return demo;
     }
 
+    /**
+     * Updates the demo with a single {@code UPDATE ... WHERE id = ? AND version = ?}. The demo is loaded with
+     * {@code em.find}, usually from the second-level cache, which only finds demos of the org; ids are unique
+     * across orgs. Unlike a {@link TenantDml} statement, which makes Hibernate drop the cached demos of all
+     * orgs, this only replaces the cached demo itself.
+     *
+     * @param version the version the demo must still have, or {@code null} to update whatever version it has
+     * @return the demo with its new version
+     * @throws FunctionalException with status 412 if the demo has another version or does not exist
+     */
     @Transactional
-    public Demo update(Demo demo) {
-        em.merge(demo);
-        return demo;
+    public Demo update(Demo demo, Long version) {
+        Demo current = em.find(Demo.class, demo.getId());
+        if (current == null || version != null && current.getVersion() != version) {
+            throw versionMismatch(demo.getId(), version);
+        }
+        // the demo has no other columns yet; further ones are copied here, which increments the version by
+        // itself. Until then, the version is incremented explicitly, with the same statement
+        try {
+            em.lock(current, LockModeType.PESSIMISTIC_FORCE_INCREMENT);
+        } catch (OptimisticLockException e) {
+            throw versionMismatch(demo.getId(), version);
+        }
+        evictQueriesAfterCommit();
+        return current;
+    }
+
+    private static FunctionalException versionMismatch(UUID id, Long version) {
+        return new FunctionalException(Response.Status.PRECONDITION_FAILED, ErrorCode.VERSION_MISMATCH,
+                "Demo " + id + " does not exist or no longer has version " + (version != null ? version : "read"));
     }
 
+    /**
+     * Deletes the demo of the org, if it exists, with a single {@code DELETE ... WHERE id = ? AND version = ?}.
+     * Like {@link #update}, it loads the demo first, usually from the second-level cache, so that only the
+     * cached demo itself is removed.
+     */
     @Transactional
-    public void delete(String id) {
-        var d = em.find(Demo.class, id);
-        if (d != null) {
-            em.remove(d);
+    public void delete(UUID id) {
+        Demo demo = em.find(Demo.class, id);
+        if (demo != null) {
+            em.remove(demo);
+            evictQueriesAfterCommit();
         }
     }
 
+    /**
+     * Evicts the org's cached results of all demo queries once the current transaction has committed.
+     */
+    void evictQueriesAfterCommit() {
+        tenantCaches.evictQueriesAfterCommit(FIND_ALL_REGION);
+        tenantCaches.evictQueriesAfterCommit(FIND_PAGE_REGION);
+    }
+
 }
@@ -0,0 +1,2 @@
+ALTER TABLE T_demo ADD COLUMN org_id VARCHAR(36) NOT NULL DEFAULT '${default_org_uuid}';
+CREATE INDEX I_demo_org_id ON T_demo (org_id);
@@ -0,0 +1,9 @@
+CREATE TABLE T_batch_checkpoint (
+    job_name VARCHAR(100) NOT NULL,
+    org_id VARCHAR(36) NOT NULL,
+    last_key VARCHAR(255),
+    items BIGINT NOT NULL,
+    completed BOOLEAN NOT NULL,
+    updated_at TIMESTAMP NOT NULL,
+    PRIMARY KEY (job_name, org_id)
+);
@@ -0,0 +1,3 @@
+-- Optimistic locking: incremented by every update, which only succeeds if the version is still the one the
+-- client read, see Demo and the ETag of DemoResource.
+ALTER TABLE T_demo ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
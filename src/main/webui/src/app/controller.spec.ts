@@ -44,6 +44,21 @@ describe('Controller', () => {
       expect(modelService.demosError$()).toBeNull();
     });
 
+    it('should follow the next links until the last page', () => {
+      controller.loadDemos();
+
+      const first = httpMock.expectOne('/api/demo');
+      first.flush([{ id: '1' }], { headers: { Link: '<http://localhost/api/demo?cursor=abc>; rel="next"' } });
+      expect(modelService.demosLoading$()).toBe(true);
+
+      const second = httpMock.expectOne('http://localhost/api/demo?cursor=abc');
+      expect(second.request.method).toBe('GET');
+      second.flush([{ id: '2' }]);
+
+      expect(modelService.demos$()).toEqual([{ id: '1' }, { id: '2' }]);
+      expect(modelService.demosLoading$()).toBe(false);
+    });
+
     it('should set loading state before request', () => {
       controller.loadDemos();
 
@@ -129,8 +144,8 @@ describe('Controller', () => {
 
   describe('updateDemo', () => {
     it('should update demo and reload list', async () => {
-      const demoToUpdate: Demo = { id: '123' };
-      const updatedDemo: Demo = { id: '123' };
+      const demoToUpdate: Demo = { id: '123', version: 3 };
+      const updatedDemo: Demo = { id: '123', version: 4 };
       const allDemos: Demo[] = [updatedDemo];
 
       const updatePromise = controller.updateDemo(demoToUpdate);
@@ -138,6 +153,7 @@ describe('Controller', () => {
       const updateReq = httpMock.expectOne('/api/demo');
       expect(updateReq.request.method).toBe('PUT');
       expect(updateReq.request.body).toEqual(demoToUpdate);
+      expect(updateReq.request.headers.get('If-Match')).toBe('"3"');
       updateReq.flush(updatedDemo);
 
       const result = await updatePromise;
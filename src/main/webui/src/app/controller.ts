@@ -14,9 +14,19 @@ export class Controller {
   loadDemos() {
     this.modelService.setDemosLoading(true);
     this.modelService.setDemosError(null);
-    
-    this.http.get<Demo[]>('/api/demo').subscribe({
-      next: (demos) => {
+    this.loadDemoPages('/api/demo', []);
+  }
+
+  // the endpoint is paged: follows the Link rel="next" headers until the last page
+  private loadDemoPages(url: string, loaded: Demo[]) {
+    this.http.get<Demo[]>(url, { observe: 'response' }).subscribe({
+      next: (response) => {
+        const demos = [...loaded, ...(response.body ?? [])];
+        const next = nextLink(response.headers.get('Link'));
+        if (next) {
+          this.loadDemoPages(next, demos);
+          return;
+        }
         this.modelService.setDemos(demos);
         this.modelService.setDemosLoading(false);
       },
@@ -46,7 +56,8 @@ export class Controller {
   async updateDemo(demo: Demo): Promise<Demo> {
     try {
       const response = await firstValueFrom(
-        this.http.put<Demo>('/api/demo', demo)
+        // the version the demo had when it was loaded, so that the update fails if it was changed since
+        this.http.put<Demo>('/api/demo', demo, { headers: { 'If-Match': `"${demo.version ?? 0}"` } })
       );
       // Reload demos list after successful update
       this.loadDemos();
@@ -94,3 +105,8 @@ export class Controller {
     }
   }
 }
+
+function nextLink(header: string | null): string | null {
+  const match = header?.match(/<([^>]*)>[^,]*;\s*rel="?next"?/);
+  return match ? match[1] : null;
+}
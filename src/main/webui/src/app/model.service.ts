@@ -2,6 +2,7 @@ import { Injectable, signal, Signal } from '@angular/core';
 
 export interface Demo {
   id: string;
+  version?: number;
 }
 
 export interface Config {
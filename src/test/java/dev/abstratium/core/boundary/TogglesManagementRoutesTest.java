@@ -0,0 +1,75 @@
+package dev.abstratium.core.boundary;
+
+import io.quarkus.test.junit.QuarkusTest;
+import io.restassured.http.ContentType;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.junit.jupiter.api.Test;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.notNullValue;
+
+/**
+ * Tests for the toggle diagnostics exposed on the management interface.
+ */
+@QuarkusTest
+class TogglesManagementRoutesTest {
+
+    @ConfigProperty(name = "quarkus.management.test-port", defaultValue = "9001")
+    int managementPort;
+
+    @Test
+    void testAnalyticsReportIsServedAsJson() {
+        given()
+            .port(managementPort)
+            .when()
+            .get("/m/toggles/analytics")
+            .then()
+            .statusCode(200)
+            .contentType(ContentType.JSON)
+            .body("snapshotVersion", notNullValue())
+            .body("rules", notNullValue())
+            .body("neverHitSinceLoad", notNullValue());
+    }
+
+    @Test
+    void testStatusIsServedAsJson() {
+        given()
+            .port(managementPort)
+            .when()
+            .get("/m/toggles")
+            .then()
+            .statusCode(200)
+            .contentType(ContentType.JSON)
+            .body("context", notNullValue())
+            .body("snapshots", notNullValue());
+    }
+
+    @Test
+    void testRefreshIsAccepted() {
+        given()
+            .port(managementPort)
+            .when()
+            .post("/m/toggles/refresh")
+            .then()
+            .statusCode(202)
+            .contentType(ContentType.JSON)
+            .body("stage", notNullValue());
+    }
+
+    @Test
+    void testEvaluateUsesQueryParametersAsContext() {
+        given()
+            .port(managementPort)
+            .queryParam("userId", "someone@example.com")
+            .when()
+            .get("/m/toggles/unknown-toggle/evaluate")
+            .then()
+            .statusCode(200)
+            .contentType(ContentType.JSON)
+            .body("toggle", equalTo("unknown-toggle"))
+            .body("value", equalTo("off"))
+            .body("exists", equalTo(false))
+            .body("context.userId", equalTo("someone@example.com"));
+    }
+}
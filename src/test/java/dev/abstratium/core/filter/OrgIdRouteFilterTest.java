@@ -0,0 +1,115 @@
+package dev.abstratium.core.filter;
+
+import io.quarkus.security.identity.SecurityIdentity;
+import io.quarkus.test.junit.QuarkusTest;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.jwt.JsonWebToken;
+import org.junit.jupiter.api.Test;
+
+import java.security.Principal;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@QuarkusTest
+class OrgIdRouteFilterTest {
+
+    private static final String TEST_ORG_ID = "test-org-123";
+
+    @ConfigProperty(name = "default.org.uuid")
+    String defaultOrgId;
+
+    // ═══════════════════════════════════════════════════════════
+    // Integration tests – a Vert.x route that is not a JAX-RS resource
+    // ═══════════════════════════════════════════════════════════
+
+    @Test
+    void anonymousRequest_hasRequestTenantWithoutOrgId_andFallsBackToDefault() {
+        given()
+                .when()
+                .get("/public/test/tenant-route")
+                .then()
+                .statusCode(200)
+                .body("present", is(true))
+                .body("method", is("GET"))
+                .body("path", is("/public/test/tenant-route"))
+                .body("orgId", nullValue())
+                .body("resolvedTenantId", is(defaultOrgId));
+    }
+
+    @Test
+    void resolverReadsOrgIdFromDuplicatedContextOnWorkerThread() {
+        given()
+                .queryParam("orgId", TEST_ORG_ID)
+                .when()
+                .get("/public/test/tenant-route")
+                .then()
+                .statusCode(200)
+                .body("orgId", is(TEST_ORG_ID))
+                .body("resolvedTenantId", is(TEST_ORG_ID));
+    }
+
+    @Test
+    void blockingJaxRsResource_seesRequestTenant() {
+        given()
+                .when()
+                .get("/public/test/tenant-jaxrs")
+                .then()
+                .statusCode(200)
+                .body(is("/public/test/tenant-jaxrs"));
+    }
+
+    @Test
+    void tenantDoesNotLeakIntoTheNextRequest() {
+        resolverReadsOrgIdFromDuplicatedContextOnWorkerThread();
+        anonymousRequest_hasRequestTenantWithoutOrgId_andFallsBackToDefault();
+    }
+
+    // ═══════════════════════════════════════════════════════════
+    // Unit tests – orgId extraction from the security identity
+    // ═══════════════════════════════════════════════════════════
+
+    @Test
+    void orgIdOf_jwtPrincipalWithClaim_returnsClaim() {
+        assertEquals(TEST_ORG_ID, OrgIdRouteFilter.orgIdOf(identityWithOrgId(TEST_ORG_ID)));
+    }
+
+    @Test
+    void orgIdOf_blankClaim_returnsNull() {
+        assertNull(OrgIdRouteFilter.orgIdOf(identityWithOrgId("  ")));
+    }
+
+    @Test
+    void orgIdOf_missingClaim_returnsNull() {
+        assertNull(OrgIdRouteFilter.orgIdOf(identityWithOrgId(null)));
+    }
+
+    @Test
+    void orgIdOf_anonymousOrMissingIdentity_returnsNull() {
+        SecurityIdentity anonymous = mock(SecurityIdentity.class);
+        when(anonymous.isAnonymous()).thenReturn(true);
+        assertNull(OrgIdRouteFilter.orgIdOf(anonymous));
+        assertNull(OrgIdRouteFilter.orgIdOf(null));
+    }
+
+    @Test
+    void orgIdOf_principalWithoutClaims_returnsNull() {
+        SecurityIdentity identity = mock(SecurityIdentity.class);
+        Principal principal = () -> "testuser";
+        when(identity.getPrincipal()).thenReturn(principal);
+        assertNull(OrgIdRouteFilter.orgIdOf(identity));
+    }
+
+    private SecurityIdentity identityWithOrgId(String orgId) {
+        JsonWebToken jwt = mock(JsonWebToken.class);
+        when(jwt.getClaim("orgId")).thenReturn(orgId);
+        SecurityIdentity identity = mock(SecurityIdentity.class);
+        when(identity.getPrincipal()).thenReturn(jwt);
+        return identity;
+    }
+}
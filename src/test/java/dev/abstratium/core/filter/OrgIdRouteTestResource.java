@@ -0,0 +1,22 @@
+package dev.abstratium.core.filter;
+
+import dev.abstratium.core.service.RequestTenant;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+
+/**
+ * Test-only JAX-RS resource used by OrgIdRouteFilterTest to check that the tenant resolved at the
+ * route layer reaches blocking resource methods.
+ */
+@Path("/public/test/tenant-jaxrs")
+public class OrgIdRouteTestResource {
+
+    @GET
+    @Produces(MediaType.TEXT_PLAIN)
+    public String requestPath() {
+        RequestTenant tenant = RequestTenant.current();
+        return tenant != null ? tenant.getRequestPath() : "null";
+    }
+}
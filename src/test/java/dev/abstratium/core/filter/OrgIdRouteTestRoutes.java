@@ -0,0 +1,41 @@
+package dev.abstratium.core.filter;
+
+import dev.abstratium.core.service.RequestTenant;
+import io.quarkus.hibernate.orm.PersistenceUnitExtension;
+import io.quarkus.hibernate.orm.runtime.tenant.TenantResolver;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.Router;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+
+/**
+ * Test-only Vert.x route, i.e. not a JAX-RS resource, used by OrgIdRouteFilterTest to check that the
+ * tenant is available from the duplicated context on a worker thread. An {@code orgId} query parameter
+ * simulates the claim of an authenticated caller.
+ */
+@ApplicationScoped
+public class OrgIdRouteTestRoutes {
+
+    @Inject
+    @PersistenceUnitExtension
+    TenantResolver tenantResolver;
+
+    void registerRoutes(@Observes Router router) {
+        router.get("/public/test/tenant-route").blockingHandler(rc -> {
+            RequestTenant tenant = RequestTenant.current();
+            JsonObject body = new JsonObject().put("present", tenant != null);
+            if (tenant != null) {
+                String orgId = rc.queryParams().get("orgId");
+                if (orgId != null) {
+                    tenant.setOrgId(orgId);
+                }
+                body.put("method", tenant.getRequestMethod())
+                        .put("path", tenant.getRequestPath())
+                        .put("orgId", tenant.getOrgId());
+            }
+            body.put("resolvedTenantId", tenantResolver.resolveTenantId());
+            rc.response().putHeader("Content-Type", "application/json").end(body.encode());
+        });
+    }
+}
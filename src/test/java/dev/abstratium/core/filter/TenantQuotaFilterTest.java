@@ -0,0 +1,84 @@
+package dev.abstratium.core.filter;
+
+import dev.abstratium.core.service.TenantQuotas;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.startsWith;
+
+@QuarkusTest
+@TestProfile(TenantQuotaFilterTest.TestProfile.class)
+class TenantQuotaFilterTest {
+
+    private static final String ORG_ID = "quota-org-1";
+
+    @Inject
+    TenantQuotas tenantQuotas;
+
+    public static class TestProfile implements QuarkusTestProfile {
+        @Override
+        public Map<String, String> getConfigOverrides() {
+            return Map.of(
+                    "rate-limit.enabled", "true",
+                    // one request every 100 seconds, so that the bucket does not refill during the test
+                    "rate-limit.tenant.tiers", "tiny=0.01:2,roomy=1000:1000",
+                    "rate-limit.tenant.default-tier", "tiny",
+                    "rate-limit.tenant.org-tiers", "quota-org-roomy=roomy"
+            );
+        }
+    }
+
+    @BeforeEach
+    void reset() {
+        tenantQuotas.reset();
+    }
+
+    @Test
+    void requestsBeyondTheBurstAreRejectedWithRetryAfter() {
+        for (int i = 0; i < 2; i++) {
+            given().header(TenantQuotaTestResource.ORG_ID_HEADER, ORG_ID)
+                    .when().get("/public/test/quota")
+                    .then().statusCode(200).body(is("ok"));
+        }
+        given().header(TenantQuotaTestResource.ORG_ID_HEADER, ORG_ID)
+                .when().get("/public/test/quota")
+                .then()
+                .statusCode(429)
+                .header("Retry-After", "100")
+                .contentType(startsWith(TenantQuotaFilter.PROBLEM_MEDIA_TYPE))
+                .body("type", is("ERR-4004"))
+                .body("status", is(429));
+    }
+
+    @Test
+    void orgsHaveSeparateBuckets() {
+        requestsBeyondTheBurstAreRejectedWithRetryAfter();
+        given().header(TenantQuotaTestResource.ORG_ID_HEADER, "quota-org-2")
+                .when().get("/public/test/quota")
+                .then().statusCode(200);
+    }
+
+    @Test
+    void orgsGetTheLimitsOfTheirTier() {
+        for (int i = 0; i < 10; i++) {
+            given().header(TenantQuotaTestResource.ORG_ID_HEADER, "quota-org-roomy")
+                    .when().get("/public/test/quota")
+                    .then().statusCode(200);
+        }
+    }
+
+    @Test
+    void requestsWithoutOrgAreNotLimited() {
+        for (int i = 0; i < 5; i++) {
+            given().when().get("/public/test/quota").then().statusCode(200);
+        }
+    }
+}
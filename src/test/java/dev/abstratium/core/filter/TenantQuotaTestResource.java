@@ -0,0 +1,45 @@
+package dev.abstratium.core.filter;
+
+import dev.abstratium.core.service.CurrentOrgContext;
+import jakarta.annotation.Priority;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Priorities;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerRequestFilter;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.ext.Provider;
+
+/**
+ * Test-only JAX-RS resource used by TenantQuotaFilterTest. The nested filter takes the orgId from the
+ * {@value #ORG_ID_HEADER} header, standing in for the {@code orgId} claim of a token.
+ */
+@Path("/public/test/quota")
+public class TenantQuotaTestResource {
+
+    static final String ORG_ID_HEADER = "X-Test-Org-Id";
+
+    @GET
+    @Produces(MediaType.TEXT_PLAIN)
+    public String get() {
+        return "ok";
+    }
+
+    @Provider
+    @Priority(Priorities.AUTHENTICATION + 150)
+    public static class TestOrgIdFilter implements ContainerRequestFilter {
+
+        @Inject
+        CurrentOrgContext currentOrgContext;
+
+        @Override
+        public void filter(ContainerRequestContext requestContext) {
+            String orgId = requestContext.getHeaderString(ORG_ID_HEADER);
+            if (orgId != null) {
+                currentOrgContext.setOrgId(orgId);
+            }
+        }
+    }
+}
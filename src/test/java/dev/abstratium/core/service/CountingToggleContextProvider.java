@@ -0,0 +1,36 @@
+package dev.abstratium.core.service;
+
+import jakarta.enterprise.context.ApplicationScoped;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Test-only {@link ToggleContextProvider} used by TogglesServiceTest to verify that providers
+ * are only called when a rule references their key, and at most once per evaluation call.
+ */
+@ApplicationScoped
+public class CountingToggleContextProvider implements ToggleContextProvider {
+
+    public static final String KEY = "testCounter";
+
+    private final AtomicInteger calls = new AtomicInteger();
+
+    @Override
+    public String key() {
+        return KEY;
+    }
+
+    @Override
+    public String resolve() {
+        calls.incrementAndGet();
+        return "counted";
+    }
+
+    public int getCalls() {
+        return calls.get();
+    }
+
+    public void reset() {
+        calls.set(0);
+    }
+}
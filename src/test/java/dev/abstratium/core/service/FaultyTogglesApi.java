@@ -0,0 +1,240 @@
+package dev.abstratium.core.service;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Stand-in for the abstoggle {@code public/toggles} API with configurable faults: latency drawn from
+ * a distribution given by its percentiles, a rate of error responses, bodies dribbled out in small
+ * chunks and generated payloads of any size. Every request is served on its own virtual thread,
+ * so faults of concurrent calls do not queue behind each other.
+ *
+ * <p>The configuration can be changed while the server runs, e.g. between the phases of a test;
+ * {@link #reset()} restores a fast, healthy upstream with one catch-all toggle.</p>
+ */
+public final class FaultyTogglesApi {
+
+    private final AtomicInteger calls = new AtomicInteger();
+    private final AtomicInteger errors = new AtomicInteger();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+
+    private volatile long[] latencyPercentilesMillis = {0, 0, 0};
+    private volatile double errorRate;
+    private volatile int errorStatus = 503;
+    private volatile int dripChunkBytes;
+    private volatile long dripDelayMillis;
+    private volatile byte[] body;
+
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public FaultyTogglesApi() {
+        reset();
+    }
+
+    public void start() throws IOException {
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/public/toggles", this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    public void stop() {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdownNow();
+        }
+    }
+
+    public String url() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    /**
+     * Restores a healthy upstream that answers immediately with a single catch-all toggle and clears the counters.
+     */
+    public FaultyTogglesApi reset() {
+        latencyPercentilesMillis = new long[] {0, 0, 0};
+        errorRate = 0.0;
+        errorStatus = 503;
+        dripChunkBytes = 0;
+        dripDelayMillis = 0;
+        payload(1, 1);
+        resetCounters();
+        return this;
+    }
+
+    public FaultyTogglesApi resetCounters() {
+        calls.set(0);
+        errors.set(0);
+        maxInFlight.set(0);
+        return this;
+    }
+
+    /**
+     * Delays each response by a random latency, distributed so that half of the responses take at most
+     * {@code p50}, 90% at most {@code p90} and 99% at most {@code p99}. The slowest 1% take up to twice {@code p99}.
+     */
+    public FaultyTogglesApi latency(Duration p50, Duration p90, Duration p99) {
+        latencyPercentilesMillis = new long[] {p50.toMillis(), p90.toMillis(), p99.toMillis()};
+        return this;
+    }
+
+    /**
+     * Answers the given fraction of requests (0.0 to 1.0) with the given status and a problem body instead of the toggles.
+     */
+    public FaultyTogglesApi errorRate(double rate, int status) {
+        errorRate = rate;
+        errorStatus = status;
+        return this;
+    }
+
+    /**
+     * Writes successful bodies in chunks of the given size, pausing after each chunk. Zero disables dribbling.
+     */
+    public FaultyTogglesApi slowDrip(int chunkBytes, Duration delayPerChunk) {
+        dripChunkBytes = chunkBytes;
+        dripDelayMillis = delayPerChunk.toMillis();
+        return this;
+    }
+
+    /**
+     * Serves a generated response, see {@link #generatePayload(int, int)}.
+     */
+    public FaultyTogglesApi payload(int toggles, int rulesPerToggle) {
+        body = generatePayload(toggles, rulesPerToggle).getBytes(StandardCharsets.UTF_8);
+        return this;
+    }
+
+    /**
+     * @return the number of requests received since the counters were last reset
+     */
+    public int calls() {
+        return calls.get();
+    }
+
+    /**
+     * @return the number of requests answered with an injected error since the counters were last reset
+     */
+    public int errors() {
+        return errors.get();
+    }
+
+    /**
+     * @return the highest number of requests being served at the same time since the counters were last reset
+     */
+    public int maxConcurrentCalls() {
+        return maxInFlight.get();
+    }
+
+    public int payloadBytes() {
+        return body.length;
+    }
+
+    /**
+     * Generates a toggle API response with toggles named {@code load-toggle-0}, {@code load-toggle-1}, ...
+     * Every toggle has {@code rulesPerToggle - 1} rules matching {@code userId} against a regular expression,
+     * with the values {@code value-0}, {@code value-1}, ..., followed by a catch-all rule with the value "on".
+     */
+    public static String generatePayload(int toggles, int rulesPerToggle) {
+        StringBuilder sb = new StringBuilder(toggles * rulesPerToggle * 300);
+        sb.append("{\"toggles\":[");
+        int rows = 0;
+        for (int t = 0; t < toggles; t++) {
+            for (int r = 0; r < rulesPerToggle; r++) {
+                if (rows++ > 0) {
+                    sb.append(',');
+                }
+                boolean catchAll = r == rulesPerToggle - 1;
+                sb.append("{\"toggleName\":\"load-toggle-").append(t)
+                        .append("\",\"toggleDescription\":\"Generated toggle ").append(t)
+                        .append("\",\"toggleEnabled\":true,\"stageName\":\"test\",\"ruleName\":\"")
+                        .append(catchAll ? "catch-all" : "rule-" + r)
+                        .append("\",\"priority\":").append(r + 1)
+                        .append(",\"value\":\"").append(catchAll ? "on" : "value-" + r)
+                        .append("\",\"ruleCriteria\":[");
+                if (!catchAll) {
+                    sb.append("{\"criterionKey\":\"userId\",\"criterionValue\":\"/user-").append(r).append("@.*/i\"}");
+                }
+                sb.append("]}");
+            }
+        }
+        sb.append("],\"queryMetadata\":{\"count\":").append(rows).append(",\"cacheHit\":false}}");
+        return sb.toString();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        calls.incrementAndGet();
+        maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+        try (exchange) {
+            sleep(sampleLatencyMillis());
+            if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+                errors.incrementAndGet();
+                byte[] problem = ("{\"title\":\"Injected failure\",\"status\":" + errorStatus + "}").getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().add("Content-Type", "application/problem+json");
+                exchange.sendResponseHeaders(errorStatus, problem.length);
+                exchange.getResponseBody().write(problem);
+                return;
+            }
+            byte[] responseBody = body;
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            int chunk = dripChunkBytes;
+            if (chunk <= 0) {
+                exchange.sendResponseHeaders(200, responseBody.length);
+                exchange.getResponseBody().write(responseBody);
+                return;
+            }
+            // length 0 means chunked transfer encoding
+            exchange.sendResponseHeaders(200, 0);
+            OutputStream out = exchange.getResponseBody();
+            for (int offset = 0; offset < responseBody.length; offset += chunk) {
+                out.write(responseBody, offset, Math.min(chunk, responseBody.length - offset));
+                out.flush();
+                sleep(dripDelayMillis);
+            }
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    /**
+     * Interpolates linearly between the configured percentiles, starting at zero.
+     */
+    private long sampleLatencyMillis() {
+        long[] p = latencyPercentilesMillis;
+        double u = ThreadLocalRandom.current().nextDouble();
+        if (u < 0.5) {
+            return (long) (p[0] * u / 0.5);
+        }
+        if (u < 0.9) {
+            return (long) (p[0] + (p[1] - p[0]) * (u - 0.5) / 0.4);
+        }
+        if (u < 0.99) {
+            return (long) (p[1] + (p[2] - p[1]) * (u - 0.9) / 0.09);
+        }
+        return (long) (p[2] + p[2] * (u - 0.99) / 0.01);
+    }
+
+    private static void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package dev.abstratium.core.service;
+
+import io.quarkus.test.common.QuarkusTestResourceLifecycleManager;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Starts a {@link FaultyTogglesApi} and points {@code abstratium.toggles.api.url} at it.
+ * Use it with {@code @WithTestResource(FaultyTogglesApiResource.class)} and get hold of the running
+ * server with a field annotated {@link InjectFaultyTogglesApi}. The initial faults can be set with
+ * {@code initArgs}:
+ * <ul>
+ *   <li>{@code latency-p50-ms}, {@code latency-p90-ms}, {@code latency-p99-ms} - latency distribution</li>
+ *   <li>{@code error-rate} and {@code error-status} - fraction of requests failing with the status (default 503)</li>
+ *   <li>{@code drip-chunk-bytes} and {@code drip-delay-ms} - dribble response bodies</li>
+ *   <li>{@code toggles} and {@code rules-per-toggle} - size of the generated payload</li>
+ *   <li>{@code cache-ttl-seconds} - overrides {@code abstratium.toggles.cache.ttl-seconds}</li>
+ * </ul>
+ */
+public class FaultyTogglesApiResource implements QuarkusTestResourceLifecycleManager {
+
+    private final FaultyTogglesApi api = new FaultyTogglesApi();
+    private Map<String, String> args = Map.of();
+
+    @Retention(RetentionPolicy.RUNTIME)
+    @Target(ElementType.FIELD)
+    public @interface InjectFaultyTogglesApi {
+    }
+
+    @Override
+    public void init(Map<String, String> initArgs) {
+        args = initArgs;
+        api.latency(millis("latency-p50-ms"), millis("latency-p90-ms"), millis("latency-p99-ms"));
+        api.errorRate(Double.parseDouble(args.getOrDefault("error-rate", "0")),
+                Integer.parseInt(args.getOrDefault("error-status", "503")));
+        api.slowDrip(Integer.parseInt(args.getOrDefault("drip-chunk-bytes", "0")), millis("drip-delay-ms"));
+        api.payload(Integer.parseInt(args.getOrDefault("toggles", "1")),
+                Integer.parseInt(args.getOrDefault("rules-per-toggle", "1")));
+    }
+
+    @Override
+    public Map<String, String> start() {
+        try {
+            api.start();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return Map.of(
+                "abstratium.toggles.api.url", api.url(),
+                "abstratium.toggles.cache.ttl-seconds", args.getOrDefault("cache-ttl-seconds", "60"),
+                "abstratium.stage", "test");
+    }
+
+    @Override
+    public void stop() {
+        api.stop();
+    }
+
+    @Override
+    public void inject(TestInjector testInjector) {
+        testInjector.injectIntoFields(api,
+                new TestInjector.AnnotatedAndMatchesType(InjectFaultyTogglesApi.class, FaultyTogglesApi.class));
+    }
+
+    private Duration millis(String key) {
+        return Duration.ofMillis(Long.parseLong(args.getOrDefault(key, "0")));
+    }
+}
@@ -0,0 +1,100 @@
+package dev.abstratium.core.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.hasItem;
+import static org.junit.jupiter.api.Assertions.*;
+
+@QuarkusTest
+class HeavyHitterMonitorTest {
+
+    private static final String ORG_ID_HEADER = "X-Test-Org-Id";
+    private static final String ORG = "hhhhhhhh-0000-0000-0000-000000000043";
+    private static final String CLIENT_IP = "203.0.113.43";
+
+    @ConfigProperty(name = "quarkus.management.test-port", defaultValue = "9001")
+    int managementPort;
+
+    @Inject
+    HeavyHitterMonitor heavyHitterMonitor;
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void startNewWindow() {
+        heavyHitterMonitor.rotate();
+    }
+
+    @Test
+    void testRequestTimeAndJdbcTimeAreRecordedPerOrgAndClientIp() {
+        for (int i = 0; i < 3; i++) {
+            given().header(ORG_ID_HEADER, ORG).header("X-Forwarded-For", CLIENT_IP)
+                    .when().get("/public/test/load")
+                    .then().statusCode(200);
+        }
+
+        HeavyHitterMonitor.WindowReport report = heavyHitterMonitor.report().current();
+        assertEquals(List.of(ORG), keys(report, "org", "time"));
+        assertEquals(List.of(ORG), keys(report, "org", "jdbc"));
+        assertEquals(List.of(CLIENT_IP), keys(report, "clientIp", "time"));
+        HeavyHitterMonitor.ResourceReport jdbc = report.dimensions().get("org").get("jdbc");
+        assertTrue(jdbc.totalSeconds() > 0);
+        assertTrue(jdbc.totalSeconds() <= report.dimensions().get("org").get("time").totalSeconds());
+
+        given().port(managementPort)
+                .when().get("/m/load/top")
+                .then().statusCode(200)
+                .body("current.dimensions.org.time.top.key", hasItem(ORG))
+                .body("current.dimensions.clientIp.jdbc.top.key", hasItem(CLIENT_IP));
+    }
+
+    @Test
+    void testAlertIsRaisedOncePerWindowWhenShareIsPassed() {
+        double before = alerts();
+
+        // below alert-min-load (10s)
+        heavyHitterMonitor.record(ORG, null, TimeUnit.SECONDS.toNanos(5), 0);
+        assertEquals(before, alerts());
+
+        heavyHitterMonitor.record(ORG, null, TimeUnit.SECONDS.toNanos(6), 0);
+        heavyHitterMonitor.record(ORG, null, TimeUnit.SECONDS.toNanos(1), 0);
+        assertEquals(before + 1, alerts());
+
+        heavyHitterMonitor.rotate();
+        heavyHitterMonitor.record(ORG, null, TimeUnit.SECONDS.toNanos(11), 0);
+        assertEquals(before + 2, alerts());
+        assertEquals(List.of(ORG), keys(heavyHitterMonitor.report().previous(), "org", "time"));
+    }
+
+    @Test
+    void testOrgBelowShareIsNotAlerted() {
+        double before = alerts();
+
+        for (int i = 0; i < 10; i++) {
+            heavyHitterMonitor.record("org-" + i, null, TimeUnit.SECONDS.toNanos(2), 0);
+        }
+
+        assertEquals(before, alerts());
+    }
+
+    private double alerts() {
+        return meterRegistry.get(HeavyHitterMonitor.ALERTS_METRIC_NAME)
+                .tags("dimension", "org", "resource", "time").counter().count();
+    }
+
+    private static List<String> keys(HeavyHitterMonitor.WindowReport report, String dimension, String resource) {
+        return report.dimensions().get(dimension).get(resource).top().stream()
+                .map(HeavyHitterMonitor.Consumer::key)
+                .toList();
+    }
+}
@@ -0,0 +1,26 @@
+package dev.abstratium.core.service;
+
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Transactional;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+
+/**
+ * Test-only JAX-RS resource used by HeavyHitterMonitorTest, which runs a JDBC statement.
+ */
+@Path("/public/test/load")
+public class HeavyHitterMonitorTestResource {
+
+    @Inject
+    EntityManager em;
+
+    @GET
+    @Produces(MediaType.TEXT_PLAIN)
+    @Transactional
+    public String get() {
+        return String.valueOf(em.createNativeQuery("SELECT COUNT(*) FROM T_demo").getSingleResult());
+    }
+}
@@ -0,0 +1,132 @@
+package dev.abstratium.core.service;
+
+import dev.abstratium.demo.entity.Demo;
+import dev.abstratium.demo.service.DemoService;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Verifies that batch jobs process every org as that org, on its shard, and resume after failures.
+ */
+@QuarkusTest
+class TenantBatchRunnerTest {
+
+    private static final String ORG_A = "aaaaaaaa-0000-0000-0000-0000000000b1";
+    // on shard-b, see application.properties
+    private static final String ORG_SHARD_B = "0000000b-0000-0000-0000-00000000000b";
+
+    @ConfigProperty(name = "quarkus.management.test-port", defaultValue = "9001")
+    int managementPort;
+
+    @Inject
+    TenantBatchRunner tenantBatchRunner;
+
+    @Inject
+    TenantBatchRunnerTestJob job;
+
+    @Inject
+    DemoService demoService;
+
+    @Inject
+    EntityManager em;
+
+    private final List<UUID> idsOfOrgA = new ArrayList<>();
+    private final List<UUID> idsOfShardB = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        job.reset();
+        for (int i = 0; i < 3; i++) {
+            idsOfOrgA.add(TenantContext.callAs(ORG_A, () -> demoService.create(new Demo()).getId()));
+        }
+        for (int i = 0; i < 2; i++) {
+            idsOfShardB.add(TenantContext.callAs(ORG_SHARD_B, () -> demoService.create(new Demo()).getId()));
+        }
+        idsOfOrgA.sort(null);
+        idsOfShardB.sort(null);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        idsOfOrgA.forEach(id -> TenantContext.runAs(ORG_A, () -> demoService.delete(id)));
+        idsOfShardB.forEach(id -> TenantContext.runAs(ORG_SHARD_B, () -> demoService.delete(id)));
+    }
+
+    @Test
+    void testEveryOrgIsProcessedAsItselfOnItsShard() throws Exception {
+        TenantBatchRunner.RunStatus status = tenantBatchRunner.start(job).completion().get(30, TimeUnit.SECONDS);
+
+        assertEquals(TenantBatchRunner.State.COMPLETED, status.state());
+        assertEquals(idsOfOrgA, job.processed(ORG_A));
+        assertEquals(idsOfShardB, job.processed(ORG_SHARD_B));
+        assertEquals(status.tenants(), status.tenantsCompleted());
+        assertEquals(job.processedItems(), status.items());
+        assertEquals(0, checkpoints(ORG_A));
+        assertEquals(0, checkpoints(ORG_SHARD_B));
+    }
+
+    @Test
+    void testFailedOrgIsResumedAfterItsLastCommittedChunk() throws Exception {
+        job.failOnceAfterFirstChunkOf(ORG_A);
+
+        TenantBatchRunner.RunStatus failed = tenantBatchRunner.start(job).completion().get(30, TimeUnit.SECONDS);
+
+        assertEquals(TenantBatchRunner.State.FAILED, failed.state());
+        assertEquals(Set.of(ORG_A), failed.failedOrgIds());
+        assertEquals(idsOfOrgA.subList(0, 2), job.processed(ORG_A));
+        assertEquals(1, checkpoints(ORG_A));
+        assertEquals(1, checkpoints(ORG_SHARD_B));
+
+        job.reset();
+        TenantBatchRunner.RunStatus resumed = tenantBatchRunner.start(job).completion().get(30, TimeUnit.SECONDS);
+
+        assertEquals(TenantBatchRunner.State.COMPLETED, resumed.state());
+        assertEquals(idsOfOrgA.subList(2, 3), job.processed(ORG_A));
+        assertNull(job.processed(ORG_SHARD_B), "completed orgs are not processed again");
+        assertEquals(0, checkpoints(ORG_A));
+    }
+
+    @Test
+    void testProgressIsReportedOnManagementInterface() throws Exception {
+        tenantBatchRunner.start(job).completion().get(30, TimeUnit.SECONDS);
+
+        given().port(managementPort)
+                .when().get("/m/batch")
+                .then().statusCode(200)
+                .body("jobs", hasItem(TenantBatchRunnerTestJob.NAME))
+                .body("runs.job", hasItem(TenantBatchRunnerTestJob.NAME));
+        given().port(managementPort)
+                .when().get("/m/batch/" + TenantBatchRunnerTestJob.NAME)
+                .then().statusCode(200)
+                .body("state", is("COMPLETED"));
+        given().port(managementPort)
+                .when().post("/m/batch/unknown/start")
+                .then().statusCode(404);
+    }
+
+    private long checkpoints(String orgId) throws Exception {
+        return TenantContext.callAs(orgId, () -> QuarkusTransaction.requiringNew().call(() ->
+                ((Number) em.createNativeQuery(
+                                "SELECT COUNT(*) FROM T_batch_checkpoint WHERE job_name = ?1 AND org_id = ?2")
+                        .setParameter(1, TenantBatchRunnerTestJob.NAME)
+                        .setParameter(2, orgId)
+                        .getSingleResult()).longValue()));
+    }
+}
@@ -0,0 +1,79 @@
+package dev.abstratium.core.service;
+
+import io.quarkus.hibernate.orm.PersistenceUnitExtension;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Test-only batch job used by TenantBatchRunnerTest: records the demo rows it sees, per org resolved for
+ * the session, and can be made to fail once for an org after its first chunk.
+ */
+@ApplicationScoped
+public class TenantBatchRunnerTestJob implements TenantBatchJob {
+
+    static final String NAME = "test-demo-scan";
+
+    @Inject
+    EntityManager em;
+
+    @Inject
+    @PersistenceUnitExtension
+    JwtOrgResolver jwtOrgResolver;
+
+    private final Map<String, List<UUID>> processedByOrgId = new ConcurrentHashMap<>();
+    private volatile String failOnceAfterFirstChunkOf;
+
+    void reset() {
+        processedByOrgId.clear();
+        failOnceAfterFirstChunkOf = null;
+    }
+
+    void failOnceAfterFirstChunkOf(String orgId) {
+        failOnceAfterFirstChunkOf = orgId;
+    }
+
+    /**
+     * @return the ids processed as the given org, or {@code null} if the org was not processed
+     */
+    List<UUID> processed(String orgId) {
+        return processedByOrgId.get(orgId);
+    }
+
+    long processedItems() {
+        return processedByOrgId.values().stream().mapToLong(List::size).sum();
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public String tenantTable() {
+        return "T_demo";
+    }
+
+    @Override
+    public Chunk processChunk(String checkpoint, int chunkSize) {
+        String orgId = jwtOrgResolver.resolveTenantId();
+        if (checkpoint != null && orgId.equals(failOnceAfterFirstChunkOf)) {
+            failOnceAfterFirstChunkOf = null;
+            throw new IllegalStateException("Simulated failure of org " + orgId);
+        }
+        List<UUID> ids = (checkpoint == null
+                ? em.createQuery("SELECT d.id FROM Demo d ORDER BY d.id", UUID.class)
+                : em.createQuery("SELECT d.id FROM Demo d WHERE d.id > :after ORDER BY d.id", UUID.class)
+                        .setParameter("after", UUID.fromString(checkpoint)))
+                .setMaxResults(chunkSize)
+                .getResultList();
+        processedByOrgId.computeIfAbsent(orgId, o -> new ArrayList<>()).addAll(ids);
+        return ids.size() < chunkSize ? Chunk.last(ids.size()) : new Chunk(ids.size(), ids.get(ids.size() - 1).toString());
+    }
+}
@@ -0,0 +1,219 @@
+package dev.abstratium.core.service;
+
+import dev.abstratium.demo.entity.Demo;
+import dev.abstratium.demo.service.DemoService;
+import io.quarkus.test.junit.QuarkusTest;
+import io.restassured.http.ContentType;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Verifies that cached entities and query results of one org are never served to another org.
+ */
+@QuarkusTest
+class TenantCachesTest {
+
+    private static final String ORG_A = "aaaaaaaa-0000-0000-0000-00000000000a";
+    private static final String ORG_B = "bbbbbbbb-0000-0000-0000-00000000000b";
+    private static final String DEMO_REGION = Demo.class.getName();
+    private static final String FIND_ALL_REGION = "dev.abstratium.demo.findAll";
+    private static final String FIND_PAGE_REGION = "dev.abstratium.demo.findPage";
+
+    @ConfigProperty(name = "quarkus.management.test-port", defaultValue = "9001")
+    int managementPort;
+
+    @ConfigProperty(name = "abstratium.cache.query-region-buckets")
+    int queryRegionBuckets;
+
+    @Inject
+    DemoService demoService;
+
+    @Inject
+    CurrentOrgContext currentOrgContext;
+
+    @Inject
+    TenantCaches tenantCaches;
+
+    @Inject
+    SessionFactory sessionFactory;
+
+    private final List<Object[]> created = new ArrayList<>();
+
+    @AfterEach
+    void cleanUp() {
+        for (Object[] orgAndId : created) {
+            currentOrgContext.setOrgId((String) orgAndId[0]);
+            demoService.delete((UUID) orgAndId[1]);
+        }
+        created.clear();
+    }
+
+    @Test
+    void testCachedEntitiesAreNotReadByOtherOrgs() {
+        Demo demo = create(ORG_A);
+
+        currentOrgContext.setOrgId(ORG_A);
+        long hitsBefore = regionStatistics(DEMO_REGION).getHitCount();
+        assertNotNull(demoService.findById(demo.getId()));
+        assertNotNull(demoService.findById(demo.getId()));
+        assertTrue(regionStatistics(DEMO_REGION).getHitCount() > hitsBefore, "the entity should be served from the cache");
+
+        currentOrgContext.setOrgId(ORG_B);
+        assertNull(demoService.findById(demo.getId()));
+
+        currentOrgContext.setOrgId(ORG_A);
+        assertEquals(ORG_A, demoService.findById(demo.getId()).getOrgId());
+    }
+
+    @Test
+    void testWritesKeepTheCachedEntitiesOfOtherOrgs() {
+        Demo demoA = create(ORG_A);
+        Demo demoB = create(ORG_B);
+        currentOrgContext.setOrgId(ORG_B);
+        demoService.findById(demoB.getId());
+
+        currentOrgContext.setOrgId(ORG_A);
+        demoService.update(demoA, demoA.getVersion());
+        demoService.delete(demoA.getId());
+
+        currentOrgContext.setOrgId(ORG_B);
+        long hitsBefore = regionStatistics(DEMO_REGION).getHitCount();
+        assertNotNull(demoService.findById(demoB.getId()));
+        assertEquals(hitsBefore + 1, regionStatistics(DEMO_REGION).getHitCount(),
+                "the demo of the other org should still be served from the cache");
+    }
+
+    @Test
+    void testCachedQueryResultsAreNotReadByOtherOrgs() throws InterruptedException {
+        Demo demoA = create(ORG_A);
+        Demo demoB = create(ORG_B);
+        awaitNextCacheTimestamp();
+
+        currentOrgContext.setOrgId(ORG_A);
+        assertEquals(List.of(demoA.getId()), ids(demoService.findAll()));
+        assertEquals(List.of(demoA.getId()), ids(demoService.findAll()));
+        assertTrue(regionStatistics(tenantCaches.tenantRegion(FIND_ALL_REGION, ORG_A)).getHitCount() > 0,
+                "the results should be served from the cache");
+
+        currentOrgContext.setOrgId(ORG_B);
+        assertEquals(List.of(demoB.getId()), ids(demoService.findAll()));
+        assertEquals(List.of(demoB.getId()), ids(demoService.findAll()));
+    }
+
+    @Test
+    void testPagesAreCachedInTheirOwnRegion() throws InterruptedException {
+        Demo demo = create(ORG_A);
+        awaitNextCacheTimestamp();
+
+        currentOrgContext.setOrgId(ORG_A);
+        assertEquals(List.of(demo.getId()), ids(demoService.findPage(null, null).items()));
+        assertEquals(List.of(demo.getId()), ids(demoService.findPage(null, null).items()));
+        assertTrue(regionStatistics(tenantCaches.tenantRegion(FIND_PAGE_REGION, ORG_A)).getHitCount() > 0,
+                "the page should be served from its own region");
+
+        Demo second = create(ORG_A);
+        currentOrgContext.setOrgId(ORG_A);
+        assertEquals(List.of(demo.getId(), second.getId()).stream().sorted().toList(),
+                ids(demoService.findPage(null, null).items()).stream().sorted().toList());
+    }
+
+    @Test
+    void testWritesEvictTheCachedQueryResultsOfTheirOrgOnly() {
+        Demo first = create(ORG_A);
+        currentOrgContext.setOrgId(ORG_A);
+        demoService.findAll();
+        currentOrgContext.setOrgId(ORG_B);
+        demoService.findAll();
+        long evictionsA = evictions(tenantCaches.tenantRegion(FIND_ALL_REGION, ORG_A));
+        long evictionsB = evictions(tenantCaches.tenantRegion(FIND_ALL_REGION, ORG_B));
+
+        Demo second = create(ORG_A);
+
+        currentOrgContext.setOrgId(ORG_A);
+        assertEquals(List.of(first.getId(), second.getId()).stream().sorted().toList(),
+                ids(demoService.findAll()).stream().sorted().toList());
+        assertEquals(evictionsA + 1, evictions(tenantCaches.tenantRegion(FIND_ALL_REGION, ORG_A)));
+        assertEquals(evictionsB, evictions(tenantCaches.tenantRegion(FIND_ALL_REGION, ORG_B)));
+    }
+
+    @Test
+    void testEvictTenantIsReportedOnTheManagementInterface() {
+        create(ORG_A);
+        currentOrgContext.setOrgId(ORG_A);
+        demoService.findAll();
+
+        given()
+            .port(managementPort)
+            .when()
+            .post("/m/cache/tenants/" + ORG_A + "/evict")
+            .then()
+            .statusCode(200)
+            .body("evicted", is(ORG_A));
+
+        given()
+            .port(managementPort)
+            .when()
+            .get("/m/cache")
+            .then()
+            .statusCode(200)
+            .contentType(ContentType.JSON)
+            .body("regions.region", hasItem(DEMO_REGION))
+            .body("regions.region", hasItem(tenantCaches.tenantRegion(FIND_ALL_REGION, ORG_A)));
+    }
+
+    @Test
+    void testQueryRegionsAreBoundedHoweverManyOrgsThereAre() {
+        Set<String> regions = new HashSet<>();
+        for (int i = 0; i < 1000; i++) {
+            regions.add(tenantCaches.tenantRegion(FIND_ALL_REGION, UUID.randomUUID().toString()));
+        }
+        assertEquals(queryRegionBuckets, regions.size());
+        assertNotEquals(tenantCaches.tenantRegion(FIND_ALL_REGION, ORG_A), tenantCaches.tenantRegion(FIND_ALL_REGION, ORG_B),
+                "the orgs of these tests must not share a bucket");
+    }
+
+    private Demo create(String orgId) {
+        currentOrgContext.setOrgId(orgId);
+        Demo demo = demoService.create(new Demo());
+        created.add(new Object[]{orgId, demo.getId()});
+        return demo;
+    }
+
+    /**
+     * Hibernate treats query results cached within the same clock tick as the last write to a queried
+     * table as stale, so that they are not served from the cache.
+     */
+    private static void awaitNextCacheTimestamp() throws InterruptedException {
+        Thread.sleep(10);
+    }
+
+    private CacheRegionStatistics regionStatistics(String region) {
+        return sessionFactory.getStatistics().getCacheRegionStatistics(region);
+    }
+
+    private long evictions(String region) {
+        return tenantCaches.statistics().stream()
+                .filter(s -> s.region().equals(region))
+                .mapToLong(TenantCaches.RegionStatistics::evictions)
+                .findFirst().orElse(0);
+    }
+
+    private static List<UUID> ids(List<Demo> demos) {
+        return demos.stream().map(Demo::getId).toList();
+    }
+}
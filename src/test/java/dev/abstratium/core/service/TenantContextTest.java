@@ -0,0 +1,117 @@
+package dev.abstratium.core.service;
+
+import dev.abstratium.demo.entity.Demo;
+import dev.abstratium.demo.service.DemoService;
+import io.quarkus.arc.Arc;
+import io.quarkus.hibernate.orm.PersistenceUnitExtension;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.context.ManagedExecutor;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Verifies that work run with {@link TenantContext} uses the given org, on the current thread and on
+ * threads of a {@link ManagedExecutor}.
+ */
+@QuarkusTest
+class TenantContextTest {
+
+    private static final String ORG_A = "aaaaaaaa-0000-0000-0000-0000000000c1";
+    private static final String ORG_B = "bbbbbbbb-0000-0000-0000-0000000000c2";
+
+    @Inject
+    DemoService demoService;
+
+    @Inject
+    CurrentOrgContext currentOrgContext;
+
+    @Inject
+    @PersistenceUnitExtension
+    JwtOrgResolver jwtOrgResolver;
+
+    @Inject
+    ManagedExecutor managedExecutor;
+
+    @Test
+    void testRunAsOnThreadWithoutRequestContext() throws Exception {
+        AtomicReference<Demo> created = new AtomicReference<>();
+        AtomicReference<Boolean> requestContextActive = new AtomicReference<>();
+        Thread thread = Thread.ofVirtual().start(() -> TenantContext.runAs(ORG_A, () -> {
+            requestContextActive.set(Arc.container().requestContext().isActive());
+            created.set(demoService.create(new Demo()));
+        }));
+        thread.join(10_000);
+
+        try {
+            assertTrue(requestContextActive.get());
+            assertEquals(ORG_A, created.get().getOrgId());
+            assertTrue(TenantContext.callAs(ORG_A, () -> ids(demoService.findAll())).contains(created.get().getId()));
+            assertFalse(TenantContext.callAs(ORG_B, () -> ids(demoService.findAll())).contains(created.get().getId()));
+        } finally {
+            TenantContext.runAs(ORG_A, () -> demoService.delete(created.get().getId()));
+        }
+    }
+
+    @Test
+    void testRunAsTakesPrecedenceOverRequestOrgAndIsRestored() throws Exception {
+        currentOrgContext.setOrgId(ORG_A);
+
+        TenantContext.runAs(ORG_B, () -> {
+            assertEquals(ORG_B, jwtOrgResolver.resolveTenantId());
+            assertEquals(ORG_B, currentOrgContext.getOrgId());
+            TenantContext.runAs(ORG_A, () -> assertEquals(ORG_A, TenantContext.currentOrgId()));
+            assertEquals(ORG_B, TenantContext.currentOrgId());
+        });
+
+        assertNull(TenantContext.currentOrgId());
+        assertEquals(ORG_A, currentOrgContext.getOrgId());
+    }
+
+    @Test
+    void testRunAsOrgIsPropagatedToManagedExecutor() throws Exception {
+        String resolved = TenantContext.callAs(ORG_B,
+                () -> managedExecutor.supplyAsync(jwtOrgResolver::resolveTenantId).join());
+
+        assertEquals(ORG_B, resolved);
+    }
+
+    @Test
+    void testRequestOrgIsPropagatedToManagedExecutor() {
+        currentOrgContext.setOrgId(ORG_A);
+
+        CompletableFuture<String> runAs = managedExecutor.supplyAsync(TenantContext::currentOrgId);
+        CompletableFuture<String> resolved = managedExecutor.supplyAsync(jwtOrgResolver::resolveTenantId);
+
+        assertEquals(ORG_A, runAs.join());
+        assertEquals(ORG_A, resolved.join());
+    }
+
+    @Test
+    void testPropagatedOrgIsNotLeakedToLaterTasks() throws Exception {
+        ManagedExecutor executor = ManagedExecutor.builder().maxAsync(1).build();
+        try {
+            TenantContext.callAs(ORG_B, () -> executor.supplyAsync(TenantContext::currentOrgId).join());
+
+            assertNull(CompletableFuture.supplyAsync(TenantContext::currentOrgId, executor).join());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void testRunAsRejectsBlankOrg() {
+        assertThrows(IllegalArgumentException.class, () -> TenantContext.runAs(" ", () -> fail("must not run")));
+        assertThrows(IllegalArgumentException.class, () -> TenantContext.runAs(null, () -> fail("must not run")));
+    }
+
+    private static List<UUID> ids(List<Demo> demos) {
+        return demos.stream().map(Demo::getId).toList();
+    }
+}
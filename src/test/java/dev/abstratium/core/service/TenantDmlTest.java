@@ -0,0 +1,122 @@
+package dev.abstratium.core.service;
+
+import dev.abstratium.core.util.UuidV7;
+import dev.abstratium.demo.entity.Demo;
+import dev.abstratium.demo.service.DemoService;
+import io.agroal.api.AgroalDataSource;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Verifies that bulk statements only touch the rows of the current org. Both orgs get a row, inserted with
+ * JDBC.
+ */
+@QuarkusTest
+class TenantDmlTest {
+
+    private static final String ORG_A = "aaaaaaaa-0000-0000-0000-0000000000b1";
+    private static final String ORG_B = "aaaaaaaa-0000-0000-0000-0000000000b2";
+
+    @Inject
+    TenantDml tenantDml;
+
+    @Inject
+    DemoService demoService;
+
+    @Inject
+    AgroalDataSource dataSource;
+
+    private final UUID idOfA = UuidV7.generate();
+    private final UUID idOfB = UuidV7.generate();
+
+    @BeforeEach
+    void insertRows() throws SQLException {
+        insert(idOfA, ORG_A);
+        insert(idOfB, ORG_B);
+    }
+
+    @AfterEach
+    void deleteRows() throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement delete = connection.prepareStatement("DELETE FROM T_demo WHERE id IN (?, ?)")) {
+            delete.setBytes(1, UuidV7.toBytes(idOfA));
+            delete.setBytes(2, UuidV7.toBytes(idOfB));
+            delete.executeUpdate();
+        }
+    }
+
+    @Test
+    void testIdsAreUniqueAcrossOrgs() {
+        assertThrows(SQLException.class, () -> insert(idOfA, ORG_B));
+    }
+
+    @Test
+    void testDeleteOnlyRemovesTheRowOfTheCurrentOrg() throws SQLException {
+        TenantContext.runAs(ORG_A, () -> demoService.delete(idOfB));
+        assertEquals(0L, version(idOfB));
+
+        TenantContext.runAs(ORG_A, () -> demoService.delete(idOfA));
+        assertNull(version(idOfA));
+        assertEquals(0L, version(idOfB));
+    }
+
+    @Test
+    void testConditionsCannotReachOtherOrgs() throws Exception {
+        int updated = TenantContext.callAs(ORG_A, () -> tenantDml.update(Demo.class, "e.version = e.version + 1",
+                "e.id = :id OR 1 = 1", Map.of("id", idOfB)));
+
+        assertEquals(1, updated);
+        assertEquals(1L, version(idOfA));
+        assertEquals(0L, version(idOfB));
+
+        int deleted = TenantContext.callAs(ORG_A, () -> tenantDml.delete(Demo.class, "e.id = :id OR 1 = 1",
+                Map.of("id", idOfB)));
+
+        assertEquals(1, deleted);
+        assertNull(version(idOfA));
+        assertEquals(0L, version(idOfB));
+        assertEquals(0, TenantContext.callAs(ORG_A, () -> tenantDml.delete(Demo.class, "e.id = :id", Map.of("id", idOfB))));
+    }
+
+    @Test
+    void testReservedParameterIsRejected() throws SQLException {
+        assertThrows(IllegalArgumentException.class, () -> TenantContext.runAs(ORG_A, () -> tenantDml.delete(
+                Demo.class, "e.orgId = :" + TenantDml.ORG_ID_PARAM, Map.of(TenantDml.ORG_ID_PARAM, ORG_B))));
+        assertEquals(0L, version(idOfB));
+    }
+
+    private void insert(UUID id, String orgId) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement insert = connection.prepareStatement(
+                     "INSERT INTO T_demo (id, org_id, version) VALUES (?, ?, 0)")) {
+            insert.setBytes(1, UuidV7.toBytes(id));
+            insert.setString(2, orgId);
+            insert.executeUpdate();
+        }
+    }
+
+    /**
+     * @return the version of the row, or {@code null} if there is none
+     */
+    private Long version(UUID id) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement query = connection.prepareStatement("SELECT version FROM T_demo WHERE id = ?")) {
+            query.setBytes(1, UuidV7.toBytes(id));
+            try (ResultSet resultSet = query.executeQuery()) {
+                return resultSet.next() ? resultSet.getLong(1) : null;
+            }
+        }
+    }
+}
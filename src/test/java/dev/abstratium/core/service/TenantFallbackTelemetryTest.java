@@ -0,0 +1,84 @@
+package dev.abstratium.core.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@QuarkusTest
+class TenantFallbackTelemetryTest {
+
+    @Inject
+    TenantFallbackTelemetry telemetry;
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    @Test
+    void testFallbacksAreCountedPerReasonMethodAndPathTemplate() {
+        telemetry.record("test reason", "GET", "/api/telemetry/123", null);
+        telemetry.record("test reason", "GET", "/api/telemetry/456", null);
+        telemetry.record("test reason", "GET", "/api/telemetry/0b7e6e0c-4c3d-4b8e-9d0a-2f1e3c4b5a69", "ctx");
+        telemetry.record("test reason", "POST", "/api/telemetry/123", null);
+
+        assertEquals(3L, telemetry.totals().get(new TenantFallbackTelemetry.FallbackKey("test reason", "GET", "/api/telemetry/{id}")));
+        assertEquals(1L, telemetry.totals().get(new TenantFallbackTelemetry.FallbackKey("test reason", "POST", "/api/telemetry/{id}")));
+
+        FunctionCounter counter = meterRegistry.find(TenantFallbackTelemetry.METRIC_NAME)
+                .tags("reason", "test reason", "method", "GET", "path", "/api/telemetry/{id}")
+                .functionCounter();
+        assertNotNull(counter);
+        assertEquals(3.0, counter.count());
+    }
+
+    @Test
+    void testSummaryReportsFallbacksSinceThePreviousSummary() {
+        telemetry.summarize();
+        IntStream.range(0, 5).forEach(i -> telemetry.record("summary reason", null, "/public/summary", null));
+
+        String summary = telemetry.summarize();
+        assertNotNull(summary);
+        assertTrue(summary.contains("summary reason - /public/summary=5"), summary);
+        assertNull(telemetry.summarize(), "nothing happened since the last summary");
+    }
+
+    @Test
+    void testConcurrentFallbacksAreNotLost() {
+        CompletableFuture<?>[] futures = IntStream.range(0, 8)
+                .mapToObj(t -> CompletableFuture.runAsync(() -> {
+                    for (int i = 0; i < 1000; i++) {
+                        telemetry.record("concurrent reason", "GET", "/public/concurrent/" + i, null);
+                    }
+                }))
+                .toArray(CompletableFuture[]::new);
+        CompletableFuture.allOf(futures).join();
+
+        assertEquals(8000L, telemetry.totals().get(new TenantFallbackTelemetry.FallbackKey("concurrent reason", "GET", "/public/concurrent/{id}")));
+    }
+
+    @Test
+    void testPathTemplates() {
+        assertEquals("/api/demo/{id}", TenantFallbackTelemetry.template("/api/demo/42"));
+        assertEquals("/api/demo/{id}/items", TenantFallbackTelemetry.template("/api/demo/0b7e6e0c-4c3d-4b8e-9d0a-2f1e3c4b5a69/items"));
+        assertEquals("/api/demo", TenantFallbackTelemetry.template("/api/demo?limit=10"));
+        assertEquals("/oauth/{id}", TenantFallbackTelemetry.template("/oauth/AbCdEfGhIjKlMnOpQrStUvWx"));
+        assertEquals("-", TenantFallbackTelemetry.template(null));
+    }
+
+    @Test
+    void testCachedPathTemplatesAreBounded() {
+        String template = telemetry.cachedTemplate("/api/cached/42");
+        assertEquals("/api/cached/{id}", template);
+        assertSame(template, telemetry.cachedTemplate("/api/cached/42"), "the template of a known path comes from the cache");
+
+        IntStream.range(0, 2 * TenantFallbackTelemetry.MAX_CACHED_PATHS)
+                .forEach(i -> assertEquals("/public/cached/{id}", telemetry.cachedTemplate("/public/cached/" + i)));
+        assertTrue(telemetry.cachedPaths() <= TenantFallbackTelemetry.MAX_CACHED_PATHS, "cached paths: " + telemetry.cachedPaths());
+    }
+}
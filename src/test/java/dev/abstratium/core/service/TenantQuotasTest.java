@@ -0,0 +1,134 @@
+package dev.abstratium.core.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the token buckets of {@link TenantQuotas} with the tiers of application.properties; the default
+ * tier "standard" admits 50 requests per second with a burst of 100.
+ */
+@QuarkusTest
+class TenantQuotasTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+    private static final long INTERVAL = SECOND / 50;
+
+    @Inject
+    TenantQuotas tenantQuotas;
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void reset() {
+        tenantQuotas.reset();
+    }
+
+    @Test
+    void testBurstIsAdmittedThenRequestsAreRejectedUntilATokenIsBack() {
+        long now = System.nanoTime();
+        for (int i = 0; i < 100; i++) {
+            assertEquals(0, tenantQuotas.tryAcquire("quotas-burst", now), "request " + i);
+        }
+        assertEquals(INTERVAL, tenantQuotas.tryAcquire("quotas-burst", now));
+        assertEquals(INTERVAL / 2, tenantQuotas.tryAcquire("quotas-burst", now + INTERVAL / 2));
+        assertEquals(0, tenantQuotas.tryAcquire("quotas-burst", now + INTERVAL));
+        assertTrue(tenantQuotas.tryAcquire("quotas-burst", now + INTERVAL) > 0);
+    }
+
+    @Test
+    void testSustainedRateIsAdmitted() {
+        long now = System.nanoTime();
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(0, tenantQuotas.tryAcquire("quotas-sustained", now + i * INTERVAL), "request " + i);
+        }
+    }
+
+    @Test
+    void testIdleBucketRefillsOnlyUpToTheBurst() {
+        long now = System.nanoTime();
+        long later = now + 3600 * SECOND;
+        int admitted = 0;
+        while (tenantQuotas.tryAcquire("quotas-idle", later) == 0) {
+            admitted++;
+        }
+        assertEquals(100, admitted);
+    }
+
+    @Test
+    void testConcurrentCallersNeverExceedTheBurst() throws Exception {
+        long now = System.nanoTime();
+        AtomicInteger admitted = new AtomicInteger();
+        try (ExecutorService executor = Executors.newFixedThreadPool(16)) {
+            for (int t = 0; t < 16; t++) {
+                executor.submit(() -> {
+                    for (int i = 0; i < 50; i++) {
+                        if (tenantQuotas.tryAcquire("quotas-concurrent", now) == 0) {
+                            admitted.incrementAndGet();
+                        }
+                    }
+                });
+            }
+        }
+        assertEquals(100, admitted.get());
+    }
+
+    @Test
+    void testUnassignedOrgsGetTheDefaultTier() {
+        TenantQuotas.Tier tier = tenantQuotas.tierOf("quotas-any");
+        assertEquals("standard", tier.name());
+        assertEquals(50.0, tier.requestsPerSecond());
+        assertEquals(100, tier.burst());
+    }
+
+    @Test
+    void testInvalidTierDefinitionsAreRejected() {
+        assertThrows(IllegalStateException.class, () -> TenantQuotas.Tier.parse("broken"));
+        assertThrows(IllegalStateException.class, () -> TenantQuotas.Tier.parse("zero=0:10"));
+        assertEquals(new TenantQuotas.Tier("x", 2.5, 3), TenantQuotas.Tier.parse("x=2.5:3"));
+    }
+
+    @Test
+    void testUsageIsExportedPerOrgWithACapOnSeries() {
+        long now = System.nanoTime();
+        for (int i = 0; i < 101; i++) {
+            tenantQuotas.tryAcquire("quotas-metrics", now);
+        }
+        assertEquals(100.0, counter("quotas-metrics", "admitted").count());
+        assertEquals(1.0, counter("quotas-metrics", "rejected").count());
+
+        for (int i = 0; i < 150; i++) {
+            tenantQuotas.tryAcquire("quotas-series-" + i, now);
+        }
+        long orgSeries = meterRegistry.find(TenantQuotas.METRIC_NAME).tag("outcome", "admitted").functionCounters().size();
+        assertTrue(orgSeries <= 101, "series: " + orgSeries);
+        assertNotNull(meterRegistry.find(TenantQuotas.METRIC_NAME).tag("org", TenantQuotas.OTHER_ORG).functionCounter());
+    }
+
+    @Test
+    void testUsageSeriesAreRemovedWithTheBucketOfTheirOrg() {
+        tenantQuotas.tryAcquire("quotas-removed", System.nanoTime());
+        assertEquals(1.0, counter("quotas-removed", "admitted").count());
+
+        tenantQuotas.reset();
+
+        assertNull(meterRegistry.find(TenantQuotas.METRIC_NAME).tag("org", "quotas-removed").functionCounter());
+        tenantQuotas.tryAcquire("quotas-removed", System.nanoTime());
+        assertEquals(1.0, counter("quotas-removed", "admitted").count());
+    }
+
+    private FunctionCounter counter(String org, String outcome) {
+        return meterRegistry.get(TenantQuotas.METRIC_NAME).tag("org", org).tag("outcome", outcome).functionCounter();
+    }
+}
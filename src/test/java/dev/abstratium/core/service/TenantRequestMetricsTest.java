@@ -0,0 +1,136 @@
+package dev.abstratium.core.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.hasItem;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for TenantRequestMetrics with the defaults of application.properties (top 20 orgs get their own series).
+ */
+@QuarkusTest
+class TenantRequestMetricsTest {
+
+    private static final String ENDPOINT = "GET /test/metrics";
+    private static final String ORG_ID_HEADER = "X-Test-Org-Id";
+
+    @ConfigProperty(name = "quarkus.management.test-port", defaultValue = "9001")
+    int managementPort;
+
+    @Inject
+    TenantRequestMetrics tenantRequestMetrics;
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    // other tests' requests must not compete for the top
+    @BeforeEach
+    void forgetOrgs() {
+        tenantRequestMetrics.clear();
+    }
+
+    @Test
+    void testOnlyTheMostActiveOrgsGetTheirOwnSeries() {
+        for (int i = 0; i < 1000; i++) {
+            tenantRequestMetrics.record("metrics-heavy", ENDPOINT, 200, TimeUnit.MILLISECONDS.toNanos(5));
+        }
+        for (int i = 0; i < 100; i++) {
+            tenantRequestMetrics.record("metrics-rare-" + i, ENDPOINT, 200, TimeUnit.MILLISECONDS.toNanos(5));
+        }
+        tenantRequestMetrics.refreshTop();
+
+        assertTrue(tenantRequestMetrics.taggedOrgIds().contains("metrics-heavy"));
+        assertTrue(tenantRequestMetrics.taggedOrgIds().size() <= 20);
+
+        // the series only exists if the top was also refreshed while recording above
+        Timer heavy = meterRegistry.find(TenantRequestMetrics.METRIC_NAME)
+                .tag("endpoint", ENDPOINT).tag("org", "metrics-heavy").tag("status", "2xx").timer();
+        long heavyBefore = heavy != null ? heavy.count() : 0;
+        tenantRequestMetrics.record("metrics-heavy", ENDPOINT, 200, TimeUnit.MILLISECONDS.toNanos(5));
+        assertEquals(heavyBefore + 1, timer("metrics-heavy", "2xx").count());
+
+        long otherBefore = otherCount();
+        tenantRequestMetrics.record("metrics-newcomer", ENDPOINT, 200, TimeUnit.MILLISECONDS.toNanos(5));
+        assertEquals(otherBefore + 1, otherCount());
+        assertNull(meterRegistry.find(TenantRequestMetrics.METRIC_NAME).tag("org", "metrics-newcomer").timer());
+    }
+
+    @Test
+    void testRequestsWithoutOrgAreRecordedPerStatusClass() {
+        tenantRequestMetrics.record(null, ENDPOINT, 503, TimeUnit.MILLISECONDS.toNanos(20));
+
+        Timer timer = timer(TenantRequestMetrics.NO_ORG, "5xx");
+        assertTrue(timer.count() >= 1);
+        assertEquals(0, timer.takeSnapshot().histogramCounts().length, "histograms are only published without the org");
+        Timer aggregate = meterRegistry.get(TenantRequestMetrics.AGGREGATE_METRIC_NAME)
+                .tag("endpoint", ENDPOINT).tag("status", "5xx").timer();
+        assertTrue(aggregate.count() >= 1);
+        assertTrue(aggregate.takeSnapshot().histogramCounts().length > 0, "latency histogram should be published");
+    }
+
+    @Test
+    void testOrgsThatDropOutOfTheTopLoseTheirSeries() {
+        tenantRequestMetrics.record("metrics-churn", ENDPOINT, 200, 1);
+        tenantRequestMetrics.refreshTop();
+        tenantRequestMetrics.record("metrics-churn", ENDPOINT, 200, 1);
+        assertNotNull(timer("metrics-churn", "2xx"));
+
+        // crowd it out of the top 20
+        for (int i = 0; i < 20; i++) {
+            for (int j = 0; j < 10; j++) {
+                tenantRequestMetrics.record("metrics-crowd-" + i, ENDPOINT, 200, 1);
+            }
+        }
+        tenantRequestMetrics.refreshTop();
+
+        assertFalse(tenantRequestMetrics.isTagged("metrics-churn"));
+        assertNull(meterRegistry.find(TenantRequestMetrics.METRIC_NAME).tag("org", "metrics-churn").timer());
+    }
+
+    @Test
+    void testHttpRequestsAreRecordedPerEndpointAndOrg() {
+        given().header(ORG_ID_HEADER, "metrics-http").when().get("/public/test/quota").then().statusCode(200);
+        tenantRequestMetrics.refreshTop();
+        given().header(ORG_ID_HEADER, "metrics-http").when().get("/public/test/quota").then().statusCode(200);
+
+        Timer timer = meterRegistry.find(TenantRequestMetrics.METRIC_NAME)
+                .tag("endpoint", "GET /public/test/quota").tag("org", "metrics-http").tag("status", "2xx").timer();
+        assertNotNull(timer);
+        assertTrue(timer.count() >= 1);
+    }
+
+    @Test
+    void testTopTenantsAreServedOnTheManagementInterface() {
+        tenantRequestMetrics.record("metrics-management", ENDPOINT, 200, 1);
+        tenantRequestMetrics.refreshTop();
+
+        given()
+            .port(managementPort)
+            .when()
+            .get("/m/tenants/top")
+            .then()
+            .statusCode(200)
+            .body("top.item", hasItem("metrics-management"))
+            .body("tagged", hasItem("metrics-management"));
+    }
+
+    private Timer timer(String org, String status) {
+        return meterRegistry.get(TenantRequestMetrics.METRIC_NAME)
+                .tag("endpoint", ENDPOINT).tag("org", org).tag("status", status).timer();
+    }
+
+    private long otherCount() {
+        Timer other = meterRegistry.find(TenantRequestMetrics.METRIC_NAME)
+                .tag("endpoint", ENDPOINT).tag("org", TenantRequestMetrics.OTHER_ORG).timer();
+        return other != null ? other.count() : 0;
+    }
+}
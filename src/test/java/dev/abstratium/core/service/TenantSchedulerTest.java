@@ -0,0 +1,112 @@
+package dev.abstratium.core.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.*;
+
+@QuarkusTest
+class TenantSchedulerTest {
+
+    private static final String ORG_ID_HEADER = "X-Test-Org-Id";
+
+    @Inject
+    TenantScheduler tenantScheduler;
+
+    @Inject
+    TenantRequestMetrics tenantRequestMetrics;
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    @Test
+    void testScheduledEndpointsRunOnVirtualThreads() {
+        given().header(ORG_ID_HEADER, "scheduler-org")
+                .when().get("/public/test/scheduled")
+                .then().statusCode(200).body(is("true"));
+    }
+
+    @Test
+    void testWaitTimeIsRecordedAndSlotsAreReleased() {
+        long before = waitCount();
+        List<CompletableFuture<Void>> requests = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            String org = "scheduler-org-" + (i % 3);
+            requests.add(CompletableFuture.runAsync(() -> given().header(ORG_ID_HEADER, org)
+                    .when().get("/public/test/scheduled")
+                    .then().statusCode(200)));
+        }
+        requests.forEach(CompletableFuture::join);
+
+        assertEquals(before + 30, waitCount());
+        assertEquals(0.0, meterRegistry.get("abstratium.scheduler.running").gauge().value());
+        assertEquals(0.0, meterRegistry.get("abstratium.scheduler.waiting").gauge().value());
+    }
+
+    @Test
+    void testOrgsAreWeightedByTheirQuotaTier() {
+        // application.properties: default tier "standard" with weight 2
+        assertEquals(2, tenantScheduler.weightOf("scheduler-org"));
+        assertEquals(1, tenantScheduler.weightOf(TenantScheduler.NO_ORG));
+    }
+
+    @Test
+    void testWaitTimersAreReusedAndRemovedWhenTheirOrgIsNoLongerTagged() {
+        tenantRequestMetrics.clear();
+        tenantRequestMetrics.record("scheduler-tagged", "GET /test", 200, 1);
+        tenantRequestMetrics.refreshTop();
+        Timer timer = tenantScheduler.waitTimer("scheduler-tagged");
+        assertSame(timer, tenantScheduler.waitTimer("scheduler-tagged"));
+        assertEquals("scheduler-tagged", timer.getId().getTag("org"));
+
+        tenantRequestMetrics.clear();
+        tenantRequestMetrics.record("scheduler-newcomer", "GET /test", 200, 1);
+        tenantRequestMetrics.refreshTop();
+        assertEquals("scheduler-newcomer", tenantScheduler.waitTimer("scheduler-newcomer").getId().getTag("org"));
+
+        assertNull(meterRegistry.find(TenantScheduler.WAIT_METRIC_NAME).tag("org", "scheduler-tagged").timer());
+        assertEquals(TenantRequestMetrics.OTHER_ORG,
+                tenantScheduler.waitTimer("scheduler-tagged").getId().getTag("org"));
+    }
+
+    @Test
+    void testWaitTimersStayRegisteredWhileTheTaggedOrgsChange() {
+        List<CompletableFuture<Void>> churn = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            churn.add(CompletableFuture.runAsync(() -> {
+                for (int i = 0; i < 500; i++) {
+                    try {
+                        tenantScheduler.release(tenantScheduler.acquire("scheduler-churn-" + (i % 2)));
+                    } catch (InterruptedException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+            }));
+        }
+        for (int i = 0; i < 200; i++) {
+            tenantRequestMetrics.clear();
+            tenantRequestMetrics.record("scheduler-churn-" + (i % 2), "GET /test", 200, 1);
+            tenantRequestMetrics.refreshTop();
+        }
+        churn.forEach(CompletableFuture::join);
+
+        for (String org : List.of("scheduler-churn-0", "scheduler-churn-1")) {
+            Timer timer = tenantScheduler.waitTimer(org);
+            assertSame(timer, meterRegistry.find(TenantScheduler.WAIT_METRIC_NAME)
+                    .tag("org", timer.getId().getTag("org")).timer(), "the series in use is registered");
+        }
+    }
+
+    private long waitCount() {
+        return meterRegistry.find(TenantScheduler.WAIT_METRIC_NAME).timers().stream().mapToLong(Timer::count).sum();
+    }
+}
@@ -0,0 +1,22 @@
+package dev.abstratium.core.service;
+
+import io.smallrye.common.annotation.RunOnVirtualThread;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+
+/**
+ * Test-only JAX-RS resource used by TenantSchedulerTest.
+ */
+@Path("/public/test/scheduled")
+@RunOnVirtualThread
+@TenantScheduled
+public class TenantSchedulerTestResource {
+
+    @GET
+    @Produces(MediaType.TEXT_PLAIN)
+    public String get() {
+        return String.valueOf(Thread.currentThread().isVirtual());
+    }
+}
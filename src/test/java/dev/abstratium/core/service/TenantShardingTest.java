@@ -0,0 +1,111 @@
+package dev.abstratium.core.service;
+
+import dev.abstratium.core.util.UuidV7;
+import dev.abstratium.demo.entity.Demo;
+import dev.abstratium.demo.service.DemoService;
+import io.agroal.api.AgroalDataSource;
+import io.quarkus.agroal.DataSource;
+import io.quarkus.hibernate.orm.PersistenceUnitExtension;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Verifies that sessions are routed to the shard of their org. The test configuration assigns
+ * {@value #SHARD_B_ORG_ID} to the H2 datasource {@code shard-b}; all other orgs live on the default datasource.
+ */
+@QuarkusTest
+class TenantShardingTest {
+
+    static final String SHARD_B_ORG_ID = "0000000b-0000-0000-0000-00000000000b";
+    private static final UUID SEED_DEMO_ID = UUID.fromString("e9877513-73cf-44fe-b581-4bad96e168cb");
+
+    @ConfigProperty(name = "default.org.uuid")
+    String defaultOrgId;
+
+    @Inject
+    TenantDirectory tenantDirectory;
+
+    @Inject
+    @PersistenceUnitExtension
+    ShardConnectionResolver shardConnectionResolver;
+
+    @Inject
+    CurrentOrgContext currentOrgContext;
+
+    @Inject
+    DemoService demoService;
+
+    @Inject
+    AgroalDataSource defaultDataSource;
+
+    @Inject
+    @DataSource("shard-b")
+    AgroalDataSource shardB;
+
+    @Test
+    void testDirectoryAssignsOrgsToShards() {
+        assertEquals("shard-b", tenantDirectory.shardOf(SHARD_B_ORG_ID));
+        assertEquals("<default>", tenantDirectory.shardOf(defaultOrgId));
+        assertEquals("<default>", tenantDirectory.shardOf(null));
+        assertEquals(Set.of("<default>", "shard-b"), tenantDirectory.shards());
+    }
+
+    @Test
+    void testOrgsOnTheSameShardShareAConnectionProvider() {
+        assertSame(shardConnectionResolver.resolve(defaultOrgId),
+                shardConnectionResolver.resolve("11111111-1111-1111-1111-111111111111"));
+        assertNotSame(shardConnectionResolver.resolve(defaultOrgId),
+                shardConnectionResolver.resolve(SHARD_B_ORG_ID));
+    }
+
+    @Test
+    void testUnknownShardIsRejected() {
+        assertThrows(IllegalStateException.class, () -> tenantDirectory.dataSource("no-such-shard"));
+    }
+
+    @Test
+    void testFlywayMigratedEveryShard() throws SQLException {
+        assertTrue(exists(defaultDataSource, SEED_DEMO_ID));
+        assertTrue(exists(shardB, SEED_DEMO_ID));
+    }
+
+    @Test
+    void testEntitiesAreStoredOnTheShardOfTheirOrg() throws SQLException {
+        currentOrgContext.setOrgId(SHARD_B_ORG_ID);
+        Demo created = demoService.create(new Demo());
+        try {
+            assertTrue(exists(shardB, created.getId()));
+            assertFalse(exists(defaultDataSource, created.getId()));
+            assertTrue(demoService.findAll().stream().anyMatch(d -> d.getId().equals(created.getId())));
+
+            currentOrgContext.setOrgId(defaultOrgId);
+            assertTrue(demoService.findAll().stream().noneMatch(d -> d.getId().equals(created.getId())));
+        } finally {
+            currentOrgContext.setOrgId(SHARD_B_ORG_ID);
+            demoService.delete(created.getId());
+        }
+        assertFalse(exists(shardB, created.getId()));
+    }
+
+    private static boolean exists(AgroalDataSource dataSource, UUID id) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement("SELECT COUNT(*) FROM T_demo WHERE id = ?")) {
+            statement.setBytes(1, UuidV7.toBytes(id));
+            try (ResultSet rs = statement.executeQuery()) {
+                rs.next();
+                return rs.getInt(1) == 1;
+            }
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package dev.abstratium.core.service;
+
+import dev.abstratium.core.util.UuidV7;
+import dev.abstratium.demo.entity.Demo;
+import dev.abstratium.demo.service.DemoService;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Verifies that an org can be copied from the default shard to shard-b, and that interrupted exports and
+ * imports resume where they stopped. Chunks hold 2 rows, see application.properties.
+ */
+@QuarkusTest
+class TenantTransferTest {
+
+    private static final String ORG = "aaaaaaaa-0000-0000-0000-0000000000c1";
+    private static final String OTHER_ORG = "aaaaaaaa-0000-0000-0000-0000000000c2";
+    private static final String TARGET = "shard-b";
+
+    @Inject
+    TenantTransfer tenantTransfer;
+
+    @Inject
+    TenantDirectory tenantDirectory;
+
+    @Inject
+    DemoService demoService;
+
+    private final List<UUID> ids = new ArrayList<>();
+    private UUID idOfOtherOrg;
+    private Path directory;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            Demo demo = new Demo();
+            ids.add(TenantContext.callAs(ORG, () -> demoService.create(demo).getId()));
+        }
+        ids.sort(null);
+        idOfOtherOrg = TenantContext.callAs(OTHER_ORG, () -> demoService.create(new Demo()).getId());
+        directory = Files.createTempDirectory("tenant-transfer");
+    }
+
+    @AfterEach
+    void cleanUp() throws Exception {
+        ids.forEach(id -> TenantContext.runAs(ORG, () -> demoService.delete(id)));
+        TenantContext.runAs(OTHER_ORG, () -> demoService.delete(idOfOtherOrg));
+        execute(TARGET, "DELETE FROM T_demo WHERE org_id = ?");
+        execute(TARGET, "DELETE FROM T_batch_checkpoint WHERE org_id = ?");
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Test
+    void testExportAndImportCopyAllRowsOfTheOrg() throws Exception {
+        TenantTransfer.Result exported = tenantTransfer.export(ORG, directory);
+
+        assertEquals(5, exported.rows());
+        assertEquals(tenantDirectory.shardOf(ORG), exported.shard());
+        assertTrue(exported.rowsPerSecond() > 0);
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(3, files.filter(file -> file.toString().endsWith(".ndjson.gz")).count());
+        }
+
+        TenantTransfer.Result imported = tenantTransfer.importInto(TARGET, directory);
+
+        assertEquals(5, imported.rows());
+        assertEquals(TARGET, imported.shard());
+        assertEquals(ids, idsOn(TARGET, ORG));
+        assertEquals(List.of(), idsOn(TARGET, OTHER_ORG));
+        assertEquals(0, checkpointsOn(TARGET));
+    }
+
+    @Test
+    void testInterruptedExportResumes() throws Exception {
+        // 2 rows per second, so the export waits after the first chunk
+        interrupt(() -> tenantTransfer.export(ORG, directory, 2), () -> Files.exists(directory.resolve(TenantTransfer.MANIFEST))
+                && chunkFiles() == 1);
+
+        assertThrows(IllegalStateException.class, () -> tenantTransfer.importInto(TARGET, directory));
+
+        TenantTransfer.Result resumed = tenantTransfer.export(ORG, directory);
+
+        assertEquals(3, resumed.rows());
+        assertEquals(3, chunkFiles());
+        tenantTransfer.importInto(TARGET, directory);
+        assertEquals(ids, idsOn(TARGET, ORG));
+    }
+
+    @Test
+    void testInterruptedImportResumes() throws Exception {
+        tenantTransfer.export(ORG, directory);
+        interrupt(() -> tenantTransfer.importInto(TARGET, directory, 2), () -> idsOn(TARGET, ORG).size() == 2);
+        assertEquals(1, checkpointsOn(TARGET));
+
+        TenantTransfer.Result resumed = tenantTransfer.importInto(TARGET, directory);
+
+        assertEquals(3, resumed.rows());
+        assertEquals(ids, idsOn(TARGET, ORG));
+        assertEquals(0, checkpointsOn(TARGET));
+    }
+
+    private interface Transfer {
+        TenantTransfer.Result run() throws Exception;
+    }
+
+    private interface Condition {
+        boolean holds() throws Exception;
+    }
+
+    /**
+     * Runs the transfer on another thread and interrupts it once the condition holds.
+     */
+    private static void interrupt(Transfer transfer, Condition condition) throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<TenantTransfer.Result> future = executor.submit(transfer::run);
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (!condition.holds()) {
+                assertTrue(System.nanoTime() < deadline, "The transfer made no progress");
+                assertFalse(future.isDone(), "The transfer finished before it was interrupted");
+                Thread.sleep(10);
+            }
+            future.cancel(true);
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private long chunkFiles() throws Exception {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.toString().endsWith(".ndjson.gz")).count();
+        }
+    }
+
+    private List<UUID> idsOn(String shard, String orgId) throws Exception {
+        List<UUID> result = new ArrayList<>();
+        try (Connection connection = tenantDirectory.dataSource(shard).getConnection();
+             PreparedStatement select = connection.prepareStatement("SELECT id FROM T_demo WHERE org_id = ? ORDER BY id")) {
+            select.setString(1, orgId);
+            try (ResultSet resultSet = select.executeQuery()) {
+                while (resultSet.next()) {
+                    result.add(UuidV7.fromBytes(resultSet.getBytes(1)));
+                }
+            }
+        }
+        return result;
+    }
+
+    private int checkpointsOn(String shard) throws Exception {
+        try (Connection connection = tenantDirectory.dataSource(shard).getConnection();
+             PreparedStatement select = connection.prepareStatement("SELECT COUNT(*) FROM T_batch_checkpoint WHERE org_id = ?")) {
+            select.setString(1, ORG);
+            try (ResultSet resultSet = select.executeQuery()) {
+                resultSet.next();
+                return resultSet.getInt(1);
+            }
+        }
+    }
+
+    private void execute(String shard, String sql) throws Exception {
+        try (Connection connection = tenantDirectory.dataSource(shard).getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setString(1, ORG);
+            statement.executeUpdate();
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package dev.abstratium.core.service;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
+import io.opentelemetry.api.baggage.Baggage;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.TraceFlags;
+import io.opentelemetry.api.trace.TraceState;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.sdk.trace.samplers.SamplingDecision;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.TestProfile;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+@QuarkusTest
+@TestProfile(TogglesServiceTest.TestProfile.class)
+class ToggleSamplerTest {
+
+    private static final String TRACE_ID = "0af7651916cd43dd8448eb211c80319c";
+    private static final String SPAN_ID = "b7ad6b7169203331";
+
+    @Inject
+    ToggleSampler sampler;
+
+    @Inject
+    TogglesService togglesService;
+
+    static WireMockServer wireMockServer;
+
+    @BeforeAll
+    static void startWireMock() {
+        wireMockServer = new WireMockServer(WireMockConfiguration.options().port(19999));
+        wireMockServer.start();
+    }
+
+    @AfterAll
+    static void stopWireMock() {
+        wireMockServer.stop();
+    }
+
+    @BeforeEach
+    void resetWireMock() {
+        wireMockServer.resetAll();
+        togglesService.clearCache();
+    }
+
+    @Test
+    void testDefaultRatioAppliesWithoutToggles() {
+        loadToggles();
+
+        assertEquals(SamplingDecision.RECORD_AND_SAMPLE, sampleRoot(Context.root(), "/api/demo"));
+    }
+
+    @Test
+    void testRatioAndPathOverrideComeFromToggles() {
+        loadToggles(
+                row(ToggleSampler.RATIO_TOGGLE, "debug-demo", 1, "1.0", "path", "/\\\\/api\\\\/demo.*/"),
+                row(ToggleSampler.RATIO_TOGGLE, "default", 2, "0.0", null, null));
+
+        assertEquals(SamplingDecision.RECORD_AND_SAMPLE, sampleRoot(Context.root(), "/api/demo/123"));
+        assertEquals(SamplingDecision.DROP, sampleRoot(Context.root(), "/api/other"));
+        wireMockServer.verify(1, getRequestedFor(urlPathEqualTo("/public/toggles")));
+    }
+
+    @Test
+    void testTenantFromBaggageCanRaiseRatio() {
+        loadToggles(
+                row(ToggleSampler.RATIO_TOGGLE, "debug-tenant", 1, "1", "orgId", "org-under-investigation"),
+                row(ToggleSampler.RATIO_TOGGLE, "default", 2, "0", null, null));
+
+        Context tenant = Baggage.builder().put("orgId", "org-under-investigation").build().storeInContext(Context.root());
+        assertEquals(SamplingDecision.RECORD_AND_SAMPLE, sampleRoot(tenant, "/api/other"));
+        assertEquals(SamplingDecision.DROP, sampleRoot(Context.root(), "/api/other"));
+    }
+
+    @Test
+    void testChildSpansFollowTheirParent() {
+        loadToggles(row(ToggleSampler.RATIO_TOGGLE, "default", 1, "0", null, null));
+
+        assertEquals(SamplingDecision.RECORD_AND_SAMPLE, sampleChild(true, Attributes.empty()));
+        assertEquals(SamplingDecision.DROP, sampleChild(false, Attributes.empty()));
+    }
+
+    @Test
+    void testJdbcSpansCanBeSwitchedOff() {
+        Attributes jdbc = Attributes.of(AttributeKey.stringKey("db.system"), "h2");
+
+        loadToggles();
+        assertEquals(SamplingDecision.RECORD_AND_SAMPLE, sampleChild(true, jdbc));
+
+        loadToggles(row(ToggleSampler.JDBC_TOGGLE, "default", 1, "off", null, null));
+        assertEquals(SamplingDecision.DROP, sampleChild(true, jdbc));
+        assertEquals(SamplingDecision.RECORD_AND_SAMPLE, sampleChild(true, Attributes.empty()));
+    }
+
+    @Test
+    void testSamplingDoesNotCountAsToggleHits() {
+        loadToggles(
+                row(ToggleSampler.RATIO_TOGGLE, "default", 1, "1", null, null),
+                row(ToggleSampler.JDBC_TOGGLE, "default", 1, "on", null, null));
+
+        sampleRoot(Context.root(), "/api/demo");
+        sampleChild(true, Attributes.of(AttributeKey.stringKey("db.system"), "h2"));
+
+        assertTrue(togglesService.getAnalyticsReport().rules().stream().allMatch(rule -> rule.hitsSinceLoad() == 0),
+                "sampling should not count as use of the toggles");
+    }
+
+    private SamplingDecision sampleRoot(Context parentContext, String path) {
+        return sampler.shouldSample(parentContext, TRACE_ID, "GET " + path, SpanKind.SERVER,
+                Attributes.of(AttributeKey.stringKey("url.path"), path), List.of()).getDecision();
+    }
+
+    private SamplingDecision sampleChild(boolean parentSampled, Attributes attributes) {
+        SpanContext parent = SpanContext.create(TRACE_ID, SPAN_ID,
+                parentSampled ? TraceFlags.getSampled() : TraceFlags.getDefault(), TraceState.getDefault());
+        Context parentContext = Span.wrap(parent).storeInContext(Context.root());
+        return sampler.shouldSample(parentContext, TRACE_ID, "child", SpanKind.CLIENT, attributes, List.of()).getDecision();
+    }
+
+    private void loadToggles(String... rows) {
+        String responseJson = """
+                {
+                    "toggles": [%s],
+                    "queryMetadata": {
+                        "count": %d,
+                        "cacheHit": false
+                    }
+                }
+                """.formatted(String.join(",", rows), rows.length);
+
+        wireMockServer.stubFor(get(urlPathEqualTo("/public/toggles"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody(responseJson)));
+        togglesService.refresh().join();
+    }
+
+    private static String row(String toggleName, String ruleName, int priority, String value, String criterionKey, String criterionValue) {
+        String criteria = criterionKey == null
+                ? ""
+                : "{ \"criterionKey\": \"%s\", \"criterionValue\": \"%s\" }".formatted(criterionKey, criterionValue);
+        return """
+                {
+                    "toggleName": "%s",
+                    "toggleDescription": "Tracing",
+                    "toggleEnabled": true,
+                    "stageName": "test",
+                    "ruleName": "%s",
+                    "priority": %d,
+                    "value": "%s",
+                    "ruleCriteria": [%s]
+                }
+                """.formatted(toggleName, ruleName, priority, value, criteria);
+    }
+}
@@ -0,0 +1,179 @@
+package dev.abstratium.core.service;
+
+import dev.abstratium.core.service.FaultyTogglesApiResource.InjectFaultyTogglesApi;
+import io.quarkus.test.common.WithTestResource;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import org.jboss.logging.Logger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Measures the latency that {@link TogglesService} adds to the request path, and the number of calls it
+ * makes to the toggle API, while many threads evaluate toggles against a slow, failing or huge upstream.
+ * Latencies are logged; assertions are limited to upstream call counts and generous bounds, so that
+ * the suite is stable on slow machines.
+ */
+@QuarkusTest
+@WithTestResource(FaultyTogglesApiResource.class)
+class TogglesServiceLoadTest {
+
+    private static final Logger log = Logger.getLogger(TogglesServiceLoadTest.class);
+
+    @Inject
+    TogglesService togglesService;
+
+    @InjectFaultyTogglesApi
+    FaultyTogglesApi api;
+
+    @BeforeEach
+    void reset() {
+        api.reset();
+        togglesService.clearCache();
+    }
+
+    @Test
+    void testConcurrentColdStartMakesOneUpstreamCall() throws Exception {
+        api.latency(Duration.ofMillis(100), Duration.ofMillis(150), Duration.ofMillis(200))
+                .payload(50, 5);
+
+        LoadResult result = runConcurrently(64, 20, i -> togglesService
+                .getToggleValues(Set.of("load-toggle-7"), Map.of("userId", "user-" + (i % 5) + "@example.com"))
+                .get("load-toggle-7"));
+
+        result.log("cold start, slow upstream");
+        assertEquals(1, api.calls());
+        assertTrue(result.values.stream().allMatch(v -> v.startsWith("value-") || v.equals("on")), result.values::toString);
+        assertTrue(result.percentileMillis(50) < 100, "cached evaluations should not wait for the upstream");
+    }
+
+    @Test
+    void testFailingUpstreamIsCalledOncePerWaveOfCallers() throws Exception {
+        api.latency(Duration.ofMillis(300), Duration.ofMillis(300), Duration.ofMillis(300))
+                .errorRate(1.0, 503);
+
+        LoadResult result = runConcurrently(32, 1, i -> togglesService
+                .getToggleValues(Set.of("load-toggle-0"), Map.of())
+                .get("load-toggle-0"));
+
+        result.log("failing upstream");
+        assertTrue(result.values.stream().allMatch("off"::equals));
+        // callers arriving while a failing fetch is running share it; failures are not cached
+        assertTrue(api.calls() <= 4, "upstream calls: " + api.calls());
+        assertEquals(api.calls(), api.errors());
+    }
+
+    @Test
+    void testIntermittentErrorsAndLatencyDoNotFailCallers() throws Exception {
+        api.latency(Duration.ofMillis(5), Duration.ofMillis(20), Duration.ofMillis(50))
+                .errorRate(0.3, 500)
+                .payload(10, 3);
+
+        LoadResult result = runConcurrently(16, 50, i -> {
+            String value = togglesService.getToggleValues(Set.of("load-toggle-1"), Map.of()).get("load-toggle-1");
+            if (i % 10 == 0) {
+                // force some cache misses, so that the error rate comes into play
+                togglesService.clearCache();
+            }
+            return value;
+        });
+
+        result.log("intermittent errors");
+        assertTrue(result.values.stream().allMatch(v -> v.equals("on") || v.equals("off")));
+        assertTrue(result.values.contains("on"));
+        assertTrue(api.calls() < result.values.size(), "upstream calls: " + api.calls());
+    }
+
+    @Test
+    void testSlowDripBodyIsReadOnceForAllWaitingCallers() throws Exception {
+        api.payload(200, 5).slowDrip(8 * 1024, Duration.ofMillis(20));
+
+        LoadResult result = runConcurrently(16, 5, i -> togglesService
+                .getToggleValues(Set.of("load-toggle-199"), Map.of("userId", "USER-2@example.com"))
+                .get("load-toggle-199"));
+
+        result.log("slow drip of " + api.payloadBytes() + " bytes");
+        assertEquals(1, api.calls());
+        assertTrue(result.values.stream().allMatch("value-2"::equals), result.values::toString);
+    }
+
+    @Test
+    void testLargePayloadIsCachedAndEvaluated() throws Exception {
+        api.payload(2000, 10);
+
+        LoadResult result = runConcurrently(8, 100, i -> togglesService
+                .getToggleValues(Set.of("load-toggle-" + (i % 2000)), Map.of("userId", "user-3@example.com"))
+                .get("load-toggle-" + (i % 2000)));
+
+        result.log("20000 rows, " + api.payloadBytes() + " bytes");
+        assertEquals(20000, togglesService.getLatestSnapshot().getRowCount());
+        assertEquals(1, api.calls(), "a payload within abstratium.toggles.cache.max-size-bytes must stay cached");
+        assertTrue(result.values.stream().allMatch("value-3"::equals));
+    }
+
+    private LoadResult runConcurrently(int threads, int callsPerThread, Call call) throws Exception {
+        api.resetCounters();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<long[]>> futures = new ArrayList<>();
+        List<String> values = Collections.synchronizedList(new ArrayList<>());
+        try (ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    long[] latencies = new long[callsPerThread];
+                    for (int c = 0; c < callsPerThread; c++) {
+                        long begin = System.nanoTime();
+                        values.add(call.invoke(thread * callsPerThread + c));
+                        latencies[c] = System.nanoTime() - begin;
+                    }
+                    return latencies;
+                }));
+            }
+            start.countDown();
+            long[] all = new long[threads * callsPerThread];
+            int i = 0;
+            for (Future<long[]> future : futures) {
+                for (long latency : future.get(60, TimeUnit.SECONDS)) {
+                    all[i++] = latency;
+                }
+            }
+            Arrays.sort(all);
+            return new LoadResult(all, values, api);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Call {
+        String invoke(int i) throws Exception;
+    }
+
+    private record LoadResult(long[] sortedLatencyNanos, List<String> values, FaultyTogglesApi api) {
+
+        double percentileMillis(double percentile) {
+            int index = (int) Math.ceil(percentile / 100.0 * sortedLatencyNanos.length) - 1;
+            return sortedLatencyNanos[Math.max(0, index)] / 1_000_000.0;
+        }
+
+        void log(String scenario) {
+            log.infof("%s: %d evaluations, p50=%.2fms p90=%.2fms p99=%.2fms max=%.2fms, upstream calls=%d (errors=%d, max concurrent=%d)",
+                    scenario, sortedLatencyNanos.length, percentileMillis(50), percentileMillis(90), percentileMillis(99),
+                    percentileMillis(100), api.calls(), api.errors(), api.maxConcurrentCalls());
+        }
+    }
+}
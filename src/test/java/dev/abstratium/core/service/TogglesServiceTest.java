@@ -2,6 +2,11 @@ package dev.abstratium.core.service;
 
 import com.github.tomakehurst.wiremock.WireMockServer;
 import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
+import dev.abstratium.core.service.ToggleSnapshot.CompiledRule;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.arc.Arc;
+import io.quarkus.arc.ManagedContext;
+import io.quarkus.narayana.jta.QuarkusTransaction;
 import io.quarkus.test.junit.QuarkusTest;
 import io.quarkus.test.junit.QuarkusTestProfile;
 import io.quarkus.test.junit.TestProfile;
@@ -11,8 +16,10 @@ import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.time.Duration;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.*;
 import static org.junit.jupiter.api.Assertions.*;
@@ -37,6 +44,12 @@ class TogglesServiceTest {
     @Inject
     TogglesService togglesService;
 
+    @Inject
+    MeterRegistry meterRegistry;
+
+    @Inject
+    CountingToggleContextProvider countingProvider;
+
     static WireMockServer wireMockServer;
 
     @BeforeAll
@@ -667,4 +680,401 @@ class TogglesServiceTest {
 
         assertEquals("off", result.get("test-disabled"));
     }
+
+    @Test
+    void testSnapshotIsPinnedForTheDurationOfARequest() {
+        stubCatchAll("test-pinned", "first");
+
+        ManagedContext requestContext = Arc.container().requestContext();
+        boolean activatedHere = !requestContext.isActive();
+        if (activatedHere) {
+            requestContext.activate();
+        }
+        try {
+            assertEquals("first", togglesService.getToggleValues(Set.of("test-pinned"), Map.of()).get("test-pinned"));
+
+            // a refresh on another thread must not change what this request sees
+            stubCatchAll("test-pinned", "second");
+            CompletableFuture.runAsync(togglesService::clearCache).join();
+
+            assertEquals("first", togglesService.getToggleValues(Set.of("test-pinned"), Map.of()).get("test-pinned"));
+            wireMockServer.verify(1, getRequestedFor(urlPathEqualTo("/public/toggles")));
+        } finally {
+            if (activatedHere) {
+                requestContext.terminate();
+            }
+        }
+    }
+
+    @Test
+    void testSnapshotIsPinnedForTheDurationOfATransaction() {
+        stubCatchAll("test-pinned-tx", "first");
+
+        // run on a thread without a request context, so that the transaction is the unit of work
+        String[] values = CompletableFuture.supplyAsync(() -> QuarkusTransaction.requiringNew().call(() -> {
+            String first = togglesService.getToggleValues(Set.of("test-pinned-tx"), Map.of()).get("test-pinned-tx");
+            stubCatchAll("test-pinned-tx", "second");
+            togglesService.clearCache();
+            String second = togglesService.getToggleValues(Set.of("test-pinned-tx"), Map.of()).get("test-pinned-tx");
+            return new String[] { first, second };
+        })).join();
+
+        assertEquals("first", values[0]);
+        assertEquals("first", values[1]);
+
+        String afterTransaction = CompletableFuture.supplyAsync(
+                () -> togglesService.getToggleValues(Set.of("test-pinned-tx"), Map.of()).get("test-pinned-tx")).join();
+        assertEquals("second", afterTransaction);
+    }
+
+    @Test
+    void testTypedAccessorsParseValues() {
+        stubCatchAll("test-int", "42");
+        assertEquals(42, togglesService.getInt("test-int", ToggleContext.of(Map.of()), -1));
+        assertEquals(42L, togglesService.getLong("test-int", ToggleContext.of(Map.of()), -1L));
+        assertEquals(42.0, togglesService.getDouble("test-int", ToggleContext.of(Map.of()), -1.0));
+
+        togglesService.clearCache();
+        stubCatchAll("test-duration", "5m");
+        assertEquals(Duration.ofMinutes(5), togglesService.getDuration("test-duration", ToggleContext.of(Map.of()), Duration.ZERO));
+
+        togglesService.clearCache();
+        stubCatchAll("test-boolean", "on");
+        assertTrue(togglesService.getBoolean("test-boolean", ToggleContext.of(Map.of()), false));
+        assertFalse(togglesService.getBoolean("test-boolean-missing", ToggleContext.of(Map.of()), false));
+    }
+
+    @Test
+    void testTypedAccessorsReturnDefaultForUnparsableOrOffValues() {
+        stubCatchAll("test-typed", "not-a-number");
+        assertEquals(7, togglesService.getInt("test-typed", ToggleContext.of(Map.of()), 7));
+        // second call hits the cached parse failure and still returns the default
+        assertEquals(7, togglesService.getInt("test-typed", ToggleContext.of(Map.of()), 7));
+        assertEquals(Duration.ofSeconds(3), togglesService.getDuration("test-typed", ToggleContext.of(Map.of()), Duration.ofSeconds(3)));
+        assertTrue(togglesService.getJson("test-typed", ToggleContext.of(Map.of()), MaintenanceWindow.class).isEmpty());
+
+        togglesService.clearCache();
+        stubCatchAll("test-typed", "off");
+        assertEquals(7, togglesService.getInt("test-typed", ToggleContext.of(Map.of()), 7));
+        assertEquals(7, togglesService.getInt("test-missing-typed", ToggleContext.of(Map.of()), 7));
+    }
+
+    @Test
+    void testIntOutOfRangeIsReportedAsParseFailureOfInteger() {
+        stubCatchAll("test-int-range", "3000000000");
+        assertEquals(3_000_000_000L, togglesService.getLong("test-int-range", ToggleContext.of(Map.of()), -1L));
+        assertEquals(7, togglesService.getInt("test-int-range", ToggleContext.of(Map.of()), 7));
+        assertEquals(7, togglesService.getInt("test-int-range", ToggleContext.of(Map.of()), 7));
+
+        CompiledRule rule = togglesService.getLatestSnapshot().get("test-int-range").rules().get(0);
+        assertFalse(rule.firstParseFailure(Integer.class), "the failure should already have been reported");
+        assertTrue(rule.firstParseFailure(Long.class), "the value is a valid long");
+    }
+
+    @Test
+    void testJsonValueIsParsedOncePerSnapshot() {
+        stubCatchAll("test-json", "{\\\"message\\\": \\\"back soon\\\", \\\"minutes\\\": 15}");
+
+        MaintenanceWindow first = togglesService.getJson("test-json", ToggleContext.of(Map.of()), MaintenanceWindow.class).orElseThrow();
+        assertEquals("back soon", first.message());
+        assertEquals(15, first.minutes());
+
+        MaintenanceWindow second = togglesService.getJson("test-json", ToggleContext.of(Map.of()), MaintenanceWindow.class).orElseThrow();
+        assertSame(first, second);
+    }
+
+    @Test
+    void testLazyContextResolvesReferencedKeysOncePerCall() {
+        String responseJson = """
+                {
+                    "toggles": [
+                        {
+                            "toggleName": "lazy-a",
+                            "toggleDescription": "Lazy toggle a",
+                            "toggleEnabled": true,
+                            "stageName": "test",
+                            "ruleName": "counted",
+                            "priority": 1,
+                            "value": "a-on",
+                            "ruleCriteria": [
+                                { "criterionKey": "testCounter", "criterionValue": "counted" }
+                            ]
+                        },
+                        {
+                            "toggleName": "lazy-b",
+                            "toggleDescription": "Lazy toggle b",
+                            "toggleEnabled": true,
+                            "stageName": "test",
+                            "ruleName": "counted",
+                            "priority": 1,
+                            "value": "b-on",
+                            "ruleCriteria": [
+                                { "criterionKey": "testCounter", "criterionValue": "/count.*/" },
+                                { "criterionKey": "stage", "criterionValue": "test" }
+                            ]
+                        }
+                    ],
+                    "queryMetadata": {
+                        "count": 2,
+                        "cacheHit": false
+                    }
+                }
+                """;
+
+        wireMockServer.stubFor(get(urlPathEqualTo("/public/toggles"))
+                .withQueryParam("stage", equalTo("test"))
+                .withQueryParam("context", equalTo("abstratium-public"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody(responseJson)));
+        countingProvider.reset();
+
+        Map<String, String> result = togglesService.getToggleValues(Set.of("lazy-a", "lazy-b"));
+
+        assertEquals("a-on", result.get("lazy-a"));
+        assertEquals("b-on", result.get("lazy-b"));
+        assertEquals(1, countingProvider.getCalls());
+
+        // explicit values take precedence and the provider is not called
+        result = togglesService.evaluateToggles(Set.of("lazy-a"), ToggleContext.lazy(Map.of("testCounter", "other")));
+        assertEquals("off", result.get("lazy-a"));
+        assertEquals(1, countingProvider.getCalls());
+
+        // explicit contexts never consult providers
+        result = togglesService.getToggleValues(Set.of("lazy-a"), Map.of());
+        assertEquals("off", result.get("lazy-a"));
+        assertEquals(1, countingProvider.getCalls());
+    }
+
+    @Test
+    void testUnreferencedProvidersNeverRun() {
+        stubCatchAll("lazy-catchall", "on");
+        countingProvider.reset();
+
+        assertEquals("on", togglesService.getToggleValues(Set.of("lazy-catchall")).get("lazy-catchall"));
+        assertEquals(0, countingProvider.getCalls());
+        assertFalse(togglesService.currentSnapshot().getReferencedKeys().contains(CountingToggleContextProvider.KEY));
+    }
+
+    @Test
+    void testAnalyticsCountsHitsPerRuleAndListsRulesNeverHit() {
+        String responseJson = """
+                {
+                    "toggles": [
+                        {
+                            "toggleName": "analytics-toggle",
+                            "toggleDescription": "Analytics toggle",
+                            "toggleEnabled": true,
+                            "stageName": "test",
+                            "ruleName": "admins",
+                            "priority": 1,
+                            "value": "admin-value",
+                            "ruleCriteria": [
+                                { "criterionKey": "userId", "criterionValue": "admin" }
+                            ]
+                        },
+                        {
+                            "toggleName": "analytics-toggle",
+                            "toggleDescription": "Analytics toggle",
+                            "toggleEnabled": true,
+                            "stageName": "test",
+                            "ruleName": "nobody",
+                            "priority": 2,
+                            "value": "never",
+                            "ruleCriteria": [
+                                { "criterionKey": "userId", "criterionValue": "nobody" }
+                            ]
+                        }
+                    ],
+                    "queryMetadata": {
+                        "count": 2,
+                        "cacheHit": false
+                    }
+                }
+                """;
+
+        wireMockServer.stubFor(get(urlPathEqualTo("/public/toggles"))
+                .withQueryParam("stage", equalTo("test"))
+                .withQueryParam("context", equalTo("abstratium-public"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody(responseJson)));
+
+        for (int i = 0; i < 3; i++) {
+            togglesService.getToggleValues(Set.of("analytics-toggle"), Map.of("userId", "admin"));
+        }
+        togglesService.getToggleValues(Set.of("analytics-toggle"), Map.of("userId", "someone-else"));
+
+        ToggleAnalytics.Report report = togglesService.getAnalyticsReport();
+        assertEquals(togglesService.getLatestSnapshot().getVersion(), report.snapshotVersion());
+        assertEquals(3, hitsSinceLoad(report, "analytics-toggle", "admins"));
+        assertEquals(0, hitsSinceLoad(report, "analytics-toggle", "nobody"));
+        assertEquals(1, hitsSinceLoad(report, "analytics-toggle", ToggleAnalytics.NO_MATCH));
+        assertEquals(1, report.neverHitSinceLoad().size());
+        assertEquals("nobody", report.neverHitSinceLoad().get(0).rule());
+
+        // a new snapshot starts counting from zero again, while the totals keep growing
+        togglesService.clearCache();
+        togglesService.getToggleValues(Set.of("analytics-toggle"), Map.of("userId", "admin"));
+        report = togglesService.getAnalyticsReport();
+        assertEquals(1, hitsSinceLoad(report, "analytics-toggle", "admins"));
+        assertTrue(report.rules().stream()
+                .filter(r -> r.rule().equals("admins"))
+                .allMatch(r -> r.totalHits() >= 4));
+    }
+
+    @Test
+    void testRefreshReplacesCachedSnapshotBeforeTtlExpires() {
+        stubCatchAll("test-refresh", "first");
+        assertEquals("first", togglesService.explain("test-refresh", Map.of()).value());
+
+        stubCatchAll("test-refresh", "second");
+        assertEquals("first", togglesService.explain("test-refresh", Map.of()).value());
+
+        ToggleSnapshot refreshed = togglesService.refresh().join();
+        assertEquals("second", togglesService.explain("test-refresh", Map.of()).value());
+        assertEquals(refreshed.getVersion(), togglesService.explain("test-refresh", Map.of()).snapshotVersion());
+        wireMockServer.verify(2, getRequestedFor(urlPathEqualTo("/public/toggles")));
+    }
+
+    @Test
+    void testConcurrentRefreshesShareOneUpstreamCall() {
+        stubCatchAll("test-single-flight", "on", 500);
+
+        CompletableFuture<ToggleSnapshot> first = togglesService.refresh();
+        CompletableFuture<ToggleSnapshot> second = togglesService.refresh();
+        // a cache miss while the refresh is running waits for it too
+        TogglesService.Evaluation evaluation = togglesService.explain("test-single-flight", Map.of());
+
+        assertSame(first, second);
+        assertEquals(first.join().getVersion(), evaluation.snapshotVersion());
+        assertEquals("on", evaluation.value());
+        wireMockServer.verify(1, getRequestedFor(urlPathEqualTo("/public/toggles")));
+    }
+
+    @Test
+    void testFailedRefreshKeepsCachedSnapshot() {
+        stubCatchAll("test-refresh-failure", "cached");
+        assertEquals("cached", togglesService.explain("test-refresh-failure", Map.of()).value());
+
+        wireMockServer.stubFor(get(urlPathEqualTo("/public/toggles"))
+                .willReturn(aResponse().withStatus(503)));
+        togglesService.refresh().join();
+
+        assertEquals("cached", togglesService.explain("test-refresh-failure", Map.of()).value());
+        TogglesService.FetchStatus lastFetch = togglesService.getStatus().lastFetch();
+        assertFalse(lastFetch.success());
+        assertEquals(503, lastFetch.httpStatus());
+    }
+
+    @Test
+    void testStatusDescribesCachedSnapshotAndLastFetch() {
+        stubCatchAll("test-status", "on");
+        ToggleSnapshot snapshot = togglesService.refresh().join();
+
+        TogglesService.Status status = togglesService.getStatus();
+        assertEquals("test", status.stage());
+        assertEquals("abstratium-public", status.context());
+        assertEquals(1, status.snapshots().size());
+        TogglesService.SnapshotInfo info = status.snapshots().get(0);
+        assertEquals("test", info.stage());
+        assertEquals(snapshot.getVersion(), info.version());
+        assertEquals(1, info.rowCount());
+        assertEquals(Map.of("test", 1), info.rowsPerStage());
+        assertTrue(info.sizeBytes() > 0);
+        assertTrue(status.lastFetch().success());
+        assertEquals(200, status.lastFetch().httpStatus());
+        assertEquals(snapshot.getVersion(), status.lastFetch().snapshotVersion());
+    }
+
+    @Test
+    void testExplainReportsMatchingRuleWithoutCountingHits() {
+        stubCatchAll("test-explain", "explained");
+        togglesService.refresh().join();
+        long before = togglesService.getAnalyticsReport().rules().stream()
+                .filter(r -> r.toggle().equals("test-explain"))
+                .mapToLong(ToggleAnalytics.RuleHits::totalHits)
+                .sum();
+
+        TogglesService.Evaluation evaluation = togglesService.explain("test-explain", Map.of("userId", "someone"));
+        assertEquals("explained", evaluation.value());
+        assertEquals("default", evaluation.rule());
+        assertTrue(evaluation.exists());
+        assertTrue(evaluation.enabled());
+
+        long after = togglesService.getAnalyticsReport().rules().stream()
+                .filter(r -> r.toggle().equals("test-explain"))
+                .mapToLong(ToggleAnalytics.RuleHits::totalHits)
+                .sum();
+        assertEquals(before, after);
+
+        TogglesService.Evaluation missing = togglesService.explain("test-explain-missing", Map.of());
+        assertEquals("off", missing.value());
+        assertNull(missing.rule());
+        assertFalse(missing.exists());
+    }
+
+    @Test
+    void testReplacedSnapshotsRetireCountersOfRulesTheyNoLongerHave() {
+        stubCatchAll("test-retired", "on");
+        togglesService.refresh().join();
+        assertNotNull(meterRegistry.find(ToggleAnalytics.METRIC_NAME).tag("toggle", "test-retired").functionCounter());
+
+        stubCatchAll("test-retained", "on");
+        togglesService.refresh().join();
+
+        assertNull(meterRegistry.find(ToggleAnalytics.METRIC_NAME).tag("toggle", "test-retired").functionCounter());
+        assertNotNull(meterRegistry.find(ToggleAnalytics.METRIC_NAME)
+                .tags("toggle", "test-retained", "rule", "default").functionCounter());
+        assertTrue(meterRegistry.find(ToggleAnalytics.METRIC_NAME).tagKeys("value").meters().isEmpty());
+    }
+
+    private long hitsSinceLoad(ToggleAnalytics.Report report, String toggle, String rule) {
+        return report.rules().stream()
+                .filter(r -> r.toggle().equals(toggle) && r.rule().equals(rule))
+                .findFirst()
+                .orElseThrow()
+                .hitsSinceLoad();
+    }
+
+    record MaintenanceWindow(String message, int minutes) {
+    }
+
+    private void stubCatchAll(String toggleName, String value) {
+        stubCatchAll(toggleName, value, 0);
+    }
+
+    private void stubCatchAll(String toggleName, String value, int delayMillis) {
+        String responseJson = """
+                {
+                    "toggles": [
+                        {
+                            "toggleName": "%s",
+                            "toggleDescription": "Test toggle",
+                            "toggleEnabled": true,
+                            "stageName": "test",
+                            "ruleName": "default",
+                            "priority": 1,
+                            "value": "%s",
+                            "ruleCriteria": []
+                        }
+                    ],
+                    "queryMetadata": {
+                        "count": 1,
+                        "cacheHit": false
+                    }
+                }
+                """.formatted(toggleName, value);
+
+        wireMockServer.stubFor(get(urlPathEqualTo("/public/toggles"))
+                .withQueryParam("stage", equalTo("test"))
+                .withQueryParam("context", equalTo("abstratium-public"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withFixedDelay(delayMillis)
+                        .withBody(responseJson)));
+    }
 }
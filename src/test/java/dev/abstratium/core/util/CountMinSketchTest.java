@@ -0,0 +1,75 @@
+package dev.abstratium.core.util;
+
+import io.quarkus.test.junit.QuarkusTest;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for CountMinSketch and HeavyHitters.
+ */
+@QuarkusTest
+public class CountMinSketchTest {
+
+    @Test
+    void estimate_neverUnderestimatesAndStaysWithinErrorBound() {
+        CountMinSketch sketch = new CountMinSketch(1024, 4);
+        Map<String, Long> exact = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 50_000; i++) {
+            String item = "org-" + random.nextInt(5_000);
+            long weight = 1 + random.nextInt(10);
+            sketch.add(item, weight);
+            exact.merge(item, weight, Long::sum);
+        }
+
+        long total = exact.values().stream().mapToLong(Long::longValue).sum();
+        assertEquals(total, sketch.total());
+        long errorBound = (long) (Math.E / 1024 * total);
+        int withinBound = 0;
+        for (Map.Entry<String, Long> entry : exact.entrySet()) {
+            long estimate = sketch.estimate(entry.getKey());
+            assertTrue(estimate >= entry.getValue(), entry.getKey());
+            if (estimate - entry.getValue() <= errorBound) {
+                withinBound++;
+            }
+        }
+        // the bound holds with probability 1 - e^-4, i.e. for about 98% of the items
+        assertTrue(withinBound >= exact.size() * 0.95, withinBound + " of " + exact.size());
+    }
+
+    @Test
+    void estimate_ofUnseenItemInEmptySketch_isZero() {
+        assertEquals(0, new CountMinSketch(16, 2).estimate("unseen"));
+    }
+
+    @Test
+    void add_returnsTheEstimateIncludingTheWeight() {
+        CountMinSketch sketch = new CountMinSketch(16, 2);
+        sketch.add("a", 3);
+        assertEquals(8, sketch.add("a", 5));
+        assertEquals(8, sketch.estimate("a"));
+    }
+
+    @Test
+    void heavyHitters_findHeavyItemAmongManyLightOnes() {
+        HeavyHitters heavyHitters = new HeavyHitters(10, 256, 4);
+        for (int i = 0; i < 10_000; i++) {
+            heavyHitters.offer("light-" + i, 1);
+            if (i % 10 == 0) {
+                heavyHitters.offer("heavy", 50);
+            }
+        }
+
+        HeavyHitters.Entry top = heavyHitters.top(3).get(0);
+        assertEquals("heavy", top.item());
+        assertTrue(top.weight() >= 50_000);
+        // the space-saving count alone would include the weight of the light items it replaced
+        assertTrue(top.weight() <= 50_000 + (long) (Math.E / 256 * heavyHitters.total()), String.valueOf(top.weight()));
+        assertEquals((double) top.weight() / heavyHitters.total(), top.share(), 1e-9);
+    }
+}
@@ -0,0 +1,67 @@
+package dev.abstratium.core.util;
+
+import io.quarkus.test.junit.QuarkusTest;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for SpaceSavingSketch.
+ */
+@QuarkusTest
+public class SpaceSavingSketchTest {
+
+    @Test
+    void top_withFewerItemsThanCapacity_countsExactly() {
+        SpaceSavingSketch<String> sketch = new SpaceSavingSketch<>(10);
+        sketch.offer("a", 3);
+        sketch.offer("b", 1);
+        sketch.offer("a", 2);
+
+        assertEquals(List.of(new SpaceSavingSketch.Entry<>("a", 5, 0), new SpaceSavingSketch.Entry<>("b", 1, 0)),
+                sketch.top(5));
+        assertEquals(6, sketch.total());
+    }
+
+    @Test
+    void offer_whenFull_replacesSmallestCounterAndRecordsError() {
+        SpaceSavingSketch<String> sketch = new SpaceSavingSketch<>(2);
+        sketch.offer("a", 5);
+        sketch.offer("b", 2);
+        sketch.offer("c", 1);
+
+        List<SpaceSavingSketch.Entry<String>> top = sketch.top(2);
+        assertEquals(new SpaceSavingSketch.Entry<>("a", 5, 0), top.get(0));
+        assertEquals(new SpaceSavingSketch.Entry<>("c", 3, 2), top.get(1));
+    }
+
+    @Test
+    void top_withSkewedStream_findsHeavyHitters() {
+        SpaceSavingSketch<String> sketch = new SpaceSavingSketch<>(20);
+        Random random = new Random(42);
+        for (int i = 0; i < 100_000; i++) {
+            // three heavy hitters with 20%, 10% and 5% of the traffic, the rest spread over 10000 items
+            double r = random.nextDouble();
+            String item = r < 0.2 ? "heavy-1" : r < 0.3 ? "heavy-2" : r < 0.35 ? "heavy-3" : "item-" + random.nextInt(10_000);
+            sketch.offer(item, 1);
+        }
+
+        List<String> top3 = sketch.top(3).stream().map(SpaceSavingSketch.Entry::item).toList();
+        assertEquals(List.of("heavy-1", "heavy-2", "heavy-3"), top3);
+        SpaceSavingSketch.Entry<String> first = sketch.top(1).get(0);
+        assertTrue(first.count() - first.error() <= 20_500 && first.count() >= 19_500, first.toString());
+    }
+
+    @Test
+    void clear_forgetsAllItems() {
+        SpaceSavingSketch<String> sketch = new SpaceSavingSketch<>(2);
+        sketch.offer("a", 1);
+        sketch.clear();
+
+        assertTrue(sketch.top(2).isEmpty());
+        assertEquals(0, sketch.total());
+    }
+}
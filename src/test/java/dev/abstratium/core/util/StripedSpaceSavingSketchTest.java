@@ -0,0 +1,68 @@
+package dev.abstratium.core.util;
+
+import io.quarkus.test.junit.QuarkusTest;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for StripedSpaceSavingSketch.
+ */
+@QuarkusTest
+public class StripedSpaceSavingSketchTest {
+
+    @Test
+    void constructor_keepsAMinimumCapacityPerStripe() {
+        assertEquals(1, new StripedSpaceSavingSketch<String>(10, 16).stripeCount());
+        assertEquals(12, new StripedSpaceSavingSketch<String>(100, 16).stripeCount());
+        assertEquals(16, new StripedSpaceSavingSketch<String>(1000, 16).stripeCount());
+    }
+
+    @Test
+    void top_withSkewedConcurrentStream_findsHeavyHitters() throws Exception {
+        StripedSpaceSavingSketch<String> sketch = new StripedSpaceSavingSketch<>(100, 8);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                int seed = t;
+                futures.add(executor.submit(() -> {
+                    Random random = new Random(seed);
+                    for (int i = 0; i < 25_000; i++) {
+                        // three heavy hitters with 20%, 10% and 5% of the traffic, the rest spread over 10000 items
+                        double r = random.nextDouble();
+                        String item = r < 0.2 ? "heavy-1" : r < 0.3 ? "heavy-2" : r < 0.35 ? "heavy-3"
+                                : "item-" + random.nextInt(10_000);
+                        sketch.offer(item, 1);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(100_000, sketch.total());
+        assertEquals(List.of("heavy-1", "heavy-2", "heavy-3"),
+                sketch.top(3).stream().map(SpaceSavingSketch.Entry::item).toList());
+    }
+
+    @Test
+    void clear_forgetsAllItems() {
+        StripedSpaceSavingSketch<String> sketch = new StripedSpaceSavingSketch<>(100, 4);
+        sketch.offer("a", 1);
+        sketch.clear();
+
+        assertTrue(sketch.top(2).isEmpty());
+        assertEquals(0, sketch.total());
+    }
+}
@@ -0,0 +1,66 @@
+package dev.abstratium.core.util;
+
+import io.quarkus.test.junit.QuarkusTest;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for UuidV7.
+ */
+@QuarkusTest
+public class UuidV7Test {
+
+    @Test
+    void generate_setsVersionVariantAndTimestamp() {
+        long before = System.currentTimeMillis();
+        UUID uuid = UuidV7.generate();
+        long after = System.currentTimeMillis();
+
+        assertEquals(7, uuid.version());
+        assertEquals(2, uuid.variant());
+        long millis = UuidV7.timestamp(uuid).toEpochMilli();
+        // the counter may borrow from the next millisecond when many ids were generated just before
+        assertTrue(millis >= before && millis <= after + 1, "timestamp " + millis);
+    }
+
+    @Test
+    void generate_isStrictlyIncreasingAsBytesWithinAndAcrossMilliseconds() {
+        List<UUID> uuids = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            uuids.add(UuidV7.generate());
+        }
+        // one millisecond, more ids than the 12 bit counter holds, and a clock that goes back
+        for (int i = 0; i < 5_000; i++) {
+            uuids.add(UuidV7.generate(System.currentTimeMillis() + 10));
+        }
+        uuids.add(UuidV7.generate(0));
+
+        assertEquals(uuids.size(), new HashSet<>(uuids).size());
+        for (int i = 1; i < uuids.size(); i++) {
+            assertTrue(Arrays.compareUnsigned(UuidV7.toBytes(uuids.get(i - 1)), UuidV7.toBytes(uuids.get(i))) < 0,
+                    uuids.get(i - 1) + " < " + uuids.get(i));
+        }
+    }
+
+    @Test
+    void bytes_roundTrip() {
+        UUID uuid = UUID.fromString("0190a5c2-7b3e-7cde-8f01-23456789abcd");
+        byte[] bytes = UuidV7.toBytes(uuid);
+
+        assertEquals(16, bytes.length);
+        assertEquals((byte) 0x01, bytes[0]);
+        assertEquals((byte) 0xcd, bytes[15]);
+        assertEquals(uuid, UuidV7.fromBytes(bytes));
+        assertEquals(Instant.ofEpochMilli(0x0190a5c27b3eL), UuidV7.timestamp(uuid));
+        assertThrows(IllegalArgumentException.class, () -> UuidV7.fromBytes(new byte[15]));
+        assertThrows(IllegalArgumentException.class, () -> UuidV7.timestamp(UUID.randomUUID()));
+    }
+}
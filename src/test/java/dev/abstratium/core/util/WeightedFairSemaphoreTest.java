@@ -0,0 +1,96 @@
+package dev.abstratium.core.util;
+
+import io.quarkus.test.junit.QuarkusTest;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for WeightedFairSemaphore.
+ */
+@QuarkusTest
+public class WeightedFairSemaphoreTest {
+
+    @Test
+    void tryAcquire_belowLimits_isGrantedImmediately() throws Exception {
+        WeightedFairSemaphore semaphore = new WeightedFairSemaphore(2, 2, key -> 1);
+
+        assertTrue(semaphore.tryAcquire("a", 0, TimeUnit.MILLISECONDS));
+        assertTrue(semaphore.tryAcquire("b", 0, TimeUnit.MILLISECONDS));
+        assertFalse(semaphore.tryAcquire("c", 10, TimeUnit.MILLISECONDS));
+        assertEquals(2, semaphore.inUse());
+        assertEquals(0, semaphore.waiting());
+
+        semaphore.release("a");
+        assertTrue(semaphore.tryAcquire("c", 0, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void tryAcquire_atLimitOfKey_doesNotBlockOtherKeys() throws Exception {
+        WeightedFairSemaphore semaphore = new WeightedFairSemaphore(3, 1, key -> 1);
+
+        assertTrue(semaphore.tryAcquire("a", 0, TimeUnit.MILLISECONDS));
+        assertFalse(semaphore.tryAcquire("a", 10, TimeUnit.MILLISECONDS));
+        assertTrue(semaphore.tryAcquire("b", 0, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void release_whenSaturated_servesWaitingKeysInWeightedRoundRobinOrder() throws Exception {
+        WeightedFairSemaphore semaphore = new WeightedFairSemaphore(1, 1, key -> Map.of("a", 2, "b", 1).get(key));
+        assertTrue(semaphore.tryAcquire("holder", 0, TimeUnit.MILLISECONDS));
+
+        List<String> grantOrder = Collections.synchronizedList(new ArrayList<>());
+        List<Thread> threads = new ArrayList<>();
+        for (String key : List.of("a", "a", "a", "a", "b", "b")) {
+            int waitingBefore = semaphore.waiting();
+            threads.add(Thread.ofVirtual().start(() -> {
+                try {
+                    if (semaphore.tryAcquire(key, 10, TimeUnit.SECONDS)) {
+                        grantOrder.add(key);
+                        semaphore.release(key);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+            while (semaphore.waiting() == waitingBefore) {
+                Thread.sleep(1);
+            }
+        }
+
+        semaphore.release("holder");
+        for (Thread thread : threads) {
+            thread.join(10_000);
+        }
+
+        assertEquals(List.of("a", "a", "b", "a", "a", "b"), grantOrder);
+        assertEquals(0, semaphore.inUse());
+        assertEquals(0, semaphore.waiting());
+    }
+
+    @Test
+    void tryAcquire_timingOut_leavesNoWaiterBehind() throws Exception {
+        WeightedFairSemaphore semaphore = new WeightedFairSemaphore(1, 1, key -> 1);
+        assertTrue(semaphore.tryAcquire("a", 0, TimeUnit.MILLISECONDS));
+
+        assertFalse(semaphore.tryAcquire("b", 20, TimeUnit.MILLISECONDS));
+        assertEquals(0, semaphore.waiting());
+
+        semaphore.release("a");
+        assertEquals(0, semaphore.inUse());
+        assertTrue(semaphore.tryAcquire("b", 0, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void release_withoutPermit_isRejected() {
+        WeightedFairSemaphore semaphore = new WeightedFairSemaphore(1, 1, key -> 1);
+
+        assertThrows(IllegalStateException.class, () -> semaphore.release("a"));
+    }
+}
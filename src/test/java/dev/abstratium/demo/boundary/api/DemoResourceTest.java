@@ -1,13 +1,23 @@
 package dev.abstratium.demo.boundary.api;
 
 import dev.abstratium.demo.Roles;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import io.quarkus.test.junit.QuarkusTest;
 import io.quarkus.test.security.TestSecurity;
 import io.restassured.http.ContentType;
+import io.restassured.path.json.JsonPath;
+import io.restassured.response.Response;
+import jakarta.inject.Inject;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
 import static io.restassured.RestAssured.given;
 import static org.hamcrest.CoreMatchers.*;
+import static org.junit.jupiter.api.Assertions.*;
 
 /**
  * Tests for DemoResource covering CRUD operations and error handling.
@@ -15,6 +25,14 @@ import static org.hamcrest.CoreMatchers.*;
 @QuarkusTest
 class DemoResourceTest {
 
+    // set as the org of the request by TenantQuotaTestResource.TestOrgIdFilter
+    private static final String ORG_ID_HEADER = "X-Test-Org-Id";
+    private static final String ORG_A = "aaaaaaaa-0000-0000-0000-0000000000d1";
+    private static final String ORG_B = "aaaaaaaa-0000-0000-0000-0000000000d2";
+
+    @Inject
+    MeterRegistry meterRegistry;
+
     @Test
     @TestSecurity(user = "testuser", roles = {Roles.USER})
     void testGetAllReturnsListOfDemos() {
@@ -27,6 +45,119 @@ class DemoResourceTest {
             .body("$", notNullValue());
     }
 
+    @Test
+    @TestSecurity(user = "testuser", roles = {Roles.USER})
+    void testGetAllPagesWithNextLinks() {
+        List<String> created = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            created.add(given().contentType(ContentType.JSON).body("{}").post("/api/demo").then().statusCode(200)
+                    .extract().path("id"));
+        }
+        try {
+            List<String> ids = new ArrayList<>();
+            String url = "/api/demo?limit=2";
+            int pages = 0;
+            while (url != null) {
+                Response page = given().when().get(url).then().statusCode(200).extract().response();
+                List<String> pageIds = page.path("id");
+                assertTrue(pageIds.size() <= 2);
+                ids.addAll(pageIds);
+                String link = page.header("Link");
+                url = link != null ? link.substring(link.indexOf('<') + 1, link.indexOf('>')) : null;
+                if (link != null) {
+                    assertTrue(link.contains("rel=\"next\""));
+                    assertTrue(url.contains("limit=2"));
+                }
+                pages++;
+            }
+
+            assertTrue(ids.containsAll(created));
+            assertEquals(ids.size(), new HashSet<>(ids).size(), "no demo is returned twice");
+            assertEquals(ids.stream().sorted().toList(), ids);
+            assertTrue(pages >= 3);
+        } finally {
+            created.forEach(id -> given().delete("/api/demo/" + id).then().statusCode(204));
+        }
+    }
+
+    @Test
+    @TestSecurity(user = "testuser", roles = {Roles.USER})
+    void testGetAllRejectsInvalidCursorAndLimit() {
+        given()
+            .when()
+            .get("/api/demo?cursor=not-a-cursor")
+            .then()
+            .statusCode(400)
+            .body("type", is("ERR-3002"));
+
+        given()
+            .when()
+            .get("/api/demo?limit=0")
+            .then()
+            .statusCode(400);
+    }
+
+    @Test
+    @TestSecurity(user = "testuser", roles = {Roles.USER})
+    void testGetAllStreamsNdjsonOfTheOrg() {
+        List<String> created = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            created.add(given().header(ORG_ID_HEADER, ORG_A).contentType(ContentType.JSON).body("{}")
+                    .post("/api/demo").then().statusCode(200).extract().path("id"));
+        }
+        String otherOrg = given().header(ORG_ID_HEADER, ORG_B).contentType(ContentType.JSON).body("{}")
+                .post("/api/demo").then().statusCode(200).extract().path("id");
+        try {
+            long waitsBefore = schedulerWaits();
+            String body = given()
+                .header(ORG_ID_HEADER, ORG_A)
+                .when()
+                .get("/api/demo?stream=true")
+                .then()
+                .statusCode(200)
+                .contentType(DemoResource.NDJSON)
+                .extract()
+                .asString();
+
+            List<String> lines = body.lines().toList();
+            List<String> ids = lines.stream()
+                    .map(line -> JsonPath.from(line).getString("id"))
+                    .toList();
+            assertEquals(created.stream().sorted().toList(), ids);
+            assertTrue(lines.stream().allMatch(line -> line.contains("\"orgId\":\"" + ORG_A + "\"")));
+            assertFalse(ids.contains(otherOrg));
+            // the resource method and the output each took a slot of the org
+            assertEquals(waitsBefore + 2, schedulerWaits());
+        } finally {
+            created.forEach(id -> given().header(ORG_ID_HEADER, ORG_A).delete("/api/demo/" + id).then().statusCode(204));
+            given().header(ORG_ID_HEADER, ORG_B).delete("/api/demo/" + otherOrg).then().statusCode(204);
+        }
+    }
+
+    @Test
+    @TestSecurity(user = "testuser", roles = {Roles.USER})
+    void testBulkReturnsOneResultPerOperation() {
+        String existing = given().header(ORG_ID_HEADER, ORG_A).contentType(ContentType.JSON).body("{}")
+                .post("/api/demo").then().statusCode(200).extract().path("id");
+
+        List<String> created = given()
+            .header(ORG_ID_HEADER, ORG_A)
+            .contentType(ContentType.JSON)
+            .body("[{\"action\": \"CREATE\", \"demo\": {}},"
+                + " {\"action\": \"CREATE\", \"demo\": {\"id\": \"" + existing + "\"}},"
+                + " {\"action\": \"DELETE\", \"id\": \"" + existing + "\"}]")
+            .when()
+            .post("/api/demo/bulk")
+            .then()
+            .statusCode(200)
+            .body("status", is(List.of(201, 400, 204)))
+            .body("[1].error", is("ERR-1002"))
+            .extract()
+            .path("findAll { it.status == 201 }.id");
+
+        created.forEach(id -> given().header(ORG_ID_HEADER, ORG_A).delete("/api/demo/" + id).then().statusCode(204));
+    }
+
     @Test
     @TestSecurity(user = "testuser", roles = {Roles.USER})
     void testCreateDemo() {
@@ -67,12 +198,15 @@ class DemoResourceTest {
         // Update it
         given()
             .contentType(ContentType.JSON)
+            .header("If-Match", "\"0\"")
             .body("{\"id\": \"" + id + "\"}")
             .when()
             .put("/api/demo")
             .then()
             .statusCode(200)
-            .body("id", is(id));
+            .header("ETag", is("\"1\""))
+            .body("id", is(id))
+            .body("version", is(1));
 
         // cleanup
         given()
@@ -82,6 +216,69 @@ class DemoResourceTest {
             .statusCode(204);
     }
 
+    @Test
+    @TestSecurity(user = "testuser", roles = {Roles.USER})
+    void testCreateIgnoresClientIds() {
+        String id = given().header(ORG_ID_HEADER, ORG_A).contentType(ContentType.JSON).body("{}").post("/api/demo")
+            .then().statusCode(200).extract().path("id");
+        String other = given().header(ORG_ID_HEADER, ORG_B).contentType(ContentType.JSON)
+            .body("{\"id\": \"" + id + "\"}").post("/api/demo")
+            .then().statusCode(200).extract().path("id");
+        try {
+            assertNotEquals(id, other);
+        } finally {
+            given().header(ORG_ID_HEADER, ORG_A).delete("/api/demo/" + id).then().statusCode(204);
+            given().header(ORG_ID_HEADER, ORG_B).delete("/api/demo/" + other).then().statusCode(204);
+        }
+    }
+
+    @Test
+    @TestSecurity(user = "testuser", roles = {Roles.USER})
+    void testUpdateRequiresTheCurrentETag() {
+        String id = given().contentType(ContentType.JSON).body("{}").post("/api/demo")
+            .then().statusCode(200).header("ETag", is("\"0\"")).extract().path("id");
+        String etag = given().get("/api/demo/" + id).then().statusCode(200).body("id", is(id)).extract().header("ETag");
+        String body = "{\"id\": \"" + id + "\"}";
+        try {
+            given().contentType(ContentType.JSON).body(body).put("/api/demo")
+                .then().statusCode(428).body("type", is("ERR-3003"));
+
+            String next = given().contentType(ContentType.JSON).header("If-Match", etag).body(body).put("/api/demo")
+                .then().statusCode(200).extract().header("ETag");
+            assertNotEquals(etag, next);
+
+            // a second writer that read the same version loses
+            given().contentType(ContentType.JSON).header("If-Match", etag).body(body).put("/api/demo")
+                .then().statusCode(412).body("type", is("ERR-4005"));
+            given().contentType(ContentType.JSON).header("If-Match", "W/" + next).body(body).put("/api/demo")
+                .then().statusCode(412);
+
+            given().contentType(ContentType.JSON).header("If-Match", "*").body(body).put("/api/demo")
+                .then().statusCode(200).header("ETag", not(is(next)));
+            given().get("/api/demo/" + id).then().statusCode(200).body("version", is(2));
+        } finally {
+            given().delete("/api/demo/" + id).then().statusCode(204);
+        }
+        given().contentType(ContentType.JSON).header("If-Match", "*").body(body).put("/api/demo")
+            .then().statusCode(412);
+        given().get("/api/demo/" + id).then().statusCode(404);
+    }
+
+    @Test
+    @TestSecurity(user = "testuser", roles = {Roles.USER})
+    void testUpdateDoesNotTouchDemosOfOtherOrgs() {
+        String id = given().header(ORG_ID_HEADER, ORG_A).contentType(ContentType.JSON).body("{}").post("/api/demo")
+            .then().statusCode(200).extract().path("id");
+        try {
+            given().header(ORG_ID_HEADER, ORG_B).contentType(ContentType.JSON).header("If-Match", "\"0\"")
+                .body("{\"id\": \"" + id + "\"}").put("/api/demo")
+                .then().statusCode(412);
+            given().header(ORG_ID_HEADER, ORG_A).get("/api/demo/" + id).then().statusCode(200).header("ETag", is("\"0\""));
+        } finally {
+            given().header(ORG_ID_HEADER, ORG_A).delete("/api/demo/" + id).then().statusCode(204);
+        }
+    }
+
     @Test
     @TestSecurity(user = "testuser", roles = {Roles.USER})
     void testDeleteNonExistentDemoIsIdempotent() {
@@ -124,4 +321,8 @@ class DemoResourceTest {
             .then()
             .statusCode(400);
     }
+
+    private long schedulerWaits() {
+        return meterRegistry.find("abstratium.scheduler.wait").timers().stream().mapToLong(Timer::count).sum();
+    }
 }
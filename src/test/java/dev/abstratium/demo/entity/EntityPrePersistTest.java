@@ -2,6 +2,8 @@ package dev.abstratium.demo.entity;
 
 import org.junit.jupiter.api.Test;
 
+import java.util.UUID;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
@@ -17,13 +19,13 @@ class EntityPrePersistTest {
         demo.prePersist();
         
         assertNotNull(demo.getId());
-        assertEquals(36, demo.getId().length()); // UUID length
+        assertEquals(7, demo.getId().version()); // time-ordered UUID
     }
 
     @Test
     void demoShouldNotOverrideExistingId() {
         Demo demo = new Demo();
-        String existingId = "existing-id-123";
+        UUID existingId = UUID.fromString("e9877513-73cf-44fe-b581-4bad96e168cb");
         demo.setId(existingId);
         
         demo.prePersist();
@@ -42,6 +44,7 @@ class EntityPrePersistTest {
         assertNotNull(demo1.getId());
         assertNotNull(demo2.getId());
         assertNotEquals(demo1.getId(), demo2.getId());
+        assertTrue(demo1.getId().compareTo(demo2.getId()) < 0, "ids are ordered by creation");
     }
 
     @Test
@@ -51,7 +54,7 @@ class EntityPrePersistTest {
         demo.prePersist();
         
         // UUID format: 8-4-4-4-12 characters separated by hyphens
-        String id = demo.getId();
+        String id = demo.getId().toString();
         assertTrue(id.matches("[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}"));
     }
 
@@ -60,10 +63,10 @@ class EntityPrePersistTest {
         Demo demo = new Demo();
         
         demo.prePersist();
-        String firstId = demo.getId();
+        UUID firstId = demo.getId();
         
         demo.prePersist();
-        String secondId = demo.getId();
+        UUID secondId = demo.getId();
         
         assertEquals(firstId, secondId);
     }
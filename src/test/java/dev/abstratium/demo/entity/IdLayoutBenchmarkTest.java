@@ -0,0 +1,144 @@
+package dev.abstratium.demo.entity;
+
+import dev.abstratium.core.util.UuidV7;
+import io.agroal.api.AgroalDataSource;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import org.jboss.logging.Logger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compares inserting rows keyed by random version 4 UUID strings in a {@code VARCHAR(36)} column (the layout of
+ * {@code T_demo} before V01.006) to rows keyed by time-ordered {@link UuidV7} ids in a {@code BINARY(16)}
+ * column, by insert time and by the size of the tables with their primary and secondary indexes.
+ *
+ * <p>Excluded from the normal build; run it with {@code mvn test -Pbenchmark}. The number of rows can be
+ * changed with {@code -Dbenchmark.id-rows}. Results are logged; table and index sizes are read from
+ * {@code information_schema.TABLES} on MySQL and with {@code DISK_SPACE_USED} on H2, which only knows them for
+ * databases on disk.</p>
+ */
+@QuarkusTest
+@Tag("benchmark")
+class IdLayoutBenchmarkTest {
+
+    private static final Logger log = Logger.getLogger(IdLayoutBenchmarkTest.class);
+
+    private static final String STRING_KEY_TABLE = "T_bench_string_key";
+    private static final String BINARY_KEY_TABLE = "T_bench_binary_key";
+    private static final int BATCH_SIZE = 1000;
+
+    @Inject
+    AgroalDataSource dataSource;
+
+    @AfterEach
+    void dropTables() throws SQLException {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS " + STRING_KEY_TABLE);
+            statement.execute("DROP TABLE IF EXISTS " + BINARY_KEY_TABLE);
+        }
+    }
+
+    @Test
+    void benchmarkInsertsAndIndexSizes() throws SQLException {
+        int rows = Integer.getInteger("benchmark.id-rows", 200_000);
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE " + STRING_KEY_TABLE + " (id VARCHAR(36) NOT NULL PRIMARY KEY,"
+                    + " org_id VARCHAR(36) NOT NULL, payload VARCHAR(100))");
+            statement.execute("CREATE INDEX I_bench_string_key_org_id ON " + STRING_KEY_TABLE + " (org_id)");
+            statement.execute("CREATE TABLE " + BINARY_KEY_TABLE + " (id BINARY(16) NOT NULL PRIMARY KEY,"
+                    + " org_id VARCHAR(36) NOT NULL, payload VARCHAR(100))");
+            statement.execute("CREATE INDEX I_bench_binary_key_org_id ON " + BINARY_KEY_TABLE + " (org_id)");
+        }
+
+        long stringMillis = insert(STRING_KEY_TABLE, rows, false);
+        long binaryMillis = insert(BINARY_KEY_TABLE, rows, true);
+
+        try (Connection connection = dataSource.getConnection()) {
+            boolean mysql = connection.getMetaData().getDatabaseProductName().toLowerCase().contains("mysql");
+            log.infov("Inserting {0} rows: VARCHAR(36) UUIDv4 {1} ms, {2} key bytes, {3} table and index bytes;"
+                            + " BINARY(16) UUIDv7 {4} ms, {5} key bytes, {6} table and index bytes",
+                    rows, stringMillis, keyBytes(connection, STRING_KEY_TABLE), size(connection, STRING_KEY_TABLE, mysql),
+                    binaryMillis, keyBytes(connection, BINARY_KEY_TABLE), size(connection, BINARY_KEY_TABLE, mysql));
+            assertEquals(rows, count(connection, STRING_KEY_TABLE));
+            assertEquals(rows, count(connection, BINARY_KEY_TABLE));
+        }
+    }
+
+    private long insert(String table, int rows, boolean binary) throws SQLException {
+        long start = System.nanoTime();
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement insert = connection.prepareStatement(
+                     "INSERT INTO " + table + " (id, org_id, payload) VALUES (?, ?, ?)")) {
+            connection.setAutoCommit(false);
+            for (int i = 0; i < rows; i++) {
+                if (binary) {
+                    insert.setBytes(1, UuidV7.toBytes(UuidV7.generate()));
+                } else {
+                    insert.setString(1, UUID.randomUUID().toString());
+                }
+                insert.setString(2, "org-" + i % 100);
+                insert.setString(3, "payload " + i);
+                insert.addBatch();
+                if (i % BATCH_SIZE == BATCH_SIZE - 1) {
+                    insert.executeBatch();
+                    connection.commit();
+                }
+            }
+            insert.executeBatch();
+            connection.commit();
+            connection.setAutoCommit(true);
+        }
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+
+    /**
+     * @return the bytes of all primary keys, which the primary key index and every secondary index carry
+     */
+    private static long keyBytes(Connection connection, String table) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT SUM(OCTET_LENGTH(id)) FROM " + table)) {
+            resultSet.next();
+            return resultSet.getLong(1);
+        }
+    }
+
+    /**
+     * @return the bytes used by the table and its indexes; H2 reports 0 for in-memory databases
+     */
+    private static long size(Connection connection, String table, boolean mysql) throws SQLException {
+        if (mysql) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("ANALYZE TABLE " + table);
+            }
+        }
+        try (PreparedStatement query = connection.prepareStatement(mysql
+                ? "SELECT data_length + index_length FROM information_schema.TABLES"
+                        + " WHERE table_schema = DATABASE() AND table_name = ?"
+                : "SELECT DISK_SPACE_USED(?)")) {
+            query.setString(1, mysql ? table : table.toUpperCase());
+            try (ResultSet resultSet = query.executeQuery()) {
+                resultSet.next();
+                return resultSet.getLong(1);
+            }
+        }
+    }
+
+    private static long count(Connection connection, String table) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM " + table)) {
+            resultSet.next();
+            return resultSet.getLong(1);
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package dev.abstratium.demo.entity;
+
+import io.agroal.api.AgroalDataSource;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import org.jboss.logging.Logger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compares tenant-scoped range scans of a table keyed by a random id with an index on {@code org_id} (the
+ * layout of {@code T_demo} before V01.005) to the same table keyed by {@code (org_id, id)}.
+ *
+ * <p>Excluded from the normal build; run it with {@code mvn test -Pbenchmark}. The number of rows and orgs
+ * can be changed with {@code -Dbenchmark.rows} and {@code -Dbenchmark.orgs}. Results are logged; the
+ * difference is largest on MySQL, where InnoDB stores the rows in primary key order.</p>
+ */
+@QuarkusTest
+@Tag("benchmark")
+class TenantKeyLayoutBenchmarkTest {
+
+    private static final Logger log = Logger.getLogger(TenantKeyLayoutBenchmarkTest.class);
+
+    private static final String RANDOM_KEY_TABLE = "T_bench_random_key";
+    private static final String TENANT_KEY_TABLE = "T_bench_tenant_key";
+    private static final int PAGE_SIZE = 100;
+
+    @Inject
+    AgroalDataSource dataSource;
+
+    @AfterEach
+    void dropTables() throws SQLException {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS " + RANDOM_KEY_TABLE);
+            statement.execute("DROP TABLE IF EXISTS " + TENANT_KEY_TABLE);
+        }
+    }
+
+    @Test
+    void benchmarkTenantRangeScans() throws SQLException {
+        int rows = Integer.getInteger("benchmark.rows", 200_000);
+        int orgs = Integer.getInteger("benchmark.orgs", 100);
+        List<String> orgIds = new ArrayList<>();
+        for (int i = 0; i < orgs; i++) {
+            orgIds.add(UUID.randomUUID().toString());
+        }
+
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE " + RANDOM_KEY_TABLE + " (id VARCHAR(36) NOT NULL PRIMARY KEY,"
+                    + " org_id VARCHAR(36) NOT NULL, payload VARCHAR(100))");
+            statement.execute("CREATE INDEX I_bench_random_key_org_id ON " + RANDOM_KEY_TABLE + " (org_id)");
+            statement.execute("CREATE TABLE " + TENANT_KEY_TABLE + " (id VARCHAR(36) NOT NULL,"
+                    + " org_id VARCHAR(36) NOT NULL, payload VARCHAR(100), PRIMARY KEY (org_id, id))");
+            // the same rows, inserted in random order into both tables
+            insert(connection, rows, orgIds);
+        }
+
+        // warm up, then measure
+        scanAll(RANDOM_KEY_TABLE, orgIds);
+        scanAll(TENANT_KEY_TABLE, orgIds);
+        Result randomKey = scanAll(RANDOM_KEY_TABLE, orgIds);
+        Result tenantKey = scanAll(TENANT_KEY_TABLE, orgIds);
+
+        log.infov("Tenant range scans of {0} rows in {1} orgs, pages of {2}: random key {3} ms, (org_id, id) key {4} ms",
+                rows, orgs, PAGE_SIZE, randomKey.millis(), tenantKey.millis());
+        assertEquals(rows, randomKey.rows());
+        assertEquals(randomKey.rows(), tenantKey.rows());
+        assertEquals(randomKey.checksum(), tenantKey.checksum());
+    }
+
+    private void insert(Connection connection, int rows, List<String> orgIds) throws SQLException {
+        connection.setAutoCommit(false);
+        try (PreparedStatement random = connection.prepareStatement(
+                "INSERT INTO " + RANDOM_KEY_TABLE + " (id, org_id, payload) VALUES (?, ?, ?)");
+             PreparedStatement tenant = connection.prepareStatement(
+                     "INSERT INTO " + TENANT_KEY_TABLE + " (id, org_id, payload) VALUES (?, ?, ?)")) {
+            for (int i = 0; i < rows; i++) {
+                String id = UUID.randomUUID().toString();
+                String orgId = orgIds.get(Math.floorMod(id.hashCode(), orgIds.size()));
+                for (PreparedStatement insert : List.of(random, tenant)) {
+                    insert.setString(1, id);
+                    insert.setString(2, orgId);
+                    insert.setString(3, "payload " + i);
+                    insert.addBatch();
+                }
+                if (i % 1000 == 999) {
+                    random.executeBatch();
+                    tenant.executeBatch();
+                    connection.commit();
+                }
+            }
+            random.executeBatch();
+            tenant.executeBatch();
+            connection.commit();
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * Reads every org page by page, as keyset pagination does.
+     */
+    private Result scanAll(String table, List<String> orgIds) throws SQLException {
+        long start = System.nanoTime();
+        long rows = 0;
+        long checksum = 0;
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement query = connection.prepareStatement("SELECT id, payload FROM " + table
+                     + " WHERE org_id = ? AND id > ? ORDER BY id LIMIT " + PAGE_SIZE)) {
+            for (String orgId : orgIds) {
+                String after = "";
+                while (after != null) {
+                    query.setString(1, orgId);
+                    query.setString(2, after);
+                    after = null;
+                    try (ResultSet resultSet = query.executeQuery()) {
+                        int page = 0;
+                        String last = null;
+                        while (resultSet.next()) {
+                            last = resultSet.getString(1);
+                            checksum += last.hashCode() + resultSet.getString(2).hashCode();
+                            page++;
+                        }
+                        rows += page;
+                        if (page == PAGE_SIZE) {
+                            after = last;
+                        }
+                    }
+                }
+            }
+        }
+        return new Result(rows, checksum, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private record Result(long rows, long checksum, long millis) {
+    }
+}
@@ -0,0 +1,97 @@
+package dev.abstratium.demo.service;
+
+import dev.abstratium.core.service.TenantContext;
+import dev.abstratium.demo.entity.Demo;
+import dev.abstratium.demo.service.DemoBulkService.Action;
+import dev.abstratium.demo.service.DemoBulkService.ItemResult;
+import dev.abstratium.demo.service.DemoBulkService.Operation;
+import io.agroal.api.AgroalDataSource;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+import jakarta.inject.Inject;
+import org.jboss.logging.Logger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares creating demos one call and transaction each with {@link DemoService#create(Demo)} to creating them
+ * with {@link DemoBulkService} in chunks with JDBC batching.
+ *
+ * <p>Excluded from the normal build; run it with {@code mvn test -Pbenchmark}. The number of rows can be
+ * changed with {@code -Dbenchmark.bulk-rows}. Results are logged; the difference is largest on a database
+ * across the network, where every transaction and statement costs a round trip.</p>
+ */
+@QuarkusTest
+@Tag("benchmark")
+@TestProfile(DemoBulkBenchmarkTest.TestProfile.class)
+class DemoBulkBenchmarkTest {
+
+    public static class TestProfile implements QuarkusTestProfile {
+        @Override
+        public Map<String, String> getConfigOverrides() {
+            return Map.of("abstratium.bulk.chunk-size", "500", "abstratium.bulk.max-operations", "100000");
+        }
+    }
+
+    private static final Logger log = Logger.getLogger(DemoBulkBenchmarkTest.class);
+
+    private static final String PER_ROW_ORG = "aaaaaaaa-0000-0000-0000-0000000000f1";
+    private static final String BULK_ORG = "aaaaaaaa-0000-0000-0000-0000000000f2";
+
+    @Inject
+    DemoService demoService;
+
+    @Inject
+    DemoBulkService demoBulkService;
+
+    @Inject
+    AgroalDataSource dataSource;
+
+    @AfterEach
+    void deleteRows() throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement delete = connection.prepareStatement("DELETE FROM T_demo WHERE org_id IN (?, ?)")) {
+            delete.setString(1, PER_ROW_ORG);
+            delete.setString(2, BULK_ORG);
+            delete.executeUpdate();
+        }
+    }
+
+    @Test
+    void benchmarkBulkCreateAgainstPerRowCreate() throws Exception {
+        int rows = Integer.getInteger("benchmark.bulk-rows", 10_000);
+
+        long start = System.nanoTime();
+        TenantContext.runAs(PER_ROW_ORG, () -> {
+            for (int i = 0; i < rows; i++) {
+                demoService.create(new Demo());
+            }
+        });
+        long perRowNanos = System.nanoTime() - start;
+
+        List<Operation> operations = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            operations.add(new Operation(Action.CREATE, new Demo(), null, null));
+        }
+        start = System.nanoTime();
+        List<ItemResult> results = TenantContext.callAs(BULK_ORG, () -> demoBulkService.apply(operations));
+        long bulkNanos = System.nanoTime() - start;
+
+        log.infov("Creating {0} demos: per row {1} ms ({2,number,#} rows/s), bulk {3} ms ({4,number,#} rows/s)",
+                rows, perRowNanos / 1_000_000, rows * 1e9 / perRowNanos, bulkNanos / 1_000_000, rows * 1e9 / bulkNanos);
+        assertEquals(rows, results.size());
+        assertTrue(results.stream().allMatch(result -> result.status() == 201));
+    }
+}
@@ -0,0 +1,144 @@
+package dev.abstratium.demo.service;
+
+import dev.abstratium.core.service.TenantContext;
+import dev.abstratium.core.util.UuidV7;
+import dev.abstratium.demo.entity.Demo;
+import dev.abstratium.demo.service.DemoBulkService.Action;
+import dev.abstratium.demo.service.DemoBulkService.ItemResult;
+import dev.abstratium.demo.service.DemoBulkService.Operation;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Verifies that bulk operations get one result each, and that a failing operation only fails itself. Chunks
+ * hold 3 operations, see application.properties.
+ */
+@QuarkusTest
+class DemoBulkServiceTest {
+
+    private static final String ORG = "aaaaaaaa-0000-0000-0000-0000000000e1";
+    private static final String OTHER_ORG = "aaaaaaaa-0000-0000-0000-0000000000e2";
+
+    @Inject
+    DemoBulkService demoBulkService;
+
+    @Inject
+    DemoService demoService;
+
+    private final List<UUID> ids = new ArrayList<>();
+
+    @AfterEach
+    void cleanUp() {
+        ids.forEach(id -> TenantContext.runAs(ORG, () -> demoService.delete(id)));
+    }
+
+    @Test
+    void testEveryOperationGetsItsOwnResult() throws Exception {
+        UUID existing = create(ORG);
+        UUID toDelete = create(ORG);
+
+        List<ItemResult> results = TenantContext.callAs(ORG, () -> demoBulkService.apply(Arrays.asList(
+                new Operation(Action.CREATE, new Demo(), null, null),
+                // clients cannot choose ids
+                new Operation(Action.CREATE, demo(existing), null, null),
+                new Operation(Action.UPDATE, demo(existing), null, 0L),
+                new Operation(Action.UPDATE, demo(UuidV7.generate()), null, 0L),
+                new Operation(Action.DELETE, null, toDelete, null),
+                // deleted by the previous operation
+                new Operation(Action.UPDATE, demo(toDelete), null, 0L),
+                new Operation(Action.CREATE, null, null, null),
+                null)));
+
+        ids.add(results.get(0).id());
+        assertEquals(List.of(201, 400, 200, 404, 204, 404, 400, 400), results.stream().map(ItemResult::status).toList());
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals(i, results.get(i).index());
+        }
+        assertEquals("ERR-1002", results.get(1).error());
+        assertEquals("ERR-1001", results.get(3).error());
+        TenantContext.runAs(ORG, () -> {
+            assertNotNull(demoService.findById(results.get(0).id()));
+            assertEquals(1, demoService.findById(existing).getVersion());
+            assertNull(demoService.findById(toDelete));
+        });
+    }
+
+    @Test
+    void testOperationsOnlyAffectTheCurrentOrg() throws Exception {
+        UUID ofOtherOrg = TenantContext.callAs(OTHER_ORG, () -> demoService.create(new Demo()).getId());
+        try {
+            List<ItemResult> results = TenantContext.callAs(ORG, () -> demoBulkService.apply(List.of(
+                    new Operation(Action.UPDATE, demo(ofOtherOrg), null, 0L),
+                    new Operation(Action.DELETE, null, ofOtherOrg, null))));
+
+            assertEquals(List.of(404, 204), results.stream().map(ItemResult::status).toList());
+            Demo unchanged = TenantContext.callAs(OTHER_ORG, () -> demoService.findById(ofOtherOrg));
+            assertNotNull(unchanged);
+            assertEquals(0, unchanged.getVersion());
+        } finally {
+            TenantContext.runAs(OTHER_ORG, () -> demoService.delete(ofOtherOrg));
+        }
+    }
+
+    @Test
+    void testUpdatesMustStateTheCurrentVersion() throws Exception {
+        UUID existing = create(ORG);
+
+        List<ItemResult> results = TenantContext.callAs(ORG, () -> demoBulkService.apply(List.of(
+                new Operation(Action.UPDATE, demo(existing), null, 0L),
+                // based on the version the previous operation replaced
+                new Operation(Action.UPDATE, demo(existing), null, 0L),
+                new Operation(Action.UPDATE, demo(existing), null, 1L),
+                new Operation(Action.UPDATE, demo(existing), null, null))));
+
+        assertEquals(List.of(200, 412, 200, 400), results.stream().map(ItemResult::status).toList());
+        assertEquals("ERR-4005", results.get(1).error());
+        TenantContext.runAs(ORG, () -> assertEquals(2, demoService.findById(existing).getVersion()));
+    }
+
+    @Test
+    void testOperationsOfAFailingChunkAreAppliedOneByOne() throws Exception {
+        UUID existing = create(ORG);
+        Demo first = new Demo();
+        Demo ofOtherOrg = new Demo();
+        ofOtherOrg.setOrgId(OTHER_ORG);
+        Demo last = new Demo();
+
+        // the demo of another org fails the chunk of 3
+        List<ItemResult> results = TenantContext.callAs(ORG, () -> demoBulkService.apply(List.of(
+                new Operation(Action.CREATE, first, null, null),
+                new Operation(Action.CREATE, ofOtherOrg, null, null),
+                new Operation(Action.UPDATE, demo(existing), null, 0L),
+                new Operation(Action.CREATE, last, null, null))));
+
+        results.stream().filter(result -> result.status() == 201).forEach(result -> ids.add(result.id()));
+        assertEquals(List.of(201, 500, 200, 201), results.stream().map(ItemResult::status).toList());
+        assertNull(first.getId(), "the operations must not keep the ids of the rolled back chunk");
+        TenantContext.runAs(ORG, () -> {
+            assertNotNull(demoService.findById(results.get(0).id()));
+            assertNotNull(demoService.findById(results.get(3).id()));
+            assertEquals(1, demoService.findById(existing).getVersion());
+        });
+    }
+
+    private UUID create(String orgId) throws Exception {
+        UUID id = TenantContext.callAs(orgId, () -> demoService.create(new Demo()).getId());
+        ids.add(id);
+        return id;
+    }
+
+    private static Demo demo(UUID id) {
+        Demo demo = new Demo();
+        demo.setId(id);
+        return demo;
+    }
+}